@@ -1,24 +1,24 @@
 package icecube.daq.tools;
 
-abstract class BaseData
+public abstract class BaseData
 {
     private ChartTime time;
 
-    BaseData(ChartTime time)
+    protected BaseData(ChartTime time)
     {
         this.time = time;
     }
 
-    abstract StatParent createParent();
+    public abstract StatParent createParent();
 
-    abstract String getDataString();
+    public abstract String getDataString();
 
-    ChartTime getTime()
+    public ChartTime getTime()
     {
         return time;
     }
 
-    abstract boolean isEmpty();
+    public abstract boolean isEmpty();
 
     @Override
     public String toString()
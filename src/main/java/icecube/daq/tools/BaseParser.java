@@ -0,0 +1,682 @@
+package icecube.daq.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+abstract class BaseParser
+{
+    private static final Logger LOG = Logger.getLogger(BaseParser.class);
+
+    /** Lines containing this are never parsed */
+    private static final String BACKEND_STATE = "BackEndState: ";
+
+    private boolean done;
+    private ChartTime time;
+
+    private String sectionHost;
+    private String sectionName;
+
+    private boolean grabStrandDepths;
+    private boolean ignoreSection;
+
+    /** If non-null, statistics rejected by this filter are not saved */
+    private ParseFilter filter;
+
+    /** Saves parsed samples in the current section */
+    private SectionSink sink = new SectionSink();
+
+    // the strand parser is weird, can't be part or the 'parsers' array
+    private StrandParser strandParser = new StrandParser();
+
+    /** Scans simple numeric lines which have not been decoded */
+    private ScalarScanner scanner = new ScalarScanner();
+
+    /** Number of cascaded lines between checks of the parser order */
+    private static final int REORDER_INTERVAL = 4096;
+
+    /** Component type, used to share parser statistics between files */
+    private String component;
+
+    /** List of parsers from the registry */
+    private BaseStatParser[] parsers;
+    /**
+     * Parsers in the order they are tried, sorted by tier and then by the
+     * number of lines each has matched
+     */
+    private BaseStatParser[] ordered;
+    /** Number of lines passed to the cascade since the last reordering */
+    private int sinceReorder;
+
+    /**
+     * Parsers which may match each line shape, indexed by
+     * [hasTiming ? 1 : 0][shape.ordinal()].  Each list keeps the order
+     * used in 'ordered' so a line matches the same parser it would have
+     * matched if all parsers were tried.
+     */
+    private BaseStatParser[][][] candidates;
+
+    /**
+     * For each parser in 'parsers', the parsers which come before it in
+     * any list of candidates
+     */
+    private BaseStatParser[][] predecessors;
+
+    /** Interned names of indented statistics */
+    private NameTable names = new NameTable();
+    /**
+     * Index (in 'parsers') of the parser which last matched each
+     * statistic, indexed by section name and then by statistic name
+     */
+    private HashMap<String, HashMap<String, Integer>> schemas =
+        new HashMap<String, HashMap<String, Integer>>();
+    /** Learned parsers for statistics in the current section */
+    private HashMap<String, Integer> sectionSchema;
+
+    /** If <tt>false</tt>, try every parser for every line */
+    private static boolean classifyLines = true;
+    /** If <tt>false</tt>, don't try learned parsers first */
+    private static boolean learnSchema = true;
+
+    BaseParser(String host, String name)
+    {
+        sectionHost = host;
+        sectionName = name;
+
+        component = SectionKey.getComponentName(host);
+        parsers = ParserRegistry.createParsers(component);
+        ordered = parsers;
+
+        candidates = buildCandidates(ordered);
+        predecessors = buildPredecessors(parsers, candidates);
+    }
+
+    private static BaseStatParser[][][] buildCandidates(BaseStatParser[] list)
+    {
+        final LineShape[] shapes = LineShape.values();
+
+        BaseStatParser[][][] table = new BaseStatParser[2][shapes.length][];
+        for (int t = 0; t < table.length; t++) {
+            for (LineShape shape : shapes) {
+                ArrayList<BaseStatParser> found =
+                    new ArrayList<BaseStatParser>();
+                for (BaseStatParser parser : list) {
+                    if (parser.canParse(shape, t == 1)) {
+                        found.add(parser);
+                    }
+                }
+
+                table[t][shape.ordinal()] =
+                    found.toArray(new BaseStatParser[found.size()]);
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Find the parsers which may be tried before each parser
+     *
+     * @param list all parsers
+     * @param table candidate lists built by <tt>buildCandidates()</tt>
+     *
+     * @return array of predecessors for each entry in <tt>list</tt>
+     */
+    private static BaseStatParser[][]
+        buildPredecessors(BaseStatParser[] list, BaseStatParser[][][] table)
+    {
+        BaseStatParser[][] preds = new BaseStatParser[list.length][];
+        for (int p = 0; p < list.length; p++) {
+            ArrayList<BaseStatParser> found = new ArrayList<BaseStatParser>();
+            for (BaseStatParser[][] shapes : table) {
+                for (BaseStatParser[] cands : shapes) {
+                    final int idx = Arrays.asList(cands).indexOf(list[p]);
+                    for (int i = 0; i < idx; i++) {
+                        if (!found.contains(cands[i])) {
+                            found.add(cands[i]);
+                        }
+                    }
+                }
+            }
+
+            preds[p] = found.toArray(new BaseStatParser[found.size()]);
+        }
+
+        return preds;
+    }
+
+    ParseFilter getFilter()
+    {
+        return filter;
+    }
+
+    public String getHost()
+    {
+        return sectionHost;
+    }
+
+    /**
+     * Get the name from an indented statistic line, which is everything
+     * up to the first whitespace or colon
+     *
+     * @param line line from a monitoring file
+     *
+     * @return interned statistic name, or <tt>null</tt> if the line is
+     *         not indented
+     */
+    private String getIndentedName(String line)
+    {
+        final int len = line.length();
+        if (len == 0 || !TimestampParser.isSpace(line.charAt(0))) {
+            return null;
+        }
+
+        int start = 0;
+        while (start < len && TimestampParser.isSpace(line.charAt(start))) {
+            start++;
+        }
+
+        int end = start;
+        while (end < len && line.charAt(end) != ':' &&
+               !TimestampParser.isSpace(line.charAt(end)))
+        {
+            end++;
+        }
+
+        return names.get(line, start, end);
+    }
+
+    public String getName()
+    {
+        return sectionName;
+    }
+
+    public ChartTime getTime()
+    {
+        return time;
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * Should all lines up to the next section header be skipped?
+     *
+     * @return <tt>true</tt> if the current section is being skipped
+     */
+    boolean isSectionIgnored()
+    {
+        return ignoreSection;
+    }
+
+    /**
+     * Parse a line from the current section
+     *
+     * @param statData collection which receives the parsed samples
+     * @param line line from a monitoring file
+     * @param verbose if <tt>true</tt>, report how each line was parsed
+     *
+     * @return <tt>false</tt> if the line was not recognized
+     */
+    public boolean match(StatData statData, String line, boolean verbose)
+    {
+        if (time == null) {
+            statData.getErrors().add(sectionHost, sectionName,
+                                     ParseErrors.Category.NO_TIME, line,
+                                     null);
+            return true;
+        }
+
+        if (grabStrandDepths) {
+            grabStrandDepths = false;
+
+            // strand depths are checked but have never been saved
+            sink.start(statData, line, false);
+            if (!strandParser.parseLine(time, line, sink, verbose)) {
+                sink.reject("Bad strand depths");
+            }
+
+            return true;
+        }
+
+        final String name = getIndentedName(line);
+
+        // skip unwanted statistics before parsing any values
+        if (filter != null && filter.filtersNames() && name != null &&
+            !filter.acceptName(name))
+        {
+            return true;
+        }
+
+        if (line.startsWith("Number of ")) {
+            line = "Num " + line.substring(10);
+        }
+
+        if (line.startsWith("Healthy flag: ") ||
+            line.contains(BACKEND_STATE) ||
+            line.startsWith("Failed to fetch "))
+        {
+            return true;
+        } else if (line.startsWith("StrandDepths:")) {
+            grabStrandDepths = true;
+            return true;
+        }
+
+        final boolean learn = classifyLines && learnSchema && name != null &&
+            name.length() > 0;
+        if (learn && matchLearned(statData, name, line, verbose)) {
+            return true;
+        }
+
+        if (++sinceReorder >= REORDER_INTERVAL) {
+            reorder();
+        }
+
+        BaseStatParser[] list;
+        if (!classifyLines) {
+            list = ordered;
+        } else {
+            final int tIdx = LineShape.hasTiming(line) ? 1 : 0;
+            list = candidates[tIdx][LineShape.classify(line).ordinal()];
+        }
+
+        sink.start(statData, line, true);
+        for (BaseStatParser parser : list) {
+            if (tryParser(parser, line, verbose)) {
+                if (verbose) {
+                    System.err.println(parser.getClass().getName() + " <= " +
+                                       line.trim());
+                }
+
+                if (learn) {
+                    learnParser(name, parser);
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Remember which parser matched a statistic in the current section
+     *
+     * @param name statistic name
+     * @param parser parser which matched the statistic
+     */
+    private void learnParser(String name, BaseStatParser parser)
+    {
+        for (int i = 0; i < parsers.length; i++) {
+            if (parsers[i] == parser) {
+                final Integer old = sectionSchema.get(name);
+                if (old == null || old.intValue() != i) {
+                    sectionSchema.put(name, i);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Try the parser which matched this statistic last time.  The learned
+     * parser is only tried if all the parsers which might come before it
+     * in the full cascade certainly cannot match the line, so the line
+     * is always parsed by the same parser the cascade would choose.
+     *
+     * @param statData collection which receives the parsed samples
+     * @param name statistic name
+     * @param line line from a monitoring file
+     * @param verbose if <tt>true</tt>, report how the line was parsed
+     *
+     * @return <tt>false</tt> if the line must be passed to the cascade
+     */
+    private boolean matchLearned(StatData statData, String name,
+                                 String line, boolean verbose)
+    {
+        if (sectionSchema == null) {
+            sectionSchema = schemas.get(sectionName);
+            if (sectionSchema == null) {
+                sectionSchema = new HashMap<String, Integer>();
+                schemas.put(sectionName, sectionSchema);
+            }
+        }
+
+        final SchemaStats schemaStats = statData.getSchemaStats();
+
+        final Integer idx = sectionSchema.get(name);
+        if (idx == null) {
+            schemaStats.addUnknown();
+            return false;
+        }
+
+        for (BaseStatParser earlier : predecessors[idx]) {
+            if (earlier.mayMatch(line)) {
+                schemaStats.addMiss();
+                return false;
+            }
+        }
+
+        final BaseStatParser parser = parsers[idx];
+
+        sink.start(statData, line, true);
+        if (!tryParser(parser, line, verbose)) {
+            schemaStats.addMiss();
+            return false;
+        }
+
+        if (verbose) {
+            System.err.println(parser.getClass().getName() + " <= " +
+                               line.trim() + " (learned)");
+        }
+
+        schemaStats.addHit();
+        return true;
+    }
+
+    /**
+     * Parse a simple indented "name: number" line directly from an
+     * undecoded line, so no <tt>String</tt> is built for the line.  The
+     * sample is saved exactly as <tt>match()</tt> would save it.  Lines
+     * which need any special handling are left for <tt>match()</tt>.
+     *
+     * @param statData collection which receives the parsed samples
+     * @param line indented ASCII line
+     *
+     * @return <tt>false</tt> if the line must be passed to
+     *         <tt>match()</tt>
+     */
+    boolean matchScalar(StatData statData, CharSequence line)
+    {
+        if (time == null || grabStrandDepths || contains(line, BACKEND_STATE))
+        {
+            return false;
+        }
+
+        // LongParser is tried before DoubleParser for numeric lines
+        if (scanner.scanLong(line)) {
+            if (scanner.isOverflow()) {
+                return false;
+            }
+
+            sink.start(statData, null, true);
+            sink.addLong(scanner.getName(), time, scanner.getLong());
+            return true;
+        }
+
+        if (scanner.scanDouble(line)) {
+            sink.start(statData, null, true);
+            sink.addDouble(scanner.getName(), time, scanner.getDouble());
+            return true;
+        }
+
+        return false;
+    }
+
+    private static boolean contains(CharSequence line, String str)
+    {
+        final int last = line.length() - str.length();
+        for (int i = 0; i <= last; i++) {
+            int j = 0;
+            while (j < str.length() && line.charAt(i + j) == str.charAt(j)) {
+                j++;
+            }
+            if (j == str.length()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Add the number of lines tried and matched by each parser to the
+     * totals for this component
+     */
+    void recordStatistics()
+    {
+        ParserRegistry.record(component, parsers);
+    }
+
+    /**
+     * Sort parsers within each tier by the number of lines they have
+     * matched so far, so the most common kinds of lines are tried first
+     */
+    private void reorder()
+    {
+        sinceReorder = 0;
+
+        long[] counts = new long[parsers.length];
+        for (int i = 0; i < parsers.length; i++) {
+            counts[i] = parsers[i].getMatches();
+        }
+
+        BaseStatParser[] sorted = ParserRegistry.sort(parsers, counts);
+        if (!Arrays.equals(sorted, ordered)) {
+            ordered = sorted;
+            candidates = buildCandidates(ordered);
+            predecessors = buildPredecessors(parsers, candidates);
+        }
+    }
+
+    /**
+     * Pass a line to a parser, counting (and possibly timing) the attempt
+     *
+     * @param parser statistic parser
+     * @param line line from a monitoring file
+     * @param verbose if <tt>true</tt>, log parsing problems
+     *
+     * @return <tt>true</tt> if the parser recognized the line
+     */
+    private boolean tryParser(BaseStatParser parser, String line,
+                              boolean verbose)
+    {
+        if (!ParserRegistry.isTiming()) {
+            final boolean found = parser.parseLine(time, line, sink, verbose);
+            parser.addAttempt(found, 0L);
+            return found;
+        }
+
+        final long start = System.nanoTime();
+        final boolean found = parser.parseLine(time, line, sink, verbose);
+        parser.addAttempt(found, System.nanoTime() - start);
+        return found;
+    }
+
+    /**
+     * Enable or disable line classification (used for benchmarking)
+     *
+     * @param val if <tt>false</tt>, try every parser for every line
+     */
+    static void setClassifyLines(boolean val)
+    {
+        classifyLines = val;
+    }
+
+    void setDone()
+    {
+        done = true;
+    }
+
+    void setFilter(ParseFilter filter)
+    {
+        this.filter = filter;
+    }
+
+    /**
+     * Save any samples which are still being held for the current
+     * section.  Must be called after the last line has been parsed.
+     */
+    void flush()
+    {
+        sink.flush();
+    }
+
+    void setHostAndName(String host, String name)
+    {
+        // save the previous section's samples
+        sink.reset();
+
+        sectionHost = host;
+        sectionName = name;
+        sectionSchema = null;
+    }
+
+    /**
+     * Enable or disable trying the parser learned for each statistic
+     * before the full cascade (used for benchmarking)
+     *
+     * @param val if <tt>false</tt>, always use the full cascade
+     */
+    static void setLearnSchema(boolean val)
+    {
+        learnSchema = val;
+    }
+
+    void setIgnoreSection(boolean val)
+    {
+        ignoreSection = val;
+    }
+
+    /**
+     * Set the time used for all following samples
+     *
+     * @param millis milliseconds since the epoch
+     */
+    void setTime(long millis)
+    {
+        // consecutive sections often share a time
+        if (time == null || time.getTime() != millis) {
+            time = new ChartTime(millis);
+        }
+    }
+
+    /**
+     * Save samples in the current section, skipping statistics rejected
+     * by the filter.  The section's metric IDs are looked up once and
+     * reused until the section or the collection changes.  Invalid lines
+     * are counted in the collection's parse errors.
+     */
+    class SectionSink
+        implements SampleSink
+    {
+        /** Collection which owns 'sectionKey' and 'sectionIds' */
+        private StatData statData;
+        /** Key for the current section in 'statData' */
+        private SectionKey sectionKey;
+        /** Metric IDs for statistics in the current section */
+        private Map<String, Integer> sectionIds;
+        /** Samples from the current section which have not been saved */
+        private SectionBatch batch = new SectionBatch();
+
+        /** Line being parsed */
+        private String line;
+        /** If <tt>false</tt>, samples are checked but not saved */
+        private boolean saving;
+
+        public void add(String name, BaseData datum)
+        {
+            final int id = getId(name);
+            if (id >= 0) {
+                batch.add(id, datum, line);
+            }
+        }
+
+        public void addDouble(String name, ChartTime time, double val)
+        {
+            final int id = getId(name);
+            if (id >= 0) {
+                batch.addDouble(id, time.getTime(), val);
+            }
+        }
+
+        public void addLong(String name, ChartTime time, long val)
+        {
+            final int id = getId(name);
+            if (id >= 0) {
+                batch.addLong(id, time.getTime(), val);
+            }
+        }
+
+        /**
+         * Get the metric ID for a statistic in the current section
+         *
+         * @param name statistic name
+         *
+         * @return metric ID, or <tt>-1</tt> if the statistic is filtered
+         */
+        private int getId(String name)
+        {
+            if (!saving || (filter != null && !filter.acceptName(name))) {
+                return -1;
+            }
+
+            if (sectionIds == null) {
+                sectionKey = statData.getSectionKey(sectionHost, sectionName);
+                sectionIds = statData.getMetricIds(sectionKey);
+            }
+
+            final Integer id = sectionIds.get(name);
+            if (id != null) {
+                return id;
+            }
+
+            return statData.getMetricId(sectionKey, name);
+        }
+
+        public void reject(String reason)
+        {
+            statData.getErrors().add(sectionHost, sectionName,
+                                     ParseErrors.Category.BAD_VALUE, line,
+                                     reason);
+        }
+
+        /**
+         * Save all samples from the current section
+         */
+        void flush()
+        {
+            if (!batch.isEmpty()) {
+                statData.addBatch(batch, sectionHost, sectionName);
+            }
+        }
+
+        /**
+         * Save the current section's samples and forget its metric IDs
+         */
+        void reset()
+        {
+            flush();
+            sectionIds = null;
+        }
+
+        /**
+         * Prepare to receive samples from a line
+         *
+         * @param statData collection which receives the samples
+         * @param line line being parsed
+         * @param saving if <tt>false</tt>, only report invalid values
+         */
+        void start(StatData statData, String line, boolean saving)
+        {
+            if (this.statData != statData) {
+                // IDs in the batch belong to the old collection
+                flush();
+
+                this.statData = statData;
+                sectionIds = null;
+            }
+
+            this.line = line;
+            this.saving = saving;
+        }
+    }
+}
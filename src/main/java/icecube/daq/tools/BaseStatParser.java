@@ -1,10 +1,111 @@
 package icecube.daq.tools;
 
-import java.util.Map;
-
-abstract class BaseStatParser
+/**
+ * Parser for one kind of statistic.  Parsers are supplied by a
+ * <tt>ParserProvider</tt>, so they may live outside this package.
+ */
+public abstract class BaseStatParser
 {
-    abstract Map<String, BaseData> parseLine(ChartTime time, String line,
-                                             boolean verbose)
-        throws StatParseException;
+    /** Tier for parsers which do not choose one */
+    public static final int DEFAULT_TIER = 500;
+
+    /** Number of lines passed to this parser */
+    private long attempts;
+    /** Number of lines recognized by this parser */
+    private long matches;
+    /** Time spent parsing, if parsers are being timed */
+    private long nanos;
+
+    /**
+     * Record the result of passing a line to this parser
+     *
+     * @param matched <tt>true</tt> if the parser recognized the line
+     * @param elapsed nanoseconds spent parsing (<tt>0</tt> if parsers
+     *                are not being timed)
+     */
+    void addAttempt(boolean matched, long elapsed)
+    {
+        attempts++;
+        if (matched) {
+            matches++;
+        }
+        nanos += elapsed;
+    }
+
+    /**
+     * Can this parser possibly match a line with the specified shape?
+     * Parsers should only return <tt>false</tt> if the line can never
+     * match, since the parser will be skipped for that line.
+     *
+     * @param shape line shape
+     * @param hasTiming <tt>true</tt> if the line contains "Timing"
+     *
+     * @return <tt>false</tt> if this parser will never match the line
+     */
+    boolean canParse(LineShape shape, boolean hasTiming)
+    {
+        return true;
+    }
+
+    long getAttempts()
+    {
+        return attempts;
+    }
+
+    long getMatches()
+    {
+        return matches;
+    }
+
+    long getNanos()
+    {
+        return nanos;
+    }
+
+    /**
+     * Get this parser's tier.  Lower tiers are always tried first.
+     * Parsers in the same tier must never recognize the same line, since
+     * they are reordered so the parser which matches most often is tried
+     * first.  The standard parsers use tiers 100 (lines which can only
+     * be recognized by one parser), 200 (<tt>DoubleParser</tt>), 300
+     * (<tt>TimingParser</tt>) and 1000 (<tt>StringParser</tt>, which
+     * accepts almost anything).
+     *
+     * @return tier
+     */
+    public int getTier()
+    {
+        return DEFAULT_TIER;
+    }
+
+    /**
+     * Can this parser possibly match the line?  Used to skip ahead to
+     * the parser learned for a statistic, so parsers should only return
+     * <tt>false</tt> if <tt>parseLine()</tt> would certainly return
+     * <tt>false</tt>, and the check should be much cheaper than parsing.
+     *
+     * @param line line from a monitoring file
+     *
+     * @return <tt>false</tt> if this parser will not match the line
+     */
+    public boolean mayMatch(String line)
+    {
+        return true;
+    }
+
+    /**
+     * Parse a line, passing any samples to <tt>sink</tt>.  Nothing is
+     * passed to <tt>sink</tt> unless the entire line is parsed.  Lines
+     * which are recognized but not valid are reported through
+     * <tt>sink.reject()</tt> rather than by throwing an exception.
+     *
+     * @param time sample time
+     * @param line line from a monitoring file
+     * @param sink receives the samples
+     * @param verbose if <tt>true</tt>, log parsing problems
+     *
+     * @return <tt>false</tt> if this parser does not recognize the line
+     */
+    public abstract boolean parseLine(ChartTime time, String line,
+                                      SampleSink sink, boolean verbose);
 }
@@ -0,0 +1,17 @@
+package icecube.daq.tools;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+
+/**
+ * <tt>BufferedReader</tt> which can be passed to the parsers
+ */
+class BufferedLineReader
+    extends BufferedReader
+    implements LineReader
+{
+    BufferedLineReader(Reader in)
+    {
+        super(in);
+    }
+}
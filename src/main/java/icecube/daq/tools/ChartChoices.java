@@ -2,6 +2,7 @@ package icecube.daq.tools;
 
 public class ChartChoices
 {
+    private boolean decimate = true;
     private boolean filterBoring;
     private boolean hideLegends;
     private boolean showPoints;
@@ -11,6 +12,16 @@ public class ChartChoices
     {
     }
 
+    /**
+     * Should large series be reduced to a few points per pixel?
+     *
+     * @return <tt>true</tt> if series should be decimated
+     */
+    public boolean decimate()
+    {
+        return decimate;
+    }
+
     public void dump()
     {
         System.out.println(toString());
@@ -31,6 +42,11 @@ public class ChartChoices
         return hideLegends;
     }
 
+    public void setDecimate(boolean val)
+    {
+        decimate = val;
+    }
+
     public void setFilterBoring(boolean val)
     {
         filterBoring = val;
@@ -60,6 +76,7 @@ public class ChartChoices
     public String toString()
     {
         StringBuilder buf = new StringBuilder("ChartChoices[");
+        buf.append(decimate ? "" : "!").append("decimate ");
         buf.append(filterBoring ? "" : "!").append("filterBoring ");
         buf.append(hideLegends ? "" : "!").append("hideLegends ");
         buf.append(showPoints ? "" : "!").append("showPoints ");
@@ -7,9 +7,13 @@ import java.awt.GridLayout;
 import java.awt.Shape;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JPanel;
 
@@ -28,40 +32,152 @@ import org.jfree.chart.renderer.xy.XYItemRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.chart.urls.StandardXYURLGenerator;
 import org.jfree.chart.urls.XYURLGenerator;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
-import org.jfree.data.time.TimeSeriesDataItem;
 import org.jfree.data.xy.XYDataset;
 
+/**
+ * A statistic which will be charted
+ */
+class ChartStatistic
+{
+    private SectionKey key;
+    private String name;
+
+    /** Collection which assigned 'id' */
+    private StatData idData;
+    /** Metric ID, or <tt>-1</tt> if the statistic has not been found */
+    private int id = -1;
+
+    ChartStatistic(SectionKey key, String name)
+    {
+        this.key = key;
+        this.name = name;
+    }
+
+    /**
+     * Get this statistic's data, remembering its metric ID so later
+     * lookups do not need the section key and name
+     *
+     * @param statData statistics collection
+     *
+     * @return statistic, or <tt>null</tt> if it was not found
+     */
+    StatParent<?> find(StatData statData)
+    {
+        StatParent<?> stat = null;
+        if (idData == statData) {
+            stat = statData.getStatistics(id);
+        }
+
+        if (stat == null) {
+            id = statData.findMetric(key, name);
+            idData = statData;
+            stat = statData.getStatistics(id);
+        }
+
+        return stat;
+    }
+
+    SectionKey getKey()
+    {
+        return key;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public String toString()
+    {
+        return key + ": " + name;
+    }
+}
+
 public class ChartGenerator
 {
     private static final Logger LOG = Logger.getLogger(ChartGenerator.class);
 
+    /** Preferred size of the panel holding all the charts */
+    static final int PANEL_WIDTH = 800;
+    static final int PANEL_HEIGHT = 600;
+
     private String title;
     private ArrayList<JFreeChart> chartList = new ArrayList<JFreeChart>();
 
+    /** If non-null, used to reduce the size of large series */
+    private Decimator decimator;
+
+    private StatData statData;
+    private PlotArguments pargs;
+
+    private ChartType type;
+    private boolean filterBoring;
+    private boolean hideLegends;
+    private boolean showPoints;
+
+    /** Statistics to chart, in display order */
+    private ArrayList<ChartStatistic> statList =
+        new ArrayList<ChartStatistic>();
+
+    private volatile boolean cancelled;
+
+    /**
+     * Choose the statistics to chart.  This only looks at the user's
+     * choices; the charts are created by <tt>generate()</tt>.
+     *
+     * @param compList list of components
+     * @param statData statistics
+     * @param choices chart options
+     */
     ChartGenerator(List<ComponentData> compList, StatData statData,
                    ChartChoices choices)
     {
-        if (choices.getType() == ChartType.ALL ||
-            choices.getType() == ChartType.SELECTED ||
-            choices.getType() == ChartType.DELTA)
-        {
-            showMultiple(compList, statData, choices);
-        } else if (choices.getType() == ChartType.COMBINED ||
-                   choices.getType() == ChartType.SCALED ||
-                   choices.getType() == ChartType.LOGARITHMIC)
+        this.statData = statData;
+
+        type = choices.getType();
+        filterBoring = choices.filterBoring();
+        hideLegends = choices.hideLegends();
+        showPoints = choices.showPoints();
+
+        pargs = new PlotArguments(compList, false);
+
+        title = pargs.getSectionTitle(compList);
+
+        if (isMultiple()) {
+            chooseMultiple(compList);
+        } else if (type == ChartType.COMBINED ||
+                   type == ChartType.SCALED ||
+                   type == ChartType.LOGARITHMIC)
         {
-            showCombined(compList, statData, choices);
+            chooseCombined(compList);
         } else {
-            throw new Error("Unknown chart type#" + choices.getType());
+            throw new Error("Unknown chart type#" + type);
+        }
+
+        // one bucket per pixel of each planned chart's grid cell (if
+        // boring charts are dropped the remaining cells are a bit wider)
+        if (choices.decimate()) {
+            decimator = new Decimator(getChartWidth(getNumPlanned()));
         }
     }
 
-    private void addChart(String name, TimeSeriesCollection coll,
-                          boolean showLegend, boolean showPoints,
-                          ChartType type)
+    private void addChart(JFreeChart chart, ChartListener listener)
     {
+        chartList.add(chart);
+
+        if (listener != null) {
+            listener.chartCreated(chart);
+        }
+    }
+
+    private JFreeChart buildChart(String name, StatDataset coll,
+                                  boolean showLegend)
+    {
+        if (decimator != null) {
+            decimator.decimate(coll);
+        }
+
         JFreeChart chart = createTimeSeriesChart(name, "Time", name, coll,
                                                  showLegend, true, false,
                                                  type);
@@ -82,7 +198,119 @@ public class ChartGenerator
             }
         }
 
-        chartList.add(chart);
+        return chart;
+    }
+
+    /**
+     * Stop generating charts as soon as possible
+     */
+    void cancel()
+    {
+        cancelled = true;
+    }
+
+    private void chooseCombined(List<ComponentData> compList)
+    {
+        for (ComponentData cd : compList) {
+            for (ComponentInstance ci : cd) {
+                for (InstanceBean bean : ci) {
+                    if (!bean.hasGraphs()) {
+                        continue;
+                    }
+
+                    for (String name : bean.graphIterable()) {
+                        statList.add(new ChartStatistic(bean.getSectionKey(),
+                                                        name));
+                    }
+                }
+            }
+        }
+
+        switch (type) {
+        case SCALED:
+            title = "Scaled " + title;
+            break;
+        case LOGARITHMIC:
+            title = "Log " + title;
+            break;
+        default:
+            title = "Combined " + title;
+            break;
+        }
+    }
+
+    private void chooseMultiple(List<ComponentData> compList)
+    {
+        final boolean showAll = (type == ChartType.ALL);
+
+        for (ComponentData cd : compList) {
+            for (ComponentInstance ci : cd) {
+                for (InstanceBean bean : ci) {
+                    if (!bean.hasGraphs()) {
+                        continue;
+                    }
+
+                    Iterable<String> iter;
+                    if (showAll || bean.isIncludeAll()) {
+                        iter = bean;
+                    } else {
+                        iter = bean.graphIterable();
+                    }
+                    for (String name : iter) {
+                        statList.add(new ChartStatistic(bean.getSectionKey(),
+                                                        name));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a single chart
+     *
+     * @param cs statistic to chart
+     * @param delta if <tt>true</tt>, chart the changes between values
+     *
+     * @return new chart, or <tt>null</tt> if the statistic is not charted
+     */
+    private JFreeChart createChart(ChartStatistic cs, boolean delta)
+    {
+        if (cancelled) {
+            return null;
+        }
+
+        StatParent<?> stat;
+        StatDataset coll;
+
+        // the statistics may still be loading
+        synchronized (statData) {
+            stat = cs.find(statData);
+            if (stat == null) {
+                // name was only seen in an unparsed section
+                return null;
+            }
+
+            try {
+                if (!delta) {
+                    coll = stat.plot(cs.getKey(), cs.getName(), pargs);
+                } else {
+                    coll = stat.plotDelta(cs.getKey(), cs.getName(), pargs);
+                }
+            } catch (StatPlotException spe) {
+                LOG.error("Cannot plot " + cs, spe);
+                return null;
+            }
+        }
+
+        boolean showLegend = stat.showLegend() && !hideLegends;
+
+        if (filterBoring && !isInteresting(coll)) {
+            return null;
+        }
+
+        String chartName = pargs.getSeriesName(cs.getKey(), cs.getName());
+
+        return buildChart(chartName, coll, showLegend);
     }
 
     private JFreeChart createTimeSeriesChart(String title, String timeAxisLabel,
@@ -130,11 +358,30 @@ public class ChartGenerator
         renderer.setURLGenerator(urlGenerator);
         plot.setRenderer(renderer);
 
-
         return new JFreeChart(title, JFreeChart.DEFAULT_TITLE_FONT, plot,
                               legend);
     }
 
+    /**
+     * Get the width of each chart when the charts are arranged in a
+     * roughly square grid filling the preferred panel size.
+     *
+     * @param numCharts number of charts
+     *
+     * @return chart width in pixels
+     */
+    private static int getChartWidth(int numCharts)
+    {
+        if (numCharts <= 1) {
+            return PANEL_WIDTH;
+        }
+
+        int numRows = (int) Math.sqrt((double) numCharts);
+        int numCols = (numCharts + numRows - 1) / numRows;
+
+        return Math.max(1, PANEL_WIDTH / numCols);
+    }
+
     public BufferedImage getImage()
     {
         final int numCharts = chartList.size();
@@ -175,42 +422,38 @@ public class ChartGenerator
         return title;
     }
 
-    private boolean hasMultipleSections(List<ComponentData> compList,
-                                        ChartChoices choices)
+    /**
+     * Create all charts.  This may take a long time, so it should not be
+     * called from the Swing event thread.
+     *
+     * @param listener if non-null, notified as each chart is created
+     */
+    void generate(ChartListener listener)
     {
-        boolean rtnVal;
-
-        if (compList.size() <= 1) {
-            rtnVal = false;
-        } else if (choices.getType() == ChartType.COMBINED ||
-            choices.getType() == ChartType.SCALED)
-        {
-            rtnVal = false;
-        } else if (choices.getType() == ChartType.ALL) {
-            rtnVal = true;
+        if (isMultiple()) {
+            showMultiple(listener);
         } else {
-            rtnVal = false;
-
-            boolean foundOne = false;
-
-            for (ComponentData cd : compList) {
-                for (ComponentInstance ci : cd) {
-                    for (InstanceBean bean : ci) {
-                        if (bean.hasGraphs()) {
-                            if (foundOne) {
-                                // if we've found two sections with graphs,
-                                // we're done
-                                return true;
-                            }
+            showCombined(listener);
+        }
+    }
 
-                            foundOne = true;
-                        }
-                    }
-                }
-            }
+    /**
+     * Get the maximum number of charts which will be created
+     *
+     * @return number of charts
+     */
+    int getNumPlanned()
+    {
+        if (isMultiple()) {
+            return statList.size();
         }
 
-        return rtnVal;
+        return 1;
+    }
+
+    boolean isCancelled()
+    {
+        return cancelled;
     }
 
     public boolean isEmpty()
@@ -218,22 +461,30 @@ public class ChartGenerator
         return (chartList.size() == 0);
     }
 
-    private static boolean isInteresting(TimeSeriesCollection coll)
+    /**
+     * Is each statistic drawn in a separate chart?
+     *
+     * @return <tt>true</tt> for separate charts
+     */
+    private boolean isMultiple()
+    {
+        return type == ChartType.ALL || type == ChartType.SELECTED ||
+            type == ChartType.DELTA;
+    }
+
+    private static boolean isInteresting(StatDataset coll)
     {
         if (coll == null) {
             return false;
         }
 
-        for (Object obj : coll.getSeries()) {
-            TimeSeries series = (TimeSeries) obj;
+        for (int s = 0; s < coll.getSeriesCount(); s++) {
+            final int numItems = coll.getItemCount(s);
 
             double prevVal = Double.NaN;
 
-            for (Object o2 : series.getItems()) {
-                TimeSeriesDataItem item =
-                    (TimeSeriesDataItem) o2;
-
-                double curVal = item.getValue().doubleValue();
+            for (int i = 0; i < numItems; i++) {
+                double curVal = coll.getYValue(s, i);
 
                 if (Double.isNaN(prevVal)) {
                     prevVal = curVal;
@@ -270,168 +521,107 @@ public class ChartGenerator
             panel.add(new ChartPanel(chart));
         }
 
-        panel.setPreferredSize(new Dimension(800, 600));
+        panel.setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
         return panel;
     }
 
-    private void showCombined(List<ComponentData> compList, StatData statData,
-                              ChartChoices choices)
+    private void showCombined(ChartListener listener)
     {
-        final boolean multiSection = hasMultipleSections(compList, choices);
-
-        PlotArguments pargs = new PlotArguments(compList, false);
-
-        title = pargs.getSectionTitle(compList);
+        StatDataset coll = new StatDataset();
 
-        TimeSeriesCollection coll = new TimeSeriesCollection();
-        coll.setDomainIsPointsInTime(true);
-
-        for (ComponentData cd : compList) {
-            for (ComponentInstance ci : cd) {
-                for (InstanceBean bean : ci) {
-                    if (!bean.hasGraphs()) {
-                        continue;
-                    }
-
-                    int numCharted = 0;
-                    String chartName = null;
-
-                    for (String name : bean.graphIterable()) {
-                        StatParent stat =
-                            statData.getStatistics(bean.getSectionKey(), name);
-
-                        if (!multiSection) {
-                            chartName = name;
-                        }
+        for (ChartStatistic cs : statList) {
+            if (cancelled) {
+                return;
+            }
 
-                        try {
-                            if (choices.getType() == ChartType.SCALED) {
-                                stat.plotScaled(coll, bean.getSectionKey(),
-                                                name, pargs);
-                            } else {
-                                stat.plot(coll, bean.getSectionKey(), name,
-                                          pargs);
-                            }
-                        } catch (StatPlotException spe) {
-                            LOG.error("Cannot plot " + bean.getSectionKey() +
-                                      ": " + name, spe);
-                            continue;
-                        }
-                        numCharted++;
-                    }
+            synchronized (statData) {
+                StatParent<?> stat = cs.find(statData);
+                if (stat == null) {
+                    // name was only seen in an unparsed section
+                    continue;
+                }
 
-                    if (title == null) {
-                        if (!multiSection) {
-                            title = chartName;
-                        } else {
-                            title = bean.getSectionKey().toString();
-                        }
+                try {
+                    if (type == ChartType.SCALED) {
+                        stat.plotScaled(coll, cs.getKey(), cs.getName(),
+                                        pargs);
+                    } else {
+                        stat.plot(coll, cs.getKey(), cs.getName(), pargs);
                     }
+                } catch (StatPlotException spe) {
+                    LOG.error("Cannot plot " + cs, spe);
+                    continue;
                 }
             }
         }
 
         String chartName;
-        switch (choices.getType()) {
+        switch (type) {
         case SCALED:
             chartName = "Scaled";
-            title = "Scaled " + title;
             break;
         case LOGARITHMIC:
             chartName = "Logarithmic";
-            title = "Log " + title;
             break;
         default:
             chartName = "Combined";
-            title = "Combined " + title;
             break;
         }
 
-        final boolean showLegend = !choices.hideLegends();
-
-        addChart(chartName, coll, showLegend, choices.showPoints(),
-                 choices.getType());
+        addChart(buildChart(chartName, coll, !hideLegends), listener);
     }
 
-    private void showMultiple(List<ComponentData> compList, StatData statData,
-                              ChartChoices choices)
+    /**
+     * Create a chart for each statistic.  Charts are created in parallel
+     * but are added (and passed to the listener) in display order.
+     *
+     * @param listener if non-null, notified as each chart is created
+     */
+    private void showMultiple(ChartListener listener)
     {
-        final boolean multiSection = hasMultipleSections(compList, choices);
-
-        final boolean showAll = (choices.getType() == ChartType.ALL);
-
-        final boolean delta = (choices.getType() == ChartType.DELTA);
-
-        PlotArguments pargs = new PlotArguments(compList, false);
-
-        title = pargs.getSectionTitle(compList);
-
-        for (ComponentData cd : compList) {
-            for (ComponentInstance ci : cd) {
-                for (InstanceBean bean : ci) {
-                    if (!bean.hasGraphs()) {
-                        continue;
-                    }
-
-                    int numCharted = 0;
-                    String chartName = null;
-
-                    Iterable<String> iter;
-                    if (showAll || bean.isIncludeAll()) {
-                        iter = bean;
-                    } else {
-                        iter = bean.graphIterable();
-                    }
-                    for (String name : iter) {
-                        StatParent stat =
-                            statData.getStatistics(bean.getSectionKey(), name);
-
-                        TimeSeriesCollection coll;
-                        try {
-                            if (!delta) {
-                                coll = stat.plot(bean.getSectionKey(), name,
-                                                 pargs);
-                            } else {
-                                coll = stat.plotDelta(bean.getSectionKey(),
-                                                      name, pargs);
-                            }
-                        } catch (StatPlotException spe) {
-                            LOG.error("Cannot plot " + bean.getSectionKey() +
-                                      ": " + name, spe);
-                            continue;
-                        }
-
-                        boolean showLegend =
-                            stat.showLegend() && !choices.hideLegends();
-
-                        if (choices.filterBoring() && !isInteresting(coll)) {
-                            continue;
-                        }
-
-                        String deltaStr;
-                        if (!delta) {
-                            deltaStr = "";
-                        } else {
-                            deltaStr = "Delta ";
+        final boolean delta = (type == ChartType.DELTA);
+
+        final int numThreads =
+            Math.min(Runtime.getRuntime().availableProcessors(),
+                     Math.max(1, statList.size()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            ArrayList<Future<JFreeChart>> futures =
+                new ArrayList<Future<JFreeChart>>();
+            for (final ChartStatistic cs : statList) {
+                futures.add(pool.submit(new Callable<JFreeChart>() {
+                        public JFreeChart call()
+                        {
+                            return createChart(cs, delta);
                         }
+                    }));
+            }
 
-                        chartName = pargs.getSeriesName(bean.getSectionKey(),
-                                                        name);
+            for (int i = 0; i < futures.size(); i++) {
+                if (cancelled) {
+                    break;
+                }
 
-                        addChart(chartName, coll, showLegend,
-                                 choices.showPoints(), choices.getType());
-                        numCharted++;
-                    }
+                JFreeChart chart;
+                try {
+                    chart = futures.get(i).get();
+                } catch (ExecutionException exe) {
+                    LOG.error("Cannot plot " + statList.get(i),
+                              exe.getCause());
+                    continue;
+                } catch (InterruptedException ie) {
+                    LOG.error("Interrupted while creating charts");
+                    Thread.currentThread().interrupt();
+                    break;
+                }
 
-                    if (title == null) {
-                        if (numCharted == 1) {
-                            title = chartName;
-                        } else {
-                            title = bean.getSectionKey().toString();
-                        }
-                    }
+                if (chart != null) {
+                    addChart(chart, listener);
                 }
             }
+        } finally {
+            pool.shutdownNow();
         }
     }
 }
@@ -0,0 +1,16 @@
+package icecube.daq.tools;
+
+import org.jfree.chart.JFreeChart;
+
+/**
+ * Receive charts as they are created
+ */
+interface ChartListener
+{
+    /**
+     * Called by the generating thread for each chart, in display order
+     *
+     * @param chart new chart
+     */
+    void chartCreated(JFreeChart chart);
+}
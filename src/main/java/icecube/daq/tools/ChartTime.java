@@ -4,17 +4,17 @@ import java.util.Date;
 
 import org.jfree.data.time.Second;
 
-class ChartTime
+public class ChartTime
 {
     private long time;
     private Second second;
 
-    ChartTime(long time)
+    public ChartTime(long time)
     {
         this.time = time;
     }
 
-    Second getSecond()
+    public Second getSecond()
     {
         if (second == null) {
             second = new Second(new Date(time));
@@ -23,7 +23,7 @@ class ChartTime
         return second;
     }
 
-    long getTime()
+    public long getTime()
     {
         return time;
     }
@@ -0,0 +1,202 @@
+package icecube.daq.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+
+/**
+ * Series which reads values directly from a statistic's columns.
+ * Points are plotted at one-second resolution; if several samples fall
+ * in the same second, only the first one is used.  Samples added to the
+ * statistic later are ignored until <tt>update()</tt> is called.
+ *
+ * Charts are painted without the statistics lock, so the series only
+ * reads a view of the columns taken when it was created or updated
+ * (while the caller held the lock).
+ */
+class ColumnSeries
+    extends StatSeries
+{
+    enum Mode { PLAIN, DELTA, SCALED };
+
+    /** Statistic (only used to fetch new views) */
+    private SampleColumns source;
+    /** Samples plotted by this series */
+    private SampleColumns columns;
+    private Mode mode;
+    private int count;
+
+    private double offset;
+    private double divisor = 1.0;
+
+    /** <tt>true</tt> after 'index' and 'numItems' have been set */
+    private boolean prepared;
+    /** Sample index for each item (<tt>null</tt> if unneeded) */
+    private int[] index;
+    private int numItems;
+
+    /**
+     * Create a series
+     *
+     * @param key series key
+     * @param columns statistic
+     * @param mode type of series
+     */
+    ColumnSeries(Comparable<?> key, SampleColumns columns, Mode mode)
+    {
+        super(key);
+
+        this.source = columns;
+        this.mode = mode;
+
+        // later samples are ignored
+        this.columns = columns.getView();
+        count = this.columns.size();
+    }
+
+    /**
+     * Create a scaled series
+     *
+     * @param key series key
+     * @param columns statistic
+     * @param offset value subtracted from each sample
+     * @param divisor value by which each offset sample is divided
+     */
+    ColumnSeries(Comparable<?> key, SampleColumns columns, double offset,
+                 double divisor)
+    {
+        this(key, columns, Mode.SCALED);
+
+        this.offset = offset;
+        this.divisor = divisor;
+    }
+
+    /**
+     * Build the list of plotted samples, discarding all but the first
+     * sample in each second and sorting samples into time order
+     */
+    private void buildIndex()
+    {
+        final int first = (mode == Mode.DELTA ? 1 : 0);
+
+        HashSet<Long> seen = new HashSet<Long>();
+        ArrayList<Integer> items = new ArrayList<Integer>();
+        for (int i = first; i < count; i++) {
+            if (seen.add(getSecond(i))) {
+                items.add(i);
+            }
+        }
+
+        Integer[] sorted = items.toArray(new Integer[items.size()]);
+        Arrays.sort(sorted, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b)
+                {
+                    return Long.compare(getSecond(a), getSecond(b));
+                }
+            });
+
+        index = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            index[i] = sorted[i];
+        }
+
+        numItems = index.length;
+    }
+
+    @Override
+    int getItemCount()
+    {
+        prepare();
+        return numItems;
+    }
+
+    private long getSecond(int idx)
+    {
+        return Math.floorDiv(columns.getTime(idx), 1000L);
+    }
+
+    @Override
+    long getX(int item)
+    {
+        prepare();
+
+        final int idx;
+        if (index != null) {
+            idx = index[item];
+        } else if (mode == Mode.DELTA) {
+            idx = item + 1;
+        } else {
+            idx = item;
+        }
+
+        return getSecond(idx) * 1000L;
+    }
+
+    @Override
+    double getY(int item)
+    {
+        prepare();
+
+        if (mode == Mode.DELTA) {
+            // deltas are always from the sample stored just before, even
+            // if it was dropped because it fell in the same second
+            final int idx = (index == null ? item + 1 : index[item]);
+            return columns.getPlotDelta(idx, idx - 1);
+        }
+
+        final int idx = (index == null ? item : index[item]);
+        if (mode == Mode.SCALED) {
+            return (columns.getPlotValue(idx) - offset) / divisor;
+        }
+
+        return columns.getPlotValue(idx);
+    }
+
+    /**
+     * Check whether the samples are already in order with no more than
+     * one sample per second; if not, build an index of plotted samples
+     */
+    private void prepare()
+    {
+        if (prepared) {
+            return;
+        }
+
+        final int first = (mode == Mode.DELTA ? 1 : 0);
+
+        boolean ordered = true;
+        long prevSec = Long.MIN_VALUE;
+        for (int i = first; i < count; i++) {
+            final long sec = getSecond(i);
+            if (sec <= prevSec) {
+                ordered = false;
+                break;
+            }
+            prevSec = sec;
+        }
+
+        if (ordered) {
+            index = null;
+            numItems = Math.max(0, count - first);
+        } else {
+            buildIndex();
+        }
+
+        prepared = true;
+    }
+
+    @Override
+    boolean update()
+    {
+        if (source.size() == count) {
+            return false;
+        }
+
+        columns = source.getView();
+        count = columns.size();
+        prepared = false;
+        prepare();
+        return true;
+    }
+}
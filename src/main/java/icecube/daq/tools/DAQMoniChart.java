@@ -4,16 +4,20 @@ import icecube.daq.common.ColoredAppender;
 
 import java.awt.BorderLayout;
 import java.awt.Component;
+import java.awt.Font;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -23,14 +27,22 @@ import javax.swing.ButtonGroup;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JRadioButton;
+import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import org.jfree.chart.JFreeChart;
 import org.jfree.ui.RefineryUtilities;
 
 class InstanceBean
@@ -63,6 +75,21 @@ class InstanceBean
         graphNames.add(name);
     }
 
+    /**
+     * Copy the user's choices from another bean
+     *
+     * @param other bean whose choices are copied
+     */
+    void copyChoices(InstanceBean other)
+    {
+        includeAll = other.includeAll;
+        if (other.graphNames == null) {
+            graphNames = null;
+        } else {
+            graphNames = new ArrayList<String>(other.graphNames);
+        }
+    }
+
     String getName()
     {
         return name;
@@ -97,6 +124,18 @@ class InstanceBean
         return includeAll || (graphNames != null && graphNames.contains(name));
     }
 
+    /**
+     * Was this statistic chosen individually?
+     *
+     * @param name statistic name
+     *
+     * @return <tt>true</tt> if the statistic was chosen individually
+     */
+    boolean isGraphed(String name)
+    {
+        return graphNames != null && graphNames.contains(name);
+    }
+
     public Iterator<String> iterator()
     {
         return itemNames.iterator();
@@ -122,6 +161,11 @@ class InstanceBean
         includeAll = val;
     }
 
+    boolean sameNames(InstanceBean other)
+    {
+        return key.equals(other.key) && itemNames.equals(other.itemNames);
+    }
+
     int size()
     {
         return itemNames.size();
@@ -194,6 +238,51 @@ class ComponentData
         this.list = new ArrayList<ComponentInstance>();
     }
 
+    /**
+     * Does this component include the specified bean?
+     *
+     * @param bean bean
+     *
+     * @return <tt>true</tt> if the bean belongs to this component
+     */
+    boolean contains(InstanceBean bean)
+    {
+        for (ComponentInstance inst : list) {
+            for (InstanceBean ib : inst) {
+                if (ib == bean) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Copy the user's choices from matching beans in another version of
+     * this component
+     *
+     * @param other older version of this component
+     */
+    void copyChoices(ComponentData other)
+    {
+        for (ComponentInstance inst : list) {
+            ComponentInstance otherInst = other.get(inst.getNumber());
+            if (otherInst == null) {
+                continue;
+            }
+
+            for (InstanceBean bean : inst) {
+                InstanceBean otherBean = otherInst.get(bean.getName());
+                if (otherBean != null &&
+                    otherBean.getSectionKey().equals(bean.getSectionKey()))
+                {
+                    bean.copyChoices(otherBean);
+                }
+            }
+        }
+    }
+
     ComponentInstance create(int instNum)
     {
         ComponentInstance inst = new ComponentInstance(instNum);
@@ -269,6 +358,42 @@ class ComponentData
         return name;
     }
 
+    /**
+     * Does this component have the same instances, beans and statistic
+     * names (in the same order) as another component?
+     *
+     * @param other component to compare
+     *
+     * @return <tt>true</tt> if both components would be displayed
+     *         identically
+     */
+    boolean hasSameLayout(ComponentData other)
+    {
+        if (!name.equals(other.name) || list.size() != other.list.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getNumber() != other.list.get(i).getNumber()) {
+                return false;
+            }
+
+            Iterator<InstanceBean> iter = list.get(i).iterator();
+            Iterator<InstanceBean> otherIter = other.list.get(i).iterator();
+            while (iter.hasNext() && otherIter.hasNext()) {
+                if (!iter.next().sameNames(otherIter.next())) {
+                    return false;
+                }
+            }
+
+            if (iter.hasNext() || otherIter.hasNext()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     boolean isSingleInstance()
     {
         return list.size() == 1;
@@ -308,6 +433,21 @@ class TypeButtons
         }
     }
 
+    /**
+     * Forget all sections belonging to a component
+     *
+     * @param compData component
+     */
+    void removeSections(ComponentData compData)
+    {
+        Iterator<IncAllCheckBox> iter = sections.iterator();
+        while (iter.hasNext()) {
+            if (compData.contains(iter.next().getBean())) {
+                iter.remove();
+            }
+        }
+    }
+
     boolean disableShowAll()
     {
         if (showAllBtn.getSelectedObjects() == null) {
@@ -338,10 +478,11 @@ abstract class SectionChoicesCheckBox
     private InstanceBean instBean;
     private TypeButtons typeButtons;
 
-    SectionChoicesCheckBox(String name, ChartChoices chartChoices,
-                           InstanceBean instBean, TypeButtons typeButtons)
+    SectionChoicesCheckBox(String name, boolean selected,
+                           ChartChoices chartChoices, InstanceBean instBean,
+                           TypeButtons typeButtons)
     {
-        super(name);
+        super(name, selected);
 
         addItemListener(this);
 
@@ -375,7 +516,8 @@ class IncAllCheckBox
     IncAllCheckBox(String name, ChartChoices chartChoices,
                    InstanceBean instBean, TypeButtons typeButtons)
     {
-        super(name, chartChoices, instBean, typeButtons);
+        super(name, instBean.isIncludeAll(), chartChoices, instBean,
+              typeButtons);
     }
 
     void addIndividual(JCheckBox ckbox)
@@ -422,7 +564,8 @@ class NameCheckBox
     NameCheckBox(String name, ChartChoices chartChoices, InstanceBean instBean,
                  TypeButtons typeButtons, JCheckBox incAllBox)
     {
-        super(name, chartChoices, instBean, typeButtons);
+        super(name, instBean.isGraphed(name), chartChoices, instBean,
+              typeButtons);
 
         this.incAllBox = incAllBox;
     }
@@ -487,20 +630,43 @@ public class DAQMoniChart
 
     private static final String TEMPLATE_TITLE = "All";
 
+    /** Milliseconds between progress updates */
+    private static final int PROGRESS_INTERVAL = 250;
+    /** Milliseconds between checks for new data in followed files */
+    private static final int FOLLOW_INTERVAL = 5000;
+
     private ChartChoices chartChoices = new ChartChoices();
 
     private TypeButtons typeButtons = new TypeButtons();
     private JTabbedPane tabbedPane = new JTabbedPane();
 
-    public DAQMoniChart(ArrayList<ComponentData> compList, StatData statData)
+    private StatData statData;
+    private ArrayList<ComponentData> compList =
+        new ArrayList<ComponentData>();
+
+    /** Chart windows which are still open */
+    private ArrayList<GraphFrame> graphFrames = new ArrayList<GraphFrame>();
+
+    private JPanel progressPanel;
+    private JProgressBar progressBar;
+    private JLabel progressLabel;
+
+    /**
+     * Display all components found in <tt>statData</tt>
+     *
+     * @param statData statistics
+     */
+    public DAQMoniChart(StatData statData)
     {
+        this.statData = statData;
+
         setTitle("Monitoring Charts");
         setLayout(new BorderLayout());
 
         add(buildBottom(), BorderLayout.CENTER);
-        add(buildCommands(compList, statData), BorderLayout.PAGE_END);
+        add(buildCommands(), BorderLayout.PAGE_END);
 
-        loadTabbedPane(compList);
+        refreshTabs();
 
         resize(640, 480);
         show();
@@ -670,6 +836,25 @@ public class DAQMoniChart
             });
         panel.add(showPointsCkbox);
 
+        JCheckBox decimateCkbox = new JCheckBox("Decimate");
+        decimateCkbox.setToolTipText("Only draw the highest and lowest" +
+                                     " points for each pixel");
+        decimateCkbox.setSelected(chartChoices.decimate());
+        decimateCkbox.addItemListener(new ItemListener() {
+                public void itemStateChanged(ItemEvent evt)
+                {
+                    if (evt.getStateChange() == ItemEvent.SELECTED) {
+                        chartChoices.setDecimate(true);
+                    } else if (evt.getStateChange() == ItemEvent.DESELECTED) {
+                        chartChoices.setDecimate(false);
+                    } else {
+                        LOG.error("Unknown decimate event #" +
+                                  evt.getStateChange() + ": " + evt);
+                    }
+                }
+            });
+        panel.add(decimateCkbox);
+
         JCheckBox hideLegendsCkbox = new JCheckBox("Hide legends");
         hideLegendsCkbox.addItemListener(new ItemListener() {
                 public void itemStateChanged(ItemEvent evt)
@@ -705,8 +890,7 @@ public class DAQMoniChart
         return panel;
     }
 
-    private Component buildCommands(final List<ComponentData> compList,
-                                    final StatData statData)
+    private Component buildCommands()
     {
         JPanel panel = new JPanel();
         panel.setLayout(new FlowLayout());
@@ -715,25 +899,81 @@ public class DAQMoniChart
         drawGraphs.addActionListener(new ActionListener() {
                 public void actionPerformed(ActionEvent evt)
                 {
-                    ChartGenerator chartGen =
-                        new ChartGenerator(compList, statData, chartChoices);
+                    drawGraphs();
+                }
+            });
+        panel.add(drawGraphs);
+
+        return panel;
+    }
+
+    /**
+     * Generate the chosen charts in the background, adding each chart to
+     * a new window as soon as it is created
+     */
+    private void drawGraphs()
+    {
+        final ChartGenerator chartGen =
+            new ChartGenerator(compList, statData, chartChoices);
+
+        // show the window right away so the user can stop a slow request
+        final GraphFrame frame =
+            new GraphFrame(chartGen.getTitle(), chartGen);
+        frame.pack();
+        RefineryUtilities.centerFrameOnScreen(frame);
+        frame.setVisible(true);
+
+        graphFrames.add(frame);
+        frame.addWindowListener(new WindowAdapter() {
+                public void windowClosed(WindowEvent evt)
+                {
+                    graphFrames.remove(frame);
+                }
+            });
+
+        SwingWorker<Void, JFreeChart> worker =
+            new SwingWorker<Void, JFreeChart>() {
+                @Override
+                protected Void doInBackground()
+                {
+                    chartGen.generate(new ChartListener() {
+                            public void chartCreated(JFreeChart chart)
+                            {
+                                publish(chart);
+                            }
+                        });
+                    return null;
+                }
+
+                @Override
+                protected void process(List<JFreeChart> charts)
+                {
+                    for (JFreeChart chart : charts) {
+                        frame.addChart(chart);
+                    }
+                }
+
+                @Override
+                protected void done()
+                {
+                    try {
+                        get();
+                    } catch (Exception ex) {
+                        LOG.error("Couldn't generate charts", ex);
+                    }
 
                     if (chartGen.isEmpty()) {
-                        LOG.error("No data found!");
+                        if (!chartGen.isCancelled()) {
+                            LOG.error("No data found!");
+                        }
+                        frame.dispose();
                     } else {
-                        String title = chartGen.getTitle();
-                        GraphFrame frame = new GraphFrame(title);
-                        frame.setContentPane(chartGen.layout());
-
-                        frame.pack();
-                        RefineryUtilities.centerFrameOnScreen(frame);
-                        frame.setVisible(true);
+                        frame.finished();
                     }
                 }
-            });
-        panel.add(drawGraphs);
+            };
 
-        return panel;
+        worker.execute();
     }
 
     private void fillTemplatePanel(JTabbedPane topPane, JTabbedPane pane)
@@ -809,49 +1049,367 @@ public class DAQMoniChart
         }
     }
 
-    private JTabbedPane getPane(JTabbedPane tabbedPane, String name)
+    /**
+     * Add tabs for all instances and beans in a component
+     *
+     * @param compPane component pane
+     * @param compData component
+     */
+    private void fillComponentPane(JTabbedPane compPane,
+                                   ComponentData compData)
     {
-        final int paneIdx = tabbedPane.indexOfTab(name);
-        if (paneIdx >= 0) {
-            return (JTabbedPane) tabbedPane.getComponentAt(paneIdx);
+        if (compData.isSingleInstance()) {
+            ComponentInstance compInst = compData.getFirst();
+
+            addBeanPanel(compPane, compInst);
+        } else {
+            JTabbedPane allPane = new JTabbedPane();
+            compPane.addTab(TEMPLATE_TITLE, allPane);
+
+            for (ComponentInstance compInst : compData) {
+                JTabbedPane instPane = new JTabbedPane();
+                compPane.addTab(Integer.toString(compInst.getNumber()),
+                                  instPane);
+
+                addBeanPanel(instPane, compInst);
+            }
+
+            fillTemplatePanel(compPane, allPane);
+        }
+    }
+
+    /**
+     * Load files in the background, adding components to the window as
+     * each file is loaded
+     *
+     * @param files list of files and/or directories
+     * @param opts load options
+     */
+    public void load(final List<File> files, final LoadOptions opts)
+    {
+        // each file is reorganized before it's merged into statData
+        synchronized (statData) {
+            statData.transform();
         }
 
-        JTabbedPane pane = new JTabbedPane();
-        tabbedPane.addTab(name, pane);
+        final LoadMonitor monitor = new LoadMonitor();
 
-        return pane;
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+
+        progressLabel = new JLabel(" ");
+
+        final JButton cancelBtn = new JButton("Cancel");
+        cancelBtn.setToolTipText("Stop loading files");
+        cancelBtn.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent evt)
+                {
+                    monitor.cancel();
+                    cancelBtn.setEnabled(false);
+                }
+            });
+
+        progressPanel = new JPanel();
+        progressPanel.setLayout(new BorderLayout());
+        progressPanel.add(progressBar, BorderLayout.CENTER);
+        progressPanel.add(cancelBtn, BorderLayout.LINE_END);
+        progressPanel.add(progressLabel, BorderLayout.PAGE_END);
+
+        add(progressPanel, BorderLayout.PAGE_START);
+        validate();
+
+        final Timer timer = new Timer(PROGRESS_INTERVAL, null);
+
+        final SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground()
+                {
+                    statData.loadFiles(files, opts, monitor);
+                    return null;
+                }
+
+                @Override
+                protected void done()
+                {
+                    timer.stop();
+                    cancelBtn.setEnabled(false);
+
+                    try {
+                        get();
+                    } catch (Exception ex) {
+                        LOG.error("Couldn't load files", ex);
+                    }
+
+                    refreshTabs();
+                    showProgress(monitor, true);
+                    showErrors(cancelBtn);
+
+                    if (!monitor.isCancelled() && statData.isFollowing()) {
+                        follow();
+                    }
+                }
+            };
+
+        timer.addActionListener(new ActionListener() {
+                private int numShown;
+
+                public void actionPerformed(ActionEvent evt)
+                {
+                    showProgress(monitor, false);
+
+                    if (monitor.getNumMerged() != numShown) {
+                        numShown = monitor.getNumMerged();
+                        refreshTabs();
+                    }
+                }
+            });
+
+        timer.start();
+        worker.execute();
     }
 
-    private void loadTabbedPane(ArrayList<ComponentData> compList)
+    /**
+     * Periodically read new data from files which are still being
+     * written, then update the component tabs and all open charts
+     */
+    private void follow()
     {
-        while (tabbedPane.getTabCount() > 0) {
-            tabbedPane.removeTabAt(0);
+        final Timer timer = new Timer(FOLLOW_INTERVAL, null);
+        timer.addActionListener(new ActionListener() {
+                private boolean reading;
+
+                public void actionPerformed(ActionEvent evt)
+                {
+                    if (reading) {
+                        return;
+                    }
+
+                    reading = true;
+
+                    SwingWorker<Boolean, Void> worker =
+                        new SwingWorker<Boolean, Void>() {
+                            @Override
+                            protected Boolean doInBackground()
+                            {
+                                return statData.readAppended();
+                            }
+
+                            @Override
+                            protected void done()
+                            {
+                                reading = false;
+
+                                boolean added;
+                                try {
+                                    added = get();
+                                } catch (Exception ex) {
+                                    LOG.error("Couldn't read new data", ex);
+                                    return;
+                                }
+
+                                if (added) {
+                                    showNewData();
+                                }
+                            }
+                        };
+                    worker.execute();
+                }
+            });
+
+        progressLabel.setText("Watching for new data");
+        timer.start();
+    }
+
+    /**
+     * Rebuild the component tabs from the current statistics.  Tabs for
+     * components which have not changed are left alone, and choices made
+     * in the tabs of changed components are preserved.
+     */
+    private void refreshTabs()
+    {
+        ArrayList<ComponentData> newList;
+        synchronized (statData) {
+            newList = ComponentData.extract(statData);
         }
 
+        HashMap<String, ComponentData> oldMap =
+            new HashMap<String, ComponentData>();
         for (ComponentData compData : compList) {
-            JTabbedPane compPane = getPane(tabbedPane, compData.getName());
+            oldMap.put(compData.getName(), compData);
+        }
 
-            if (compData.isSingleInstance()) {
-                ComponentInstance compInst = compData.getFirst();
+        for (int i = 0; i < newList.size(); i++) {
+            ComponentData compData = newList.get(i);
+            ComponentData oldData = oldMap.get(compData.getName());
 
-                addBeanPanel(compPane, compInst);
-            } else {
-                JTabbedPane allPane = new JTabbedPane();
-                compPane.addTab(TEMPLATE_TITLE, allPane);
+            // tabs before 'i' have already been placed
+            final int tabIdx = tabbedPane.indexOfTab(compData.getName());
+            if (oldData != null && tabIdx >= 0 &&
+                oldData.hasSameLayout(compData))
+            {
+                newList.set(i, oldData);
+                if (tabIdx != i) {
+                    Component comp = tabbedPane.getComponentAt(tabIdx);
+                    tabbedPane.removeTabAt(tabIdx);
+                    tabbedPane.insertTab(compData.getName(), null, comp,
+                                         null, i);
+                }
+                continue;
+            }
+
+            if (oldData != null) {
+                compData.copyChoices(oldData);
+                typeButtons.removeSections(oldData);
+            }
+
+            if (tabIdx >= 0) {
+                tabbedPane.removeTabAt(tabIdx);
+            }
 
-                for (ComponentInstance compInst : compData) {
-                    JTabbedPane instPane = new JTabbedPane();
-                    compPane.addTab(Integer.toString(compInst.getNumber()),
-                                      instPane);
+            JTabbedPane compPane = new JTabbedPane();
+            fillComponentPane(compPane, compData);
+            tabbedPane.insertTab(compData.getName(), null, compPane, null, i);
+        }
+
+        while (tabbedPane.getTabCount() > newList.size()) {
+            tabbedPane.removeTabAt(tabbedPane.getTabCount() - 1);
+        }
 
-                    addBeanPanel(instPane, compInst);
+        compList.clear();
+        compList.addAll(newList);
+
+        repaint();
+    }
+
+    /**
+     * Add newly read data to the component tabs and all open charts
+     */
+    private void showNewData()
+    {
+        refreshTabs();
+
+        synchronized (statData) {
+            for (GraphFrame frame : graphFrames) {
+                frame.refresh();
+            }
+        }
+
+        progressLabel.setText(String.format("Last update at %tT",
+                                            new Date()));
+    }
+
+    /**
+     * If any lines could not be parsed, replace the cancel button with a
+     * button which shows a summary of the problems
+     *
+     * @param cancelBtn cancel button (no longer needed after a load)
+     */
+    private void showErrors(JButton cancelBtn)
+    {
+        final StringBuilder buf = new StringBuilder();
+        synchronized (statData) {
+            final ParseErrors errors = statData.getErrors();
+            if (errors.isEmpty()) {
+                return;
+            }
+
+            buf.append(errors.getSummary());
+            buf.append("\nSample lines:\n");
+            for (String sample : errors.getSamples()) {
+                buf.append("  ").append(sample).append('\n');
+            }
+
+            progressLabel.setText(progressLabel.getText() + ", " +
+                                  errors.getTotal() + " bad lines");
+        }
+
+        final JButton errorBtn = new JButton("Parse errors");
+        errorBtn.setToolTipText("Show lines which could not be parsed");
+        errorBtn.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent evt)
+                {
+                    JTextArea area = new JTextArea(buf.toString(), 20, 80);
+                    area.setEditable(false);
+                    area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+                    JOptionPane.showMessageDialog(DAQMoniChart.this,
+                                                  new JScrollPane(area),
+                                                  "Parse errors",
+                                                  JOptionPane.WARNING_MESSAGE);
+                }
+            });
+
+        progressPanel.remove(cancelBtn);
+        progressPanel.add(errorBtn, BorderLayout.LINE_END);
+        progressPanel.validate();
+    }
+
+    /**
+     * Update the progress bar
+     *
+     * @param monitor load monitor
+     * @param finished <tt>true</tt> if the load has finished
+     */
+    private void showProgress(LoadMonitor monitor, boolean finished)
+    {
+        final long total = monitor.getTotalBytes();
+        final long bytes = monitor.getBytes();
+        final long lines = monitor.getLines();
+        final double secs = monitor.getElapsedSeconds();
+
+        if (total > 0) {
+            progressBar.setValue((int) ((double) bytes * 1000.0 /
+                                        (double) total));
+        }
+
+        final double mbPerSec =
+            (double) bytes / (1024.0 * 1024.0 * Math.max(secs, 0.001));
+        final double linesPerSec = (double) lines / Math.max(secs, 0.001);
+
+        String status;
+        if (!finished) {
+            status = "Loaded";
+        } else if (monitor.isCancelled()) {
+            status = "Cancelled after loading";
+        } else {
+            status = "Finished loading";
+        }
+
+        progressBar.setString(String.format("%s %d of %d files" +
+                                            " (%.1f MB/sec, %.0f lines/sec)",
+                                            status, monitor.getNumMerged(),
+                                            monitor.getNumFiles(), mbPerSec,
+                                            linesPerSec));
+
+        StringBuilder buf = new StringBuilder();
+        if (finished) {
+            buf.append(String.format("%d lines, %.1f MB in %.1f secs",
+                                     lines, (double) bytes /
+                                     (1024.0 * 1024.0), secs));
+        } else {
+            for (FileProgress fp : monitor.getActive()) {
+                if (buf.length() > 0) {
+                    buf.append(", ");
+                }
+
+                final long pct;
+                if (fp.getLength() == 0) {
+                    pct = 0;
+                } else {
+                    pct = fp.getBytes() * 100 / fp.getLength();
                 }
 
-                fillTemplatePanel(compPane, allPane);
+                buf.append(String.format("%s %d%% (%d lines)",
+                                         fp.getFile().getName(), pct,
+                                         fp.getLines()));
             }
         }
 
-        repaint();
+        if (buf.length() == 0) {
+            progressLabel.setText(" ");
+        } else {
+            progressLabel.setText(buf.toString());
+        }
     }
 
     private void popupAlert(String[] msgLines)
@@ -874,9 +1432,9 @@ public class DAQMoniChart
         BasicConfigurator.resetConfiguration();
         BasicConfigurator.configure(new ColoredAppender());
 
-        boolean omitDataCollector = false;
-        boolean verbose = false;
+        LoadOptions opts = new LoadOptions();
         List<File> fileList = new ArrayList<File>();
+        ParseFilter filter = null;
 
         boolean usage = false;
         for (int i = 0; i < args.length; i++) {
@@ -891,11 +1449,68 @@ public class DAQMoniChart
                     badArg = true;
                 } else {
                     switch (args[i].charAt(1)) {
+                    case 'H':
+                    case 'N':
+                    case 'S':
+                    case 's':
+                    case 'u':
+                        final char opt = args[i].charAt(1);
+
+                        String val;
+                        if (args[i].length() > 2) {
+                            val = args[i].substring(2);
+                        } else if (i + 1 < args.length) {
+                            val = args[++i];
+                        } else {
+                            val = null;
+                        }
+
+                        if (filter == null) {
+                            filter = new ParseFilter();
+                            opts.setFilter(filter);
+                        }
+
+                        if (val == null || !filter.setOption(opt, val)) {
+                            badArg = true;
+                        }
+                        break;
+                    case 'f':
+                        opts.setFollow(true);
+                        break;
+                    case 'l':
+                        opts.setLoadLazily(true);
+                        break;
+                    case 'n':
+                        opts.setUseCache(false);
+                        break;
                     case 'o':
-                        omitDataCollector = true;
+                        opts.setOmitDataCollector(true);
+                        break;
+                    case 't':
+                        String numStr;
+                        if (args[i].length() > 2) {
+                            numStr = args[i].substring(2);
+                        } else if (i + 1 < args.length) {
+                            numStr = args[++i];
+                        } else {
+                            numStr = null;
+                        }
+
+                        int numThreads;
+                        try {
+                            numThreads = Integer.parseInt(numStr);
+                        } catch (NumberFormatException nfe) {
+                            numThreads = 0;
+                        }
+
+                        if (numThreads < 1) {
+                            badArg = true;
+                        } else {
+                            opts.setNumThreads(numThreads);
+                        }
                         break;
                     case 'v':
-                        verbose = true;
+                        opts.setVerbose(true);
                         break;
                     default:
                         badArg = true;
@@ -927,22 +1542,18 @@ public class DAQMoniChart
 
         if (usage) {
             final String msg =
-                String.format("Usage: %s [-o(mitDataCollector)]" +
+                String.format("Usage: %s [-f(ollow)]" +
+                              " [-l(azy)]" +
+                              " [-n(oCache)]" +
+                              " [-o(mitDataCollector)]" +
+                              " [-t numThreads]" +
+                              ParseFilter.getUsage() +
                               " file.moni [file.moni ...]",
                               DAQMoniChart.class.getName());
             throw new Error(msg);
         }
 
-        StatData statData = new StatData();
-        for (File file : fileList) {
-            statData.loadFile(file, omitDataCollector, verbose);
-        }
-
-        // reorganize some data
-        statData.transform();
-
-        ArrayList<ComponentData> compList = ComponentData.extract(statData);
-
-        new DAQMoniChart(compList, statData);
+        DAQMoniChart chart = new DAQMoniChart(new StatData());
+        chart.load(fileList, opts);
     }
 }
@@ -0,0 +1,136 @@
+package icecube.daq.tools;
+
+/**
+ * Reduce the number of points in a chart series to roughly two per
+ * horizontal pixel.  The time range is split into equal buckets and only
+ * the minimum and maximum values in each bucket (plus the first and last
+ * points) are kept, so spikes are never dropped.
+ */
+class Decimator
+{
+    private int numBuckets;
+
+    /**
+     * Create a decimator
+     *
+     * @param numBuckets number of buckets (usually the chart width in
+     *                   pixels)
+     */
+    Decimator(int numBuckets)
+    {
+        if (numBuckets < 1) {
+            throw new IllegalArgumentException("Bad number of buckets " +
+                                               numBuckets);
+        }
+
+        this.numBuckets = numBuckets;
+    }
+
+    /**
+     * Replace every large series in the collection with a decimated view
+     *
+     * @param coll chart data
+     */
+    void decimate(StatDataset coll)
+    {
+        for (int s = 0; s < coll.getSeriesCount(); s++) {
+            StatSeries series = coll.getSeries(s);
+
+            int[] keep = select(series);
+            if (keep != null) {
+                coll.setSeries(s, new SubsetSeries(series, keep, this));
+            }
+        }
+    }
+
+    /**
+     * Choose the points to keep.  Missing values (<tt>NaN</tt>) are always
+     * kept so gaps in the data are preserved.
+     *
+     * @param series series whose times are in increasing order
+     *
+     * @return indices of the points to keep, in increasing order, or
+     *         <tt>null</tt> if the series is small enough to keep all points
+     */
+    int[] select(StatSeries series)
+    {
+        final int count = series.getItemCount();
+        if (count <= numBuckets * 2 + 2) {
+            return null;
+        }
+
+        final long first = series.getX(0);
+        final double span = (double) (series.getX(count - 1) - first);
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        int curBucket = -1;
+        int minIdx = -1;
+        int maxIdx = -1;
+
+        double minVal = Double.NaN;
+        double maxVal = Double.NaN;
+
+        for (int i = 0; i < count; i++) {
+            final double val = series.getY(i);
+            if (Double.isNaN(val)) {
+                keep[i] = true;
+                continue;
+            }
+
+            int bucket;
+            if (span <= 0.0) {
+                bucket = 0;
+            } else {
+                bucket = (int) ((double) (series.getX(i) - first) *
+                                numBuckets / span);
+                if (bucket >= numBuckets) {
+                    bucket = numBuckets - 1;
+                }
+            }
+
+            if (bucket != curBucket) {
+                if (minIdx >= 0) {
+                    keep[minIdx] = true;
+                    keep[maxIdx] = true;
+                }
+
+                curBucket = bucket;
+                minIdx = i;
+                maxIdx = i;
+                minVal = val;
+                maxVal = val;
+            } else if (val < minVal) {
+                minIdx = i;
+                minVal = val;
+            } else if (val > maxVal) {
+                maxIdx = i;
+                maxVal = val;
+            }
+        }
+
+        if (minIdx >= 0) {
+            keep[minIdx] = true;
+            keep[maxIdx] = true;
+        }
+
+        int num = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                num++;
+            }
+        }
+
+        int[] indices = new int[num];
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                indices[next++] = i;
+            }
+        }
+
+        return indices;
+    }
+}
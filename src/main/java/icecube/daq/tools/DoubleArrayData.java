@@ -0,0 +1,72 @@
+package icecube.daq.tools;
+
+import org.jfree.data.time.Second;
+import org.jfree.data.time.TimeSeries;
+
+class DoubleArrayData
+    extends MapArrayData
+{
+    private double[] array;
+
+    DoubleArrayData(ChartTime time, int length)
+    {
+        super(time);
+
+        this.array = new double[length];
+    }
+
+    void addDouble(int index, double val)
+        throws StatParseException
+    {
+        if (index < 0) {
+            throw new StatParseException("Bad index #" + index + " (subzero)");
+        } else if (index >= array.length) {
+            throw new StatParseException("Bad index #" + index + " (max is " +
+                                         (array.length - 1) + ")");
+        }
+
+        array[index] = val;
+    }
+
+    void addToSeries(TimeSeries series, Second seconds, int index)
+    {
+        series.add(seconds, array[index]);
+    }
+
+    @Override
+    public StatParent createParent()
+    {
+        return new MapArrayStat();
+    }
+
+    double getTotalDouble() {
+        double total = 0.0;
+        for (int idx = 0; idx < array.length; idx++) {
+            total += array[idx];
+        }
+        return total;
+    }
+
+    @Override
+    double getValueDouble(int index) {
+        return array[index];
+    }
+
+    @Override
+    String getValueString(int index)
+    {
+        return Double.toString(array[index]);
+    }
+
+    @Override
+    boolean isDouble()
+    {
+        return true;
+    }
+
+    @Override
+    int length()
+    {
+        return array.length;
+    }
+}
@@ -0,0 +1,37 @@
+package icecube.daq.tools;
+
+class DoubleData
+    extends BaseData
+{
+    private double val;
+
+    DoubleData(ChartTime time, double val)
+    {
+        super(time);
+
+        this.val = val;
+    }
+
+    @Override
+    public StatParent createParent()
+    {
+        return new DoubleStat();
+    }
+
+    @Override
+    public String getDataString()
+    {
+        return Double.toString(val);
+    }
+
+    double getValue()
+    {
+        return val;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return val == 0.0;
+    }
+}
@@ -0,0 +1,51 @@
+package icecube.daq.tools;
+
+class DoubleListData
+    extends ListData
+{
+    private double[] vals;
+
+    DoubleListData(ChartTime time, double[] vals)
+    {
+        super(time);
+
+        this.vals = vals;
+    }
+
+    @Override
+    public String getDataString()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < vals.length; i++) {
+            if (i > 0) {
+                buf.append(' ');
+            }
+
+            buf.append(vals[i]);
+        }
+        return buf.toString();
+    }
+
+    double getEntry(int i)
+    {
+        return vals[i];
+    }
+
+    @Override
+    int getNumEntries()
+    {
+        return vals.length;
+    }
+
+    @Override
+    double getRawValue(int i)
+    {
+        return vals[i];
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return vals == null || (vals.length == 1 && vals[0] == 0.0);
+    }
+}
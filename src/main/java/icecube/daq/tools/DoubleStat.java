@@ -1,282 +1,379 @@
 package icecube.daq.tools;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 
-import org.jfree.data.time.Second;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
-
-class DoubleData
-    extends BaseData
+class DoubleParser
+    extends BaseStatParser
 {
-    private double val;
-
-    DoubleData(ChartTime time, double val)
-    {
-        super(time);
+    private static final Pattern STAT_PAT =
+        Pattern.compile("^(\\s+([^\\s:]+):?|\\s*(.+)\\s*:)\\s+([\\-\\+]?" +
+                        "\\d+\\.?\\d*)\\s*$");
 
-        this.val = val;
-    }
+    private ScalarScanner scanner = new ScalarScanner();
 
     @Override
-    StatParent createParent()
+    boolean canParse(LineShape shape, boolean hasTiming)
     {
-        return new DoubleStat();
+        return shape == LineShape.NUMBER || shape == LineShape.PERIOD;
     }
 
     @Override
-    String getDataString()
-    {
-        return Double.toString(val);
-    }
-
-    double getValue()
+    public boolean mayMatch(String line)
     {
-        return val;
+        return LineShape.endsWithNumber(line, true, false);
     }
 
     @Override
-    boolean isEmpty()
+    public int getTier()
     {
-        return val == 0.0;
+        return 200;
     }
-}
 
-class DoubleParser
-    extends BaseStatParser
-{
-    private static final Pattern STAT_PAT =
-        Pattern.compile("^(\\s+([^\\s:]+):?|\\s*(.+)\\s*:)\\s+([\\-\\+]?" +
-                        "\\d+\\.?\\d*)\\s*$");
-
-    Map<String, BaseData> parseLine(ChartTime time, String line,
-                                    boolean verbose)
-        throws StatParseException
+    public boolean parseLine(ChartTime time, String line,
+                             SampleSink sink, boolean verbose)
     {
+        if (scanner.scanDouble(line)) {
+            sink.addDouble(scanner.getName(), time, scanner.getDouble());
+            return true;
+        }
+
         Matcher matcher = STAT_PAT.matcher(line);
         if (!matcher.find()) {
-            return null;
+            return false;
         }
 
         final double val;
         try {
             val = Double.parseDouble(matcher.group(4));
         } catch (NumberFormatException nfe) {
-            throw new StatParseException("Bad number \"" + matcher.group(4) +
-                                         "\" in \"" + line + "\"");
+            sink.reject("Bad number \"" + matcher.group(4) + "\"");
+            return true;
         }
 
         String name = matcher.group(2);
         if (name == null) {
             name = matcher.group(3);
             if (name == null) {
-                throw new StatParseException("No name found in \"" + line +
-                                             "\"");
+                sink.reject("No name found");
+                return true;
             }
         }
 
-        DoubleData data = new DoubleData(time, val);
+        sink.addDouble(name, time, val);
+        return true;
+    }
+}
 
-        Map<String, BaseData> map = new HashMap<String, BaseData>();
-        map.put(name, data);
-        return map;
+/**
+ * Samples stored in a <tt>DoubleStat</tt> when the view was created
+ */
+class DoubleColumns
+    implements SampleColumns
+{
+    private final long[] times;
+    private final double[] values;
+    private final int count;
+
+    DoubleColumns(long[] times, double[] values, int count)
+    {
+        this.times = times;
+        this.values = values;
+        this.count = count;
+    }
+
+    public double getPlotDelta(int idx, int prevIdx)
+    {
+        return values[idx] - values[prevIdx];
+    }
+
+    public double getPlotValue(int idx)
+    {
+        return values[idx];
+    }
+
+    public long getTime(int idx)
+    {
+        return times[idx];
+    }
+
+    public SampleColumns getView()
+    {
+        return this;
+    }
+
+    public int size()
+    {
+        return count;
     }
 }
 
 class DoubleStat
     extends StatParent<DoubleData>
+    implements SampleColumns
 {
     private static final Logger LOG = Logger.getLogger(DoubleStat.class);
 
-    private TimeSeries[] generateSeries(SectionKey key, String name,
-                                        PlotArguments pargs)
-        throws StatPlotException
+    private static final int INITIAL_SIZE = 16;
+
+    /** Sample times, in milliseconds */
+    private long[] times;
+    /** Sample values */
+    private double[] values;
+    /** Number of samples */
+    private int count;
+
+    DoubleStat()
+    {
+    }
+
+    /**
+     * Create a statistic from previously saved columns
+     *
+     * @param times sample times in milliseconds
+     * @param values sample values
+     */
+    DoubleStat(long[] times, double[] values)
     {
-        final String seriesName = pargs.getSeriesName(key, name);
+        this.times = times;
+        this.values = values;
+        this.count = times.length;
+    }
 
-        return new TimeSeries[] {
-            new TimeSeries(seriesName, Second.class),
-        };
+    @Override
+    boolean accepts(BaseData datum)
+    {
+        return datum instanceof DoubleData;
     }
 
-    public TimeSeriesCollection plot(TimeSeriesCollection coll, SectionKey key,
-                                     String name, PlotArguments pargs)
-        throws StatPlotException
+    @Override
+    void add(DoubleData data)
     {
-        TimeSeries series[] = generateSeries(key, name, pargs);
-        for (TimeSeries entry : series) {
-            coll.addSeries(entry);
+        add(data.getTime().getTime(), data.getValue());
+    }
+
+    /**
+     * Add a sample
+     *
+     * @param time sample time in milliseconds
+     * @param val sample value
+     */
+    void add(long time, double val)
+    {
+        if (times == null) {
+            times = new long[INITIAL_SIZE];
+            values = new double[INITIAL_SIZE];
+        } else if (count == times.length) {
+            final int newLen = times.length * 2;
+            times = Arrays.copyOf(times, newLen);
+            values = Arrays.copyOf(values, newLen);
         }
 
-        for (BaseData bd : iterator()) {
-            DoubleData data = (DoubleData) bd;
+        times[count] = time;
+        values[count] = val;
+        count++;
+    }
 
-            Second seconds;
-            try {
-                seconds = data.getTime().getSecond();
-            } catch (Exception exc) {
-                LOG.error("Cannot extract seconds from " + data);
-                continue;
+    @Override
+    boolean addAll(StatParent<?> other)
+    {
+        if (other instanceof LongStat) {
+            // convert integer samples from a statistic with mixed types
+            LongStat stat = (LongStat) other;
+            final int num = stat.size();
+            for (int i = 0; i < num; i++) {
+                add(stat.getTime(i), (double) stat.getValue(i));
             }
+            return true;
+        }
 
-            final double val = data.getValue();
-
-            try {
-                series[0].add(seconds, val);
-            } catch (Exception exc) {
-                double oldVal;
-                try {
-                    oldVal =
-                        (double) series[0].getDataItem(seconds).getValue();
-                } catch (Exception ex2) {
-                    LOG.error("Cannot get previous value from" + " series \"" +
-                              pargs.getSeriesName(key, name) + "\"");
-                    continue;
-                }
-
-                if (Math.abs(val - oldVal) > 0.2) {
-                    LOG.error("Series \"" + pargs.getSeriesName(key, name) +
-                              "\" already contains " + oldVal + " at " +
-                              seconds + ", cannot add value " + val);
-                    continue;
-                }
-            }
+        if (!(other instanceof DoubleStat)) {
+            return false;
         }
 
-        return coll;
+        DoubleStat stat = (DoubleStat) other;
+        if (stat.count == 0) {
+            return true;
+        }
+
+        final int newCount = count + stat.count;
+        if (times == null) {
+            times = new long[Math.max(INITIAL_SIZE, newCount)];
+            values = new double[times.length];
+        } else if (newCount > times.length) {
+            final int newLen = Math.max(times.length * 2, newCount);
+            times = Arrays.copyOf(times, newLen);
+            values = Arrays.copyOf(values, newLen);
+        }
+
+        System.arraycopy(stat.times, 0, times, count, stat.count);
+        System.arraycopy(stat.values, 0, values, count, stat.count);
+        count = newCount;
+
+        return true;
     }
 
-    public TimeSeriesCollection plotDelta(TimeSeriesCollection coll,
-                                          SectionKey key, String name,
-                                          PlotArguments pargs)
-        throws StatPlotException
+    public double getPlotDelta(int idx, int prevIdx)
     {
-        TimeSeries series[] = generateSeries(key, name, pargs);
-        for (TimeSeries entry : series) {
-            coll.addSeries(entry);
-        }
+        return values[idx] - values[prevIdx];
+    }
+
+    public double getPlotValue(int idx)
+    {
+        return values[idx];
+    }
+
+    public long getTime(int idx)
+    {
+        return times[idx];
+    }
+
+    public SampleColumns getView()
+    {
+        // stored samples are never overwritten and the arrays are
+        // replaced when they grow, so the view can share them
+        return new DoubleColumns(times, values, count);
+    }
 
-        double prevVal = 0;
-        boolean firstVal = true;
-
-        for (BaseData bd : iterator()) {
-            DoubleData data = (DoubleData) bd;
-
-            if (firstVal) {
-                firstVal = false;
-            } else {
-                Second seconds;
-                try {
-                    seconds = data.getTime().getSecond();
-                } catch (Exception exc) {
-                    LOG.error("Cannot extract seconds from " + data);
-                    continue;
-                }
-
-                double deltaVal;
-                try {
-                    deltaVal = data.getValue() - prevVal;
-                } catch (Exception exc) {
-                    LOG.error("Cannot compute delta for " + data);
-                    continue;
-                }
-
-                try {
-                    series[0].add(seconds, deltaVal);
-                } catch (Exception exc) {
-                    double oldVal;
-                    try {
-                        oldVal =
-                            (long) series[0].getDataItem(seconds).getValue();
-                    } catch (Exception ex2) {
-                        LOG.error("Cannot get previous value from series \"" +
-                                  pargs.getSeriesName(key, name) + "\"");
-                        continue;
+    /**
+     * Get the value of a sample
+     *
+     * @param idx sample index
+     *
+     * @return value
+     */
+    double getValue(int idx)
+    {
+        return values[idx];
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return count < 2;
+    }
+
+    /**
+     * Build sample objects on demand, since they are not stored
+     *
+     * @return iterable sample objects
+     */
+    @Override
+    public Iterable<DoubleData> iterator()
+    {
+        return new Iterable<DoubleData>() {
+            public Iterator<DoubleData> iterator()
+            {
+                return new Iterator<DoubleData>() {
+                    private int next;
+
+                    public boolean hasNext()
+                    {
+                        return next < count;
                     }
 
-                    if (Math.abs(deltaVal - oldVal) > 0.2) {
-                        LOG.error("Series \"" +
-                                  pargs.getSeriesName(key, name) +
-                                  "\" already contains " + oldVal + " at " +
-                                  seconds + ", cannot add value " + deltaVal +
-                                  " (from " + data.getValue() + ")");
-                        continue;
+                    public DoubleData next()
+                    {
+                        if (next >= count) {
+                            throw new NoSuchElementException();
+                        }
+
+                        final int idx = next++;
+                        return new DoubleData(new ChartTime(times[idx]),
+                                            values[idx]);
                     }
-                }
-            }
 
-            prevVal = data.getValue();
-        }
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
 
+    public StatDataset plot(StatDataset coll, SectionKey key, String name,
+                            PlotArguments pargs)
+        throws StatPlotException
+    {
+        coll.addSeries(new ColumnSeries(pargs.getSeriesName(key, name), this,
+                                        ColumnSeries.Mode.PLAIN));
         return coll;
     }
 
-    public TimeSeriesCollection plotScaled(TimeSeriesCollection coll,
-                                           SectionKey key, String name,
-                                           PlotArguments pargs)
+    public StatDataset plotDelta(StatDataset coll, SectionKey key, String name,
+                                 PlotArguments pargs)
         throws StatPlotException
     {
-        TimeSeries series[] = generateSeries(key, name, pargs);
-        for (TimeSeries entry : series) {
-            coll.addSeries(entry);
-        }
+        coll.addSeries(new ColumnSeries(pargs.getSeriesName(key, name), this,
+                                        ColumnSeries.Mode.DELTA));
+        return coll;
+    }
 
+    public StatDataset plotScaled(StatDataset coll, SectionKey key,
+                                  String name, PlotArguments pargs)
+        throws StatPlotException
+    {
         double minVal = Double.POSITIVE_INFINITY;
         double maxVal = Double.NEGATIVE_INFINITY;
 
-        for (BaseData bd : iterator()) {
-            DoubleData data = (DoubleData) bd;
-
-            if (data.getValue() < minVal) {
-                minVal = data.getValue();
+        for (int i = 0; i < count; i++) {
+            if (values[i] < minVal) {
+                minVal = values[i];
             }
-            if (data.getValue() > maxVal) {
-                maxVal = data.getValue();
+            if (values[i] > maxVal) {
+                maxVal = values[i];
             }
         }
 
         double div = maxVal - minVal;
+        if (div == 0.0) {
+            LOG.error("Series \"" + pargs.getSeriesName(key, name) +
+                      "\" min/max values are identical; skipping");
+            return coll;
+        }
+
+        coll.addSeries(new ColumnSeries(pargs.getSeriesName(key, name), this,
+                                        minVal, div));
+        return coll;
+    }
 
-        for (BaseData bd : iterator()) {
-            DoubleData data = (DoubleData) bd;
+    @Override
+    public int size()
+    {
+        return count;
+    }
 
-            Second seconds;
-            try {
-                seconds = data.getTime().getSecond();
-            } catch (Exception exc) {
-                LOG.error("Cannot extract seconds from " + data);
-                continue;
-            }
+    @Override
+    void trimToSize()
+    {
+        if (times != null && count < times.length) {
+            times = Arrays.copyOf(times, count);
+            values = Arrays.copyOf(values, count);
+        }
+    }
 
-            double val = (data.getValue() - minVal) / div;
-
-            try {
-                series[0].add(seconds, val);
-            } catch (Exception exc) {
-                double oldVal;
-                try {
-                    oldVal = (long) series[0].getDataItem(seconds).getValue();
-                } catch (Exception ex2) {
-                    LOG.error("Cannot get previous value from series \"" +
-                              pargs.getSeriesName(key, name) + "\"");
-                    continue;
-                }
-
-                if (Math.abs(val - oldVal) > 0.2) {
-                    LOG.error("Series \"" + pargs.getSeriesName(key, name) +
-                              "\" already contains " + oldVal + " at " +
-                              seconds + ", cannot add value " + val +
-                              " (from " + data + ")");
-                    continue;
-                }
+    @Override
+    public String toString()
+    {
+        if (times == null) {
+            return "null";
+        }
+
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buf.append(", ");
             }
+            buf.append(times[i]).append('=').append(values[i]);
         }
+        buf.append(']');
 
-        return coll;
+        return buf.toString();
     }
 }
@@ -8,17 +8,15 @@ import java.util.ArrayList;
 public class DumpMoni
 {
     private ArrayList<File> fileList = new ArrayList<File>();
+    private LoadOptions opts = new LoadOptions();
+    private ParseFilter filter;
 
     DumpMoni(String[] args)
     {
         processArgs(args);
 
         StatData statData = new StatData();
-
-        for (File f : fileList) {
-            System.out.println(f + ":");
-            statData.loadFile(f, false, false);
-        }
+        statData.loadFiles(fileList, opts);
 
         dump(statData, System.out);
     }
@@ -48,7 +46,39 @@ public class DumpMoni
     {
         boolean usage = false;
         for (int i = 0; i < args.length; i++) {
-            if (args[i].length() > 1 && args[i].charAt(0) == '-') {
+            if (args[i].equals("-n")) {
+                opts.setUseCache(false);
+            } else if (args[i].equals("-t") && i + 1 < args.length) {
+                int numThreads;
+                try {
+                    numThreads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException nfe) {
+                    numThreads = 0;
+                }
+
+                if (numThreads < 1) {
+                    System.err.println("Bad number of threads '" + args[i] +
+                                       "'");
+                    usage = true;
+                } else {
+                    opts.setNumThreads(numThreads);
+                }
+            } else if (args[i].length() == 2 && args[i].charAt(0) == '-' &&
+                       ParseFilter.isOption(args[i].charAt(1)) &&
+                       i + 1 < args.length)
+            {
+                if (filter == null) {
+                    filter = new ParseFilter();
+                    opts.setFilter(filter);
+                }
+
+                final char opt = args[i].charAt(1);
+                if (!filter.setOption(opt, args[++i])) {
+                    System.err.println("Bad value '" + args[i] +
+                                       "' for -" + opt);
+                    usage = true;
+                }
+            } else if (args[i].length() > 1 && args[i].charAt(0) == '-') {
                 System.err.println("Unknown option '" + args[i] + "'");
                 usage = true;
             } else if (!addFile(args[i])) {
@@ -64,6 +94,9 @@ public class DumpMoni
 
         if (usage) {
             System.err.println("java " + getClass().getName() +
+                               " [-n(oCache)]" +
+                               " [-t numThreads]" +
+                               ParseFilter.getUsage() +
                                " file [file ...]" +
                                "");
             System.exit(1);
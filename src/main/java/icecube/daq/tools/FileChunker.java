@@ -0,0 +1,271 @@
+package icecube.daq.tools;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Split a large uncompressed monitoring file into pieces which can be
+ * parsed in parallel.  Every piece after the first starts at a section
+ * header which includes the section time, so each piece can be parsed
+ * without knowing anything about the pieces before it.
+ */
+class FileChunker
+{
+    /** Smallest piece worth parsing on a separate thread */
+    private static final long MIN_CHUNK_SIZE = 8L * 1024L * 1024L;
+    /** Size of the buffer used while looking for section headers */
+    private static final int SCAN_SIZE = 65536;
+    /** Longer lines are never section headers */
+    private static final int MAX_HEADER_LEN = 1024;
+
+    /**
+     * Find the first section header which starts at or after
+     * <tt>from</tt>
+     *
+     * @param file monitoring file
+     * @param from offset of the first byte to examine
+     *
+     * @return offset of the header, or <tt>-1</tt> if there are no more
+     *         headers
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private static long findHeader(File file, long from)
+        throws IOException
+    {
+        final Charset charset = Charset.defaultCharset();
+
+        FileInputStream fin = new FileInputStream(file);
+        try {
+            // back up one byte so a header starting at 'from' is found
+            long pos = from - 1;
+            fin.getChannel().position(pos);
+
+            InputStream in = new BufferedInputStream(fin, SCAN_SIZE);
+
+            // skip the rest of the line containing 'from - 1'
+            while (true) {
+                final int b = in.read();
+                if (b < 0) {
+                    return -1;
+                }
+
+                pos++;
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+            }
+
+            byte[] line = new byte[MAX_HEADER_LEN];
+            int lineLen = 0;
+
+            long lineStart = pos;
+            boolean atStart = true;
+            boolean candidate = false;
+
+            while (true) {
+                final int b = in.read();
+                if (b < 0 || b == '\n' || b == '\r') {
+                    if (candidate &&
+                        isHeader(new String(line, 0, lineLen, charset)))
+                    {
+                        return lineStart;
+                    }
+
+                    if (b < 0) {
+                        return -1;
+                    }
+
+                    pos++;
+                    lineStart = pos;
+                    atStart = true;
+                    candidate = false;
+                    lineLen = 0;
+                    continue;
+                }
+
+                pos++;
+
+                if (atStart) {
+                    // header lines never start with whitespace
+                    atStart = false;
+                    candidate = b != ' ' && b != '\t';
+                }
+
+                if (candidate) {
+                    if (lineLen == line.length) {
+                        candidate = false;
+                    } else {
+                        line[lineLen++] = (byte) b;
+                    }
+                }
+            }
+        } finally {
+            fin.close();
+        }
+    }
+
+    private static boolean isHeader(String line)
+    {
+        int idx = 0;
+        while (idx < line.length() && line.charAt(idx) == '.') {
+            idx++;
+        }
+
+        return PDAQParser.hasSectionTime(line.substring(idx));
+    }
+
+    /**
+     * Parse all pieces of a file in parallel and add the statistics to
+     * <tt>statData</tt> in file order, so the result is identical to
+     * parsing the whole file at once.
+     *
+     * @param statData statistics collection
+     * @param chunks pieces of the file, in file order
+     * @param opts load options
+     * @param progress if non-null, used to report progress
+     * @param pool threads used to parse the pieces
+     *
+     * @throws IOException if any piece cannot be read
+     */
+    static void parse(StatData statData, List<FileSegment> chunks,
+                      final LoadOptions opts, final FileProgress progress,
+                      ExecutorService pool)
+        throws IOException
+    {
+        ArrayList<Future<StatData>> futures =
+            new ArrayList<Future<StatData>>();
+        for (final FileSegment seg : chunks) {
+            futures.add(pool.submit(new Callable<StatData>() {
+                    public StatData call()
+                        throws IOException
+                    {
+                        return parseChunk(seg, opts, progress);
+                    }
+                }));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                StatData partial;
+                try {
+                    partial = futures.get(i).get();
+                } catch (ExecutionException exe) {
+                    if (exe.getCause() instanceof IOException) {
+                        throw (IOException) exe.getCause();
+                    }
+
+                    throw new IOException("Couldn't parse " + chunks.get(i),
+                                          exe.getCause());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while parsing " +
+                                          chunks.get(i));
+                }
+
+                statData.merge(partial);
+            }
+        } finally {
+            // stop any pieces which are no longer needed
+            for (Future<StatData> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static StatData parseChunk(FileSegment seg, LoadOptions opts,
+                                       FileProgress progress)
+        throws IOException
+    {
+        GraphSource src = new GraphSource(seg.getFile());
+        src.setFilter(opts.getFilter());
+        if (progress != null) {
+            src.setProgress(progress);
+        }
+
+        StatData partial = new StatData();
+
+        MappedLineReader mapped =
+            src.getMappedReader(seg.getStart(), seg.getEnd());
+        if (mapped != null) {
+            partial.readData(src, mapped, opts.omitDataCollector(),
+                             opts.verbose());
+            return partial;
+        }
+
+        FileInputStream fin = new FileInputStream(seg.getFile());
+        fin.getChannel().position(seg.getStart());
+
+        InputStream in =
+            new RangeInputStream(fin, seg.getEnd() - seg.getStart());
+
+        if (progress != null) {
+            in = new ProgressInputStream(in, progress);
+        }
+
+        LineReader rdr = new BufferedLineReader(new InputStreamReader(in));
+        try {
+            partial.readData(src, rdr, opts.omitDataCollector(),
+                             opts.verbose());
+        } finally {
+            rdr.close();
+        }
+
+        return partial;
+    }
+
+    /**
+     * Split a file into roughly equal pieces
+     *
+     * @param file uncompressed monitoring file
+     * @param maxChunks maximum number of pieces
+     *
+     * @return list of pieces, or <tt>null</tt> if the file is too small
+     *         to be worth splitting
+     *
+     * @throws IOException if the file cannot be read
+     */
+    static List<FileSegment> split(File file, int maxChunks)
+        throws IOException
+    {
+        final long length = file.length();
+
+        final long numChunks = Math.min(maxChunks, length / MIN_CHUNK_SIZE);
+        if (numChunks < 2) {
+            return null;
+        }
+
+        ArrayList<FileSegment> list = new ArrayList<FileSegment>();
+
+        long start = 0;
+        for (long i = 1; i < numChunks; i++) {
+            final long target = Math.max(start + 1, length * i / numChunks);
+
+            final long next = findHeader(file, target);
+            if (next < 0) {
+                break;
+            }
+
+            list.add(new FileSegment(file, start, next));
+            start = next;
+        }
+
+        if (list.isEmpty()) {
+            return null;
+        }
+
+        list.add(new FileSegment(file, start, length));
+        return list;
+    }
+}
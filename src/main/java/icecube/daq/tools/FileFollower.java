@@ -0,0 +1,155 @@
+package icecube.daq.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Read lines as they are appended to a monitoring file which is still
+ * being written.  Only complete lines are parsed; a partially written
+ * final line is left until the rest of it appears.
+ */
+class FileFollower
+{
+    private static final Logger LOG = Logger.getLogger(FileFollower.class);
+
+    /** Number of bytes examined at a time when looking for a line end */
+    private static final int SCAN_SIZE = 8192;
+
+    private File file;
+    private GraphSource inputSrc;
+    private boolean omitDataCollector;
+    private boolean verbose;
+
+    /** Offset of the first byte which has not been parsed */
+    private long offset;
+    /** Parser state at the end of the last complete line */
+    private BaseParser parser;
+
+    FileFollower(File file, LoadOptions opts)
+    {
+        this.file = file;
+
+        omitDataCollector = opts.omitDataCollector();
+        verbose = opts.verbose();
+
+        inputSrc = new GraphSource(file);
+        inputSrc.setFilter(opts.getFilter());
+    }
+
+    /**
+     * Find the end of the last complete line
+     *
+     * @param raf open file
+     * @param length current file length
+     *
+     * @return offset just past the last line terminator after
+     *         <tt>offset</tt>, or <tt>offset</tt> if there are no new
+     *         complete lines
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private long findLineEnd(RandomAccessFile raf, long length)
+        throws IOException
+    {
+        byte[] buf = new byte[SCAN_SIZE];
+
+        long end = length;
+        while (end > offset) {
+            final int len = (int) Math.min(buf.length, end - offset);
+            final long start = end - len;
+
+            raf.seek(start);
+            raf.readFully(buf, 0, len);
+
+            for (int i = len - 1; i >= 0; i--) {
+                if (buf[i] == '\n' || buf[i] == '\r') {
+                    return start + i + 1;
+                }
+            }
+
+            end = start;
+        }
+
+        return offset;
+    }
+
+    File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Parse all complete lines written since the last call.  If the file
+     * has shrunk, it is assumed to have been replaced and is read again
+     * from the start.
+     *
+     * @param statData collection which receives the new statistics
+     * @param progress if non-null, used to report progress
+     *
+     * @return <tt>true</tt> if any lines were parsed
+     *
+     * @throws IOException if the file cannot be read
+     */
+    boolean read(StatData statData, FileProgress progress)
+        throws IOException
+    {
+        final long length = file.length();
+        if (length < offset) {
+            LOG.error("\"" + file + "\" shrank from " + offset + " to " +
+                      length + " bytes; rereading");
+            offset = 0;
+            parser = null;
+        }
+
+        if (length == offset) {
+            return false;
+        }
+
+        final long end;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            end = findLineEnd(raf, length);
+        } finally {
+            raf.close();
+        }
+
+        if (end == offset) {
+            return false;
+        }
+
+        FileInputStream fin = new FileInputStream(file);
+        fin.getChannel().position(offset);
+
+        InputStream in = new RangeInputStream(fin, end - offset);
+        if (progress != null) {
+            in = new ProgressInputStream(in, progress);
+        }
+
+        // count lines and allow the initial read to be cancelled
+        inputSrc.setProgress(progress);
+
+        LineReader rdr = new BufferedLineReader(new InputStreamReader(in));
+        try {
+            parser = statData.readLines(inputSrc, rdr, parser,
+                                        omitDataCollector, verbose);
+        } finally {
+            rdr.close();
+            inputSrc.setProgress(null);
+        }
+
+        offset = end;
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FileFollower[" + file + "@" + offset + "]";
+    }
+}
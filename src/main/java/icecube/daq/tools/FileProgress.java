@@ -0,0 +1,100 @@
+package icecube.daq.tools;
+
+import java.io.File;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of bytes and lines parsed from a single file.  Large files may
+ * be parsed by several threads at once, so the counts may be updated and
+ * read by any thread.
+ */
+class FileProgress
+{
+    private LoadMonitor monitor;
+    private File file;
+    private long length;
+
+    private LongAdder bytes = new LongAdder();
+    private LongAdder lines = new LongAdder();
+    private volatile boolean started;
+    private volatile boolean done;
+
+    FileProgress(LoadMonitor monitor, File file)
+    {
+        this.monitor = monitor;
+        this.file = file;
+
+        length = file.length();
+    }
+
+    void addBytes(long num)
+    {
+        bytes.add(num);
+    }
+
+    void addLine()
+    {
+        lines.increment();
+    }
+
+    long getBytes()
+    {
+        return bytes.sum();
+    }
+
+    File getFile()
+    {
+        return file;
+    }
+
+    long getLength()
+    {
+        return length;
+    }
+
+    long getLines()
+    {
+        return lines.sum();
+    }
+
+    boolean isActive()
+    {
+        return started && !done;
+    }
+
+    boolean isCancelled()
+    {
+        return monitor.isCancelled();
+    }
+
+    boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * Mark the file as finished.  Files which were loaded from a cache or
+     * only indexed are counted as if every byte was read.
+     */
+    void setDone()
+    {
+        final long numBytes = bytes.sum();
+        if (numBytes < length && !isCancelled()) {
+            bytes.add(length - numBytes);
+        }
+
+        done = true;
+    }
+
+    void setStarted()
+    {
+        started = true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return file.getName() + "[" + getBytes() + "/" + length +
+            " bytes, " + getLines() + " lines]";
+    }
+}
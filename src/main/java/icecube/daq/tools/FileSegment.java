@@ -0,0 +1,70 @@
+package icecube.daq.tools;
+
+import java.io.File;
+
+/**
+ * The bytes in a monitoring file which hold a single section
+ */
+class FileSegment
+{
+    private File file;
+    private long start;
+    private long end;
+    /** Time inherited by an undated section header */
+    private long time;
+
+    FileSegment(File file, long start, long end)
+    {
+        this(file, start, end, Long.MIN_VALUE);
+    }
+
+    /**
+     * Create a segment
+     *
+     * @param file monitoring file
+     * @param start offset of the section header
+     * @param end offset just past the section
+     * @param time if the header does not include a time, the time from
+     *             the previous dated header (otherwise
+     *             <tt>Long.MIN_VALUE</tt>)
+     */
+    FileSegment(File file, long start, long end, long time)
+    {
+        this.file = file;
+        this.start = start;
+        this.end = end;
+        this.time = time;
+    }
+
+    long getEnd()
+    {
+        return end;
+    }
+
+    File getFile()
+    {
+        return file;
+    }
+
+    long getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Get the time inherited by an undated section header
+     *
+     * @return milliseconds since the epoch, or <tt>Long.MIN_VALUE</tt> if
+     *         the header includes its own time
+     */
+    long getTime()
+    {
+        return time;
+    }
+
+    @Override
+    public String toString()
+    {
+        return file.getName() + "[" + start + "-" + end + "]";
+    }
+}
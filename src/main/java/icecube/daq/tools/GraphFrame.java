@@ -1,14 +1,35 @@
 package icecube.daq.tools;
 
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.util.ArrayList;
 
+import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.xy.XYDataset;
 
 class GraphFrame
     extends JFrame
     implements WindowListener
 {
+    /** If non-null, the generator which is still adding charts */
+    private ChartGenerator generator;
+
+    private JPanel chartPanel;
+    private JPanel statusPanel;
+    private JLabel statusLabel;
+    private ArrayList<JFreeChart> charts = new ArrayList<JFreeChart>();
+
     public GraphFrame(String title)
     {
         super(title);
@@ -16,11 +37,117 @@ class GraphFrame
         addWindowListener(this);
     }
 
+    /**
+     * Create a frame which is filled in as charts are generated
+     *
+     * @param title frame title
+     * @param generator chart generator
+     */
+    GraphFrame(String title, ChartGenerator generator)
+    {
+        this(title);
+
+        this.generator = generator;
+
+        chartPanel = new JPanel(new GridLayout(1, 1));
+        Dimension size = new Dimension(ChartGenerator.PANEL_WIDTH,
+                                       ChartGenerator.PANEL_HEIGHT);
+        chartPanel.setPreferredSize(size);
+
+        statusLabel = new JLabel("Generating charts");
+
+        JButton stopBtn = new JButton("Stop");
+        stopBtn.setToolTipText("Stop generating charts");
+        stopBtn.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent evt)
+                {
+                    cancel();
+                }
+            });
+
+        statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(stopBtn, BorderLayout.LINE_END);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(chartPanel, BorderLayout.CENTER);
+        panel.add(statusPanel, BorderLayout.PAGE_END);
+
+        setContentPane(panel);
+    }
+
+    /**
+     * Add a chart, rearranging the grid so it stays roughly square
+     *
+     * @param chart new chart
+     */
+    void addChart(JFreeChart chart)
+    {
+        charts.add(chart);
+
+        final int numCharts = charts.size();
+
+        final int numRows = (int) Math.sqrt((double) numCharts);
+        final int numCols = (numCharts + numRows - 1) / numRows;
+
+        GridLayout layout = (GridLayout) chartPanel.getLayout();
+        layout.setRows(numRows);
+        layout.setColumns(numCols);
+
+        chartPanel.add(new ChartPanel(chart));
+        chartPanel.revalidate();
+
+        if (generator != null) {
+            statusLabel.setText("Generated " + numCharts + " of at most " +
+                                generator.getNumPlanned() + " charts");
+        }
+    }
+
+    private void cancel()
+    {
+        if (generator != null) {
+            generator.cancel();
+            statusLabel.setText("Stopping after " + charts.size() +
+                                " charts");
+        }
+    }
+
+    /**
+     * Note that the generator has finished adding charts
+     */
+    void finished()
+    {
+        if (generator != null && generator.isCancelled()) {
+            statusLabel.setText("Stopped after " + charts.size() +
+                                " charts");
+        } else {
+            getContentPane().remove(statusPanel);
+            validate();
+        }
+
+        generator = null;
+    }
+
+    /**
+     * Redraw any charts whose statistics have new samples.  The caller
+     * should hold the statistics lock.
+     */
+    void refresh()
+    {
+        for (JFreeChart chart : charts) {
+            XYDataset dataset = chart.getXYPlot().getDataset();
+            if (dataset instanceof StatDataset) {
+                ((StatDataset) dataset).refresh();
+            }
+        }
+    }
+
     public void windowOpened(WindowEvent evt) 
     { 
     }
     public void windowClosing(WindowEvent evt) 
     { 
+        cancel();
         dispose(); 
     }
     public void windowClosed(WindowEvent evt)
@@ -5,6 +5,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
@@ -12,9 +13,26 @@ import java.util.zip.GZIPInputStream;
 
 class GraphSource
 {
+    /** Size of the buffer holding compressed bytes */
+    private static final int INFLATE_BUFFER_SIZE = 65536;
+
+    /** If <tt>true</tt>, decompress files on a separate thread */
+    private static boolean pipelineGzip = true;
+    /** If <tt>true</tt>, read uncompressed files through a memory map */
+    private static boolean mapFiles = true;
+
     private File file;
     private URL url;
 
+    /** Name and contents of an entry read from an archive */
+    private String entryName;
+    private InputStream entryStream;
+
+    /** If non-null, count the bytes and lines read from this source */
+    private FileProgress progress;
+    /** If non-null, choose the statistics parsed from this source */
+    private ParseFilter filter;
+
     GraphSource(File file)
     {
         this.file = file;
@@ -25,21 +43,200 @@ class GraphSource
         this.url = url;
     }
 
-    BufferedReader getReader()
+    /**
+     * Read a monitoring file from an archive
+     *
+     * @param name file name, without any directories
+     * @param in file contents (may be gzipped if the name ends with
+     *           <tt>.gz</tt>)
+     */
+    GraphSource(String name, InputStream in)
+    {
+        entryName = name;
+        entryStream = in;
+    }
+
+    LineReader getReader()
         throws IOException
     {
         Reader rdr;
-        if (file == null) {
+        if (entryStream != null) {
+            InputStream in = entryStream;
+            if (entryName.endsWith(".gz")) {
+                in = new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+            }
+            rdr = new InputStreamReader(in);
+        } else if (file == null) {
             rdr = new InputStreamReader(url.openStream());
+        } else if (progress != null) {
+            InputStream in =
+                new ProgressInputStream(new FileInputStream(file), progress);
+            if (file.getName().endsWith(".gz")) {
+                in = new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+            }
+            rdr = new InputStreamReader(in);
         } else if (!file.getName().endsWith(".gz")) {
             rdr = new FileReader(file);
         } else {
             GZIPInputStream gin =
-                new GZIPInputStream(new FileInputStream(file));
+                new GZIPInputStream(new FileInputStream(file),
+                                    INFLATE_BUFFER_SIZE);
             rdr = new InputStreamReader(gin);
         }
 
-        return new BufferedReader(rdr);
+        // archives are usually compressed, so pipeline their entries too
+        if (pipelineGzip &&
+            ((file != null && file.getName().endsWith(".gz")) ||
+             entryStream != null))
+        {
+            return new PipelinedReader(new BufferedReader(rdr), toString());
+        }
+
+        return new BufferedLineReader(rdr);
+    }
+
+    ParseFilter getFilter()
+    {
+        return filter;
+    }
+
+    /**
+     * Get a reader which maps this file into memory
+     *
+     * @return mapped reader, or <tt>null</tt> if this source is not an
+     *         uncompressed file (or mapping is disabled)
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    MappedLineReader getMappedReader()
+        throws IOException
+    {
+        if (file == null) {
+            return null;
+        }
+
+        return getMappedReader(0L, file.length());
+    }
+
+    /**
+     * Get a reader which maps part of this file into memory
+     *
+     * @param start offset of the first byte to read
+     * @param end offset after the last byte to read
+     *
+     * @return mapped reader, or <tt>null</tt> if this source is not an
+     *         uncompressed file (or mapping is disabled)
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    MappedLineReader getMappedReader(long start, long end)
+        throws IOException
+    {
+        if (!mapFiles || file == null || file.getName().endsWith(".gz")) {
+            return null;
+        }
+
+        MappedLineReader rdr = new MappedLineReader(file, start, end);
+        rdr.setProgress(progress);
+        return rdr;
+    }
+
+    FileProgress getProgress()
+    {
+        return progress;
+    }
+
+    void setFilter(ParseFilter filter)
+    {
+        this.filter = filter;
+    }
+
+    /**
+     * Parse every monitoring file inside a tar archive, descending into
+     * any nested archives.  The archive is read once from start to end
+     * and nothing is extracted to disk.
+     *
+     * @param statData statistics collection
+     * @param name archive name (a <tt>.gz</tt> or <tt>.tgz</tt> suffix
+     *             means the archive is compressed)
+     * @param in archive contents
+     * @param opts load options
+     * @param progress if non-null, used to report progress and check
+     *                 for cancellation
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    static void readArchive(StatData statData, String name, InputStream in,
+                            LoadOptions opts, FileProgress progress)
+        throws IOException
+    {
+        if (name.endsWith(".gz") || name.endsWith(".tgz")) {
+            in = new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+        }
+
+        final ParseFilter filter = opts.getFilter();
+
+        TarReader tar = new TarReader(in);
+        while (tar.next()) {
+            if (progress != null && progress.isCancelled()) {
+                break;
+            }
+
+            final String path = tar.getName();
+            final String base = path.substring(path.lastIndexOf('/') + 1);
+
+            if (TarReader.isArchive(base)) {
+                readArchive(statData, base, tar.getInputStream(), opts,
+                            progress);
+            } else if (base.endsWith(".moni") || base.endsWith(".moni.gz")) {
+                GraphSource src = new GraphSource(base, tar.getInputStream());
+                if (filter != null &&
+                    !filter.acceptHost(PDAQParser.getHostName(src)))
+                {
+                    continue;
+                }
+
+                src.setFilter(filter);
+                if (progress != null) {
+                    src.setProgress(progress);
+                }
+
+                if (opts.verbose()) {
+                    System.out.println(path + ":");
+                }
+
+                statData.readData(src, opts.omitDataCollector(),
+                                  opts.verbose());
+            }
+        }
+    }
+
+    /**
+     * Enable or disable decompressing files on a separate thread (used
+     * for benchmarking)
+     *
+     * @param val if <tt>false</tt>, decompress on the parsing thread
+     */
+    static void setPipelineGzip(boolean val)
+    {
+        pipelineGzip = val;
+    }
+
+    /**
+     * Enable or disable reading uncompressed files through a memory map
+     * (used for benchmarking)
+     *
+     * @param val if <tt>false</tt>, read files through a
+     *            <tt>BufferedReader</tt>
+     */
+    static void setMapFiles(boolean val)
+    {
+        mapFiles = val;
+    }
+
+    void setProgress(FileProgress progress)
+    {
+        this.progress = progress;
     }
 
     @Override
@@ -47,6 +244,8 @@ class GraphSource
     {
         if (file != null) {
             return file.getName();
+        } else if (entryName != null) {
+            return entryName;
         }
 
         return url.getFile();
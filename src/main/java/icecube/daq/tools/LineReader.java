@@ -0,0 +1,27 @@
+package icecube.daq.tools;
+
+import java.io.IOException;
+
+/**
+ * Source of lines of text for the parsers
+ */
+interface LineReader
+{
+    /**
+     * Close the source
+     *
+     * @throws IOException if there is a problem
+     */
+    void close()
+        throws IOException;
+
+    /**
+     * Read the next line, without its line terminator
+     *
+     * @return next line, or <tt>null</tt> at the end of the input
+     *
+     * @throws IOException if there is a problem
+     */
+    String readLine()
+        throws IOException;
+}
@@ -0,0 +1,168 @@
+package icecube.daq.tools;
+
+/**
+ * Rough shape of a monitoring line, based on the last non-whitespace
+ * character.  Used to skip parsers which cannot possibly match a line.
+ */
+enum LineShape {
+    /** Ends with a digit */
+    NUMBER,
+    /** Ends with a digit followed by 'L' */
+    LONG_NUMBER,
+    /** Ends with ']' */
+    LIST,
+    /** Ends with '}' */
+    MAP,
+    /** Ends with '.' */
+    PERIOD,
+    /** Anything else */
+    OTHER;
+
+    private static final String TIMING = "Timing";
+
+    private static boolean isDigit(char ch)
+    {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * Is this character treated as whitespace (or a line terminator) by
+     * the regular expressions used in the parsers?
+     */
+    private static boolean isSpace(char ch)
+    {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' ||
+            ch == '\f' || ch == '\u000b' || ch == '\u0085' ||
+            ch == '\u2028' || ch == '\u2029';
+    }
+
+    /**
+     * Classify a line in a single pass.
+     *
+     * @param line line being classified
+     *
+     * @return line shape
+     */
+    static LineShape classify(String line)
+    {
+        char last = ' ';
+        char prev = ' ';
+
+        final int len = line.length();
+        for (int i = 0; i < len; i++) {
+            final char ch = line.charAt(i);
+            if (!isSpace(ch)) {
+                prev = last;
+                last = ch;
+            }
+        }
+
+        if (last >= '0' && last <= '9') {
+            return NUMBER;
+        } else if (last == 'L' && prev >= '0' && prev <= '9') {
+            return LONG_NUMBER;
+        } else if (last == ']') {
+            return LIST;
+        } else if (last == '}') {
+            return MAP;
+        } else if (last == '.') {
+            return PERIOD;
+        }
+
+        return OTHER;
+    }
+
+    /**
+     * Does the line end with a number preceded by whitespace, as required
+     * by the numeric statistic patterns?
+     *
+     * @param line line being checked
+     * @param allowFraction if <tt>true</tt>, the number may include a
+     *                      decimal point
+     * @param allowSuffix if <tt>true</tt>, the number may be followed by
+     *                    'L'
+     *
+     * @return <tt>false</tt> if the line certainly does not end with a
+     *         number
+     */
+    static boolean endsWithNumber(String line, boolean allowFraction,
+                                  boolean allowSuffix)
+    {
+        int i = findEnd(line);
+        if (allowSuffix && i > 0 && line.charAt(i - 1) == 'L') {
+            i--;
+        }
+
+        final int numEnd = i;
+        while (i > 0 && isDigit(line.charAt(i - 1))) {
+            i--;
+        }
+
+        if (allowFraction && i > 0 && line.charAt(i - 1) == '.') {
+            i--;
+
+            // the integer part must have at least one digit
+            final int intEnd = i;
+            while (i > 0 && isDigit(line.charAt(i - 1))) {
+                i--;
+            }
+            if (i == intEnd) {
+                return false;
+            }
+        } else if (i == numEnd) {
+            return false;
+        }
+
+        if (i > 0 && (line.charAt(i - 1) == '-' || line.charAt(i - 1) == '+'))
+        {
+            i--;
+        }
+
+        return i > 0 && TimestampParser.isSpace(line.charAt(i - 1));
+    }
+
+    /**
+     * Does the line end with this string, ignoring trailing whitespace?
+     *
+     * @param line line being checked
+     * @param suffix expected suffix
+     *
+     * @return <tt>true</tt> if the line ends with the suffix
+     */
+    static boolean endsWith(String line, String suffix)
+    {
+        final int end = findEnd(line);
+        return end >= suffix.length() &&
+            line.regionMatches(end - suffix.length(), suffix, 0,
+                               suffix.length());
+    }
+
+    /**
+     * Find the end of the line, ignoring trailing whitespace
+     *
+     * @param line line being checked
+     *
+     * @return index after the last non-whitespace character
+     */
+    private static int findEnd(String line)
+    {
+        int end = line.length();
+        while (end > 0 && isSpace(line.charAt(end - 1))) {
+            end--;
+        }
+
+        return end;
+    }
+
+    /**
+     * Does the line contain the word "Timing"?
+     *
+     * @param line line being checked
+     *
+     * @return <tt>true</tt> if the line may be a timing statistic
+     */
+    static boolean hasTiming(String line)
+    {
+        return line.indexOf(TIMING) >= 0;
+    }
+}
@@ -0,0 +1,23 @@
+package icecube.daq.tools;
+
+abstract class ListData
+    extends BaseData
+{
+    ListData(ChartTime time)
+    {
+        super(time);
+    }
+
+    @Override
+    public abstract String getDataString();
+
+    abstract int getNumEntries();
+
+    @Override
+    public StatParent createParent()
+    {
+        return new ListStat(getNumEntries());
+    }
+
+    abstract double getRawValue(int i);
+}
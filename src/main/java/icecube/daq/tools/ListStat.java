@@ -1,7 +1,6 @@
 package icecube.daq.tools;
 
 import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -9,7 +8,6 @@ import org.apache.log4j.Logger;
 
 import org.jfree.data.time.Second;
 import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
 
 class InternalListError
     extends Error
@@ -20,236 +18,232 @@ class InternalListError
     }
 }
 
-abstract class ListData
-    extends BaseData
+class ListParser
+    extends BaseStatParser
 {
-    ListData(ChartTime time)
-    {
-        super(time);
-    }
-
-    @Override
-    abstract String getDataString();
-
-    abstract int getNumEntries();
+    private static final Pattern STAT_PAT =
+        Pattern.compile("^\\s+([^\\s:]+):?\\s+\\[(.*)\\]\\s*$");
 
-    @Override
-    StatParent createParent()
+    /** Types of list entries */
+    private enum EntryType { LONG, DOUBLE, STRING }
+
+    /** Entry type of the last list parsed for each statistic */
+    private HashMap<String, EntryType> entryTypes =
+        new HashMap<String, EntryType>();
+
+    /**
+     * Convert a list of strings to floating-point values
+     *
+     * @param valStrs list of strings
+     *
+     * @return array of values, or <tt>null</tt> if any string is not a
+     *         floating-point number
+     */
+    private static double[] getDoubleArray(String[] valStrs)
     {
-        return new ListStat(getNumEntries());
-    }
-
-    abstract double getRawValue(int i);
-}
-
-class DoubleListData
-    extends ListData
-{
-    private double[] vals;
+        double[] vals = new double[valStrs.length];
+        for (int i = 0; i < vals.length; i++) {
+            if (!maybeDouble(valStrs[i])) {
+                return null;
+            }
 
-    DoubleListData(ChartTime time, double[] vals)
-    {
-        super(time);
+            try {
+                vals[i] = Double.parseDouble(valStrs[i]);
+            } catch (NumberFormatException nfe) {
+                return null;
+            }
+        }
 
-        this.vals = vals;
+        return vals;
     }
 
-    @Override
-    public String getDataString()
+    /**
+     * Convert a list of strings to integer values
+     *
+     * @param valStrs list of strings
+     *
+     * @return array of values, or <tt>null</tt> if any string is not an
+     *         integer
+     */
+    private static long[] getLongArray(String[] valStrs)
     {
-        StringBuilder buf = new StringBuilder();
+        long[] vals = new long[valStrs.length];
         for (int i = 0; i < vals.length; i++) {
-            if (i > 0) {
-                buf.append(' ');
+            if (!maybeLong(valStrs[i])) {
+                return null;
             }
 
-            buf.append(vals[i]);
+            try {
+                vals[i] = Long.parseLong(valStrs[i]);
+            } catch (NumberFormatException nfe) {
+                // too many digits
+                return null;
+            }
         }
-        return buf.toString();
-    }
 
-    double getEntry(int i)
-    {
-        return vals[i];
-    }
-
-    @Override
-    int getNumEntries()
-    {
-        return vals.length;
+        return vals;
     }
 
     @Override
-    double getRawValue(int i)
+    boolean canParse(LineShape shape, boolean hasTiming)
     {
-        return vals[i];
+        return shape == LineShape.LIST;
     }
 
-    @Override
-    boolean isEmpty()
+    /**
+     * Convert list entries, trying integers, then floating-point values,
+     * then strings
+     *
+     * @param time sample time
+     * @param valStrs list entries
+     *
+     * @return list data
+     */
+    private static ListData convert(ChartTime time, String[] valStrs)
     {
-        return vals == null || (vals.length == 1 && vals[0] == 0.0);
-    }
-}
-
-class LongListData
-    extends ListData
-{
-    private long[] vals;
+        // check cheaply before converting, since failed conversions
+        // throw exceptions
+        final long[] longs = getLongArray(valStrs);
+        if (longs != null) {
+            return new LongListData(time, longs);
+        }
 
-    LongListData(ChartTime time, long[] vals)
-    {
-        super(time);
+        final double[] doubles = getDoubleArray(valStrs);
+        if (doubles != null) {
+            return new DoubleListData(time, doubles);
+        }
 
-        this.vals = vals;
+        return new StringListData(time, valStrs);
     }
 
-    @Override
-    public String getDataString()
+    /**
+     * Convert list entries to the type found the last time this
+     * statistic was parsed.  The entries are only converted if the
+     * result is certain to match <tt>convert()</tt>, so entries which
+     * might now be integers are left to <tt>convert()</tt>.
+     *
+     * @param time sample time
+     * @param valStrs list entries
+     * @param type entry type of the previous list (may be <tt>null</tt>)
+     *
+     * @return list data, or <tt>null</tt> if the entries must be passed
+     *         to <tt>convert()</tt>
+     */
+    private static ListData convertLearned(ChartTime time, String[] valStrs,
+                                           EntryType type)
     {
-        StringBuilder buf = new StringBuilder();
-        for (int i = 0; i < vals.length; i++) {
-            if (i > 0) {
-                buf.append(' ');
+        if (type == EntryType.DOUBLE) {
+            boolean allLong = true;
+            for (String str : valStrs) {
+                if (!maybeLong(str)) {
+                    allLong = false;
+                    break;
+                }
             }
 
-            buf.append(vals[i]);
+            if (!allLong) {
+                final double[] doubles = getDoubleArray(valStrs);
+                if (doubles != null) {
+                    return new DoubleListData(time, doubles);
+                }
+
+                return new StringListData(time, valStrs);
+            }
+        } else if (type == EntryType.STRING) {
+            for (String str : valStrs) {
+                if (!maybeLong(str) && !maybeDouble(str)) {
+                    return new StringListData(time, valStrs);
+                }
+            }
         }
-        return buf.toString();
-    }
 
-    long getEntry(int i)
-    {
-        return vals[i];
+        return null;
     }
 
-    @Override
-    int getNumEntries()
+    private static EntryType getEntryType(ListData data)
     {
-        return vals.length;
-    }
+        if (data instanceof LongListData) {
+            return EntryType.LONG;
+        } else if (data instanceof DoubleListData) {
+            return EntryType.DOUBLE;
+        }
 
-    @Override
-    double getRawValue(int i)
-    {
-        return (double) vals[i];
+        return EntryType.STRING;
     }
 
-    @Override
-    boolean isEmpty()
+    /**
+     * Could <tt>Double.parseDouble()</tt> accept this string?  Only
+     * rejects strings containing a character which can never appear in
+     * a floating-point number (including "NaN", "Infinity", hexadecimal
+     * values and type suffixes).
+     *
+     * @param str string
+     *
+     * @return <tt>false</tt> if the string is certainly not a number
+     */
+    private static boolean maybeDouble(String str)
     {
-        if (vals == null || vals.length == 0) {
-            return true;
-        }
-
-        boolean allZero = true;
-        for (int i = 0; i < vals.length; i++) {
-            if (vals[0] != 0L) {
-                allZero = false;
-                break;
+        for (int i = 0; i < str.length(); i++) {
+            final char ch = str.charAt(i);
+            if ((ch < '0' || ch > '9') && ch > ' ' && ch != '.' &&
+                ch != '-' && ch != '+' &&
+                "aAbBcCdDeEfFpPxXINinty".indexOf(ch) < 0)
+            {
+                return false;
             }
         }
 
-        return allZero;
+        return true;
     }
-}
-
-class StringListData
-    extends ListData
-{
-    private String[] vals;
 
-    StringListData(ChartTime time, String[] vals)
+    /**
+     * Could <tt>Long.parseLong()</tt> accept this string?  Values which
+     * are too large are only caught by <tt>Long.parseLong()</tt>.
+     *
+     * @param str string
+     *
+     * @return <tt>false</tt> if the string is certainly not an integer
+     */
+    private static boolean maybeLong(String str)
     {
-        super(time);
+        int start = 0;
+        if (str.length() > 0 &&
+            (str.charAt(0) == '-' || str.charAt(0) == '+'))
+        {
+            start = 1;
+        }
 
-        this.vals = vals;
-    }
+        if (start == str.length()) {
+            return false;
+        }
 
-    @Override
-    public String getDataString()
-    {
-        StringBuilder buf = new StringBuilder();
-        for (int i = 0; i < vals.length; i++) {
-            if (i > 0) {
-                buf.append(' ');
+        for (int i = start; i < str.length(); i++) {
+            if (!Character.isDigit(str.charAt(i))) {
+                return false;
             }
-
-            buf.append(vals[i]);
         }
-        return buf.toString();
-    }
-
-    String getEntry(int i)
-    {
-        return vals[i];
-    }
 
-    @Override
-    int getNumEntries()
-    {
-        return vals.length;
+        return true;
     }
 
     @Override
-    double getRawValue(int i)
+    public boolean mayMatch(String line)
     {
-        return 0.0;
+        return LineShape.endsWith(line, "]");
     }
 
     @Override
-    boolean isEmpty()
+    public int getTier()
     {
-        return vals == null || (vals.length == 1 && vals[0] == null);
+        return 100;
     }
-}
-
-class ListParser
-    extends BaseStatParser
-{
-    private static final Pattern STAT_PAT =
-        Pattern.compile("^\\s+([^\\s:]+):?\\s+\\[(.*)\\]\\s*$");
 
-    private static double[] getDoubleArray(String line, String[] valStrs)
-        throws StatParseException
-    {
-        double[] vals = new double[valStrs.length];
-        for (int i = 0; i < vals.length; i++) {
-            try {
-                vals[i] = Double.parseDouble(valStrs[i]);
-            } catch (NumberFormatException nfe) {
-                throw new StatParseException("Bad double entry #" + i + " \"" +
-                                             valStrs[i] + "\" in \"" + line +
-                                             "\"");
-            }
-        }
-
-        return vals;
-    }
-
-    private static long[] getLongArray(String line, String[] valStrs)
-        throws StatParseException
-    {
-        long[] vals = new long[valStrs.length];
-        for (int i = 0; i < vals.length; i++) {
-            try {
-                vals[i] = Long.parseLong(valStrs[i]);
-            } catch (NumberFormatException nfe) {
-                throw new StatParseException("Bad long entry #" + i + " \"" +
-                                             valStrs[i] + "\" in \"" + line +
-                                             "\"");
-            }
-        }
-
-        return vals;
-    }
-
-    Map<String, BaseData> parseLine(ChartTime time, String line,
-                                    boolean verbose)
+    public boolean parseLine(ChartTime time, String line,
+                             SampleSink sink, boolean verbose)
     {
         Matcher matcher = STAT_PAT.matcher(line);
         if (!matcher.find()) {
-            return null;
+            return false;
         }
 
         final String name = matcher.group(1);
@@ -270,35 +264,21 @@ class ListParser
         if (valStrs.length == 0) {
             data = new LongListData(time, new long[0]);
         } else {
-            try {
-                data = new LongListData(time, getLongArray(line, valStrs));
-            } catch (StatParseException spe) {
-                // data is not a long value
-                data = null;
-            }
+            final EntryType learned = entryTypes.get(name);
 
+            data = convertLearned(time, valStrs, learned);
             if (data == null) {
-                try {
-                    data = new DoubleListData(time, getDoubleArray(line,
-                                                                   valStrs));
-                } catch (StatParseException spe) {
-                    // data is not a double value
-                    data = null;
-                }
-
-                if (data == null) {
-                    data = new StringListData(time, valStrs);
-                }
+                data = convert(time, valStrs);
             }
-        }
 
-        if (data == null) {
-            return null;
+            final EntryType type = getEntryType(data);
+            if (type != learned) {
+                entryTypes.put(name, type);
+            }
         }
 
-        Map<String, BaseData> map = new HashMap<String, BaseData>();
-        map.put(name, data);
-        return map;
+        sink.add(name, data);
+        return true;
     }
 }
 
@@ -328,6 +308,12 @@ class ListStat
         this.numEntries = numEntries;
     }
 
+    @Override
+    boolean accepts(BaseData datum)
+    {
+        return datum instanceof ListData;
+    }
+
     @Override
     void add(ListData data)
     {
@@ -376,8 +362,8 @@ class ListStat
         return series;
     }
 
-    public TimeSeriesCollection plot(TimeSeriesCollection coll, SectionKey key,
-                                     String name, PlotArguments pargs)
+    public StatDataset plot(StatDataset coll, SectionKey key, String name,
+                            PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -404,9 +390,8 @@ class ListStat
         return coll;
     }
 
-    public TimeSeriesCollection plotDelta(TimeSeriesCollection coll,
-                                          SectionKey key, String name,
-                                          PlotArguments pargs)
+    public StatDataset plotDelta(StatDataset coll, SectionKey key, String name,
+                                 PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -444,9 +429,8 @@ class ListStat
         return coll;
     }
 
-    public TimeSeriesCollection plotScaled(TimeSeriesCollection coll,
-                                           SectionKey key, String name,
-                                           PlotArguments pargs)
+    public StatDataset plotScaled(StatDataset coll, SectionKey key,
+                                  String name, PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
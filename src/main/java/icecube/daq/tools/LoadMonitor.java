@@ -0,0 +1,134 @@
+package icecube.daq.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Track the progress of a load and allow it to be cancelled
+ */
+class LoadMonitor
+{
+    private ArrayList<FileProgress> files = new ArrayList<FileProgress>();
+
+    private long startTime = System.nanoTime();
+    private volatile boolean cancelled;
+    private volatile int numMerged;
+
+    LoadMonitor()
+    {
+    }
+
+    /**
+     * Add a file which will be loaded
+     *
+     * @param file file
+     *
+     * @return object used to record the file's progress
+     */
+    synchronized FileProgress add(File file)
+    {
+        FileProgress progress = new FileProgress(this, file);
+        files.add(progress);
+        return progress;
+    }
+
+    /**
+     * Stop loading as soon as possible.  Files which have not been
+     * completely parsed are discarded.
+     */
+    void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Note that another file has been added to the statistics collection
+     */
+    void fileMerged()
+    {
+        numMerged++;
+    }
+
+    /**
+     * Get the progress of all files which are currently being loaded
+     *
+     * @return list of files
+     */
+    synchronized List<FileProgress> getActive()
+    {
+        ArrayList<FileProgress> list = new ArrayList<FileProgress>();
+        for (FileProgress progress : files) {
+            if (progress.isActive()) {
+                list.add(progress);
+            }
+        }
+        return list;
+    }
+
+    synchronized long getBytes()
+    {
+        long total = 0;
+        for (FileProgress progress : files) {
+            total += progress.getBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of seconds since this monitor was created
+     *
+     * @return elapsed seconds
+     */
+    double getElapsedSeconds()
+    {
+        return (double) (System.nanoTime() - startTime) / 1000000000.0;
+    }
+
+    synchronized long getLines()
+    {
+        long total = 0;
+        for (FileProgress progress : files) {
+            total += progress.getLines();
+        }
+        return total;
+    }
+
+    synchronized int getNumFiles()
+    {
+        return files.size();
+    }
+
+    /**
+     * Get the number of files which have been added to the statistics
+     * collection
+     *
+     * @return number of merged files
+     */
+    int getNumMerged()
+    {
+        return numMerged;
+    }
+
+    synchronized long getTotalBytes()
+    {
+        long total = 0;
+        for (FileProgress progress : files) {
+            total += progress.getLength();
+        }
+        return total;
+    }
+
+    boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LoadMonitor[" + numMerged + "/" + getNumFiles() + " files, " +
+            getBytes() + "/" + getTotalBytes() + " bytes" +
+            (cancelled ? ", cancelled" : "") + "]";
+    }
+}
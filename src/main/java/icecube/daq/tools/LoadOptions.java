@@ -0,0 +1,126 @@
+package icecube.daq.tools;
+
+/**
+ * Options which control how monitoring files are loaded
+ */
+public class LoadOptions
+{
+    private ParseFilter filter;
+    private boolean follow;
+    private boolean loadLazily;
+    private int numThreads = 1;
+    private boolean omitDataCollector;
+    private boolean useCache = true;
+    private boolean verbose;
+
+    public LoadOptions()
+    {
+    }
+
+    /**
+     * If <tt>true</tt>, uncompressed files are expected to grow and will
+     * be read again by <tt>StatData.readAppended()</tt>.  Followed files
+     * are always parsed completely and are never cached.
+     *
+     * @return <tt>true</tt> if files should be followed
+     */
+    public boolean follow()
+    {
+        return follow;
+    }
+
+    /**
+     * Get the filter which chooses the statistics to keep while parsing.
+     * Filtered files are never cached.
+     *
+     * @return filter, or <tt>null</tt> if everything is kept
+     */
+    public ParseFilter getFilter()
+    {
+        return filter;
+    }
+
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * If <tt>true</tt>, uncompressed files are only indexed when loaded
+     * and each section is parsed the first time it is needed.
+     *
+     * @return <tt>true</tt> if sections should be loaded lazily
+     */
+    public boolean loadLazily()
+    {
+        return loadLazily;
+    }
+
+    public boolean omitDataCollector()
+    {
+        return omitDataCollector;
+    }
+
+    public void setFilter(ParseFilter filter)
+    {
+        this.filter = filter;
+    }
+
+    public void setFollow(boolean val)
+    {
+        follow = val;
+    }
+
+    public void setLoadLazily(boolean val)
+    {
+        loadLazily = val;
+    }
+
+    public void setNumThreads(int val)
+    {
+        numThreads = val;
+    }
+
+    public void setOmitDataCollector(boolean val)
+    {
+        omitDataCollector = val;
+    }
+
+    public void setUseCache(boolean val)
+    {
+        useCache = val;
+    }
+
+    public void setVerbose(boolean val)
+    {
+        verbose = val;
+    }
+
+    public boolean useCache()
+    {
+        return useCache;
+    }
+
+    public boolean verbose()
+    {
+        return verbose;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder("LoadOptions[");
+        buf.append(follow ? "" : "!").append("follow ");
+        buf.append(loadLazily ? "" : "!").append("loadLazily ");
+        buf.append(numThreads).append(" threads ");
+        buf.append(omitDataCollector ? "" : "!").append("omitDataCollector ");
+        buf.append(useCache ? "" : "!").append("useCache ");
+        buf.append(verbose ? "" : "!").append("verbose");
+        if (filter != null) {
+            buf.append(" ").append(filter);
+        }
+        buf.append("]");
+
+        return buf.toString();
+    }
+}
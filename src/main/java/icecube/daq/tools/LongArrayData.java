@@ -0,0 +1,72 @@
+package icecube.daq.tools;
+
+import org.jfree.data.time.Second;
+import org.jfree.data.time.TimeSeries;
+
+class LongArrayData
+    extends MapArrayData
+{
+    private long[] array;
+
+    LongArrayData(ChartTime time, int length)
+    {
+        super(time);
+
+        array = new long[length];
+    }
+
+    void addLong(int index, long val)
+        throws StatParseException
+    {
+        if (index < 0) {
+            throw new StatParseException("Bad index #" + index + " (subzero)");
+        } else if (index >= array.length) {
+            throw new StatParseException("Bad index #" + index + " (max is " +
+                                         (array.length - 1) + ")");
+        }
+
+        array[index] = val;
+    }
+
+    void addToSeries(TimeSeries series, Second seconds, int index)
+    {
+        series.add(seconds, array[index]);
+    }
+
+    @Override
+    public StatParent createParent()
+    {
+        return new MapArrayStat();
+    }
+
+    long getTotalLong() {
+        long total = 0;
+        for (int idx = 0; idx < array.length; idx++) {
+            total += array[idx];
+        }
+        return total;
+    }
+
+    @Override
+    long getValueLong(int index) {
+        return array[index];
+    }
+
+    @Override
+    String getValueString(int index)
+    {
+        return Long.toString(array[index]);
+    }
+
+    @Override
+    boolean isLong()
+    {
+        return true;
+    }
+
+    @Override
+    int length()
+    {
+        return array.length;
+    }
+}
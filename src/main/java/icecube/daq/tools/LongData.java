@@ -0,0 +1,37 @@
+package icecube.daq.tools;
+
+class LongData
+    extends BaseData
+{
+    private long val;
+
+    LongData(ChartTime time, long val)
+    {
+        super(time);
+
+        this.val = val;
+    }
+
+    @Override
+    public StatParent createParent()
+    {
+        return new LongStat();
+    }
+
+    @Override
+    public String getDataString()
+    {
+        return Long.toString(val);
+    }
+
+    long getValue()
+    {
+        return val;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return val == 0L;
+    }
+}
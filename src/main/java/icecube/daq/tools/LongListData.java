@@ -0,0 +1,63 @@
+package icecube.daq.tools;
+
+class LongListData
+    extends ListData
+{
+    private long[] vals;
+
+    LongListData(ChartTime time, long[] vals)
+    {
+        super(time);
+
+        this.vals = vals;
+    }
+
+    @Override
+    public String getDataString()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < vals.length; i++) {
+            if (i > 0) {
+                buf.append(' ');
+            }
+
+            buf.append(vals[i]);
+        }
+        return buf.toString();
+    }
+
+    long getEntry(int i)
+    {
+        return vals[i];
+    }
+
+    @Override
+    int getNumEntries()
+    {
+        return vals.length;
+    }
+
+    @Override
+    double getRawValue(int i)
+    {
+        return (double) vals[i];
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        if (vals == null || vals.length == 0) {
+            return true;
+        }
+
+        boolean allZero = true;
+        for (int i = 0; i < vals.length; i++) {
+            if (vals[0] != 0L) {
+                allZero = false;
+                break;
+            }
+        }
+
+        return allZero;
+    }
+}
@@ -1,240 +1,323 @@
 package icecube.daq.tools;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 
-import org.jfree.data.time.Second;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
-
-class LongData
-    extends BaseData
+class LongParser
+    extends BaseStatParser
 {
-    private long val;
-
-    LongData(ChartTime time, long val)
-    {
-        super(time);
+    private static final Pattern STAT_PAT =
+        Pattern.compile(
+            "^(\\s+([^\\s:]+)|\\s*(.+)\\s*):?\\s+([\\-\\+]?\\d+)L?\\s*$");
 
-        this.val = val;
-    }
+    private ScalarScanner scanner = new ScalarScanner();
 
     @Override
-    StatParent createParent()
+    boolean canParse(LineShape shape, boolean hasTiming)
     {
-        return new LongStat();
+        return shape == LineShape.NUMBER || shape == LineShape.LONG_NUMBER;
     }
 
     @Override
-    String getDataString()
-    {
-        return Long.toString(val);
-    }
-
-    long getValue()
+    public boolean mayMatch(String line)
     {
-        return val;
+        return LineShape.endsWithNumber(line, false, true);
     }
 
     @Override
-    boolean isEmpty()
+    public int getTier()
     {
-        return val == 0L;
+        return 100;
     }
-}
 
-class LongParser
-    extends BaseStatParser
-{
-    private static final Pattern STAT_PAT =
-        Pattern.compile(
-            "^(\\s+([^\\s:]+)|\\s*(.+)\\s*):?\\s+([\\-\\+]?\\d+)L?\\s*$");
-
-    Map<String, BaseData> parseLine(ChartTime time, String line,
-                                    boolean verbose)
-        throws StatParseException
+    public boolean parseLine(ChartTime time, String line,
+                             SampleSink sink, boolean verbose)
     {
+        if (scanner.scanLong(line) && !scanner.isOverflow()) {
+            sink.addLong(scanner.getName(), time, scanner.getLong());
+            return true;
+        }
+
         Matcher matcher = STAT_PAT.matcher(line);
         if (!matcher.find()) {
-            return null;
+            return false;
         }
 
         final long val;
         try {
             val = Long.parseLong(matcher.group(4));
         } catch (NumberFormatException nfe) {
-            throw new StatParseException("Bad number \"" + matcher.group(4) +
-                                         "\" in \"" + line + "\"");
+            sink.reject("Bad number \"" + matcher.group(4) + "\"");
+            return true;
         }
 
         String name = matcher.group(2);
         if (name == null) {
             name = matcher.group(3);
             if (name == null) {
-                throw new StatParseException("No name found in \"" + line +
-                                             "\"");
+                sink.reject("No name found");
+                return true;
             }
         }
 
-        final LongData data = new LongData(time, val);
+        sink.addLong(name, time, val);
+        return true;
+    }
+}
+
+/**
+ * Samples stored in a <tt>LongStat</tt> when the view was created
+ */
+class LongColumns
+    implements SampleColumns
+{
+    private final long[] times;
+    private final long[] values;
+    private final int count;
+
+    LongColumns(long[] times, long[] values, int count)
+    {
+        this.times = times;
+        this.values = values;
+        this.count = count;
+    }
+
+    public double getPlotDelta(int idx, int prevIdx)
+    {
+        return (double) (values[idx] - values[prevIdx]);
+    }
+
+    public double getPlotValue(int idx)
+    {
+        return (double) values[idx];
+    }
+
+    public long getTime(int idx)
+    {
+        return times[idx];
+    }
+
+    public SampleColumns getView()
+    {
+        return this;
+    }
 
-        Map<String, BaseData> map = new HashMap<String, BaseData>();
-        map.put(name, data);
-        return map;
+    public int size()
+    {
+        return count;
     }
 }
 
 class LongStat
     extends StatParent<LongData>
+    implements SampleColumns
 {
     private static final Logger LOG = Logger.getLogger(LongStat.class);
 
-    private TimeSeries[] generateSeries(SectionKey key, String name,
-                                        PlotArguments pargs)
-        throws StatPlotException
+    private static final int INITIAL_SIZE = 16;
+
+    /** Sample times, in milliseconds */
+    private long[] times;
+    /** Sample values */
+    private long[] values;
+    /** Number of samples */
+    private int count;
+
+    LongStat()
     {
-        final String seriesName = pargs.getSeriesName(key, name);
+    }
 
-        return new TimeSeries[] {
-            new TimeSeries(seriesName, Second.class),
-        };
+    /**
+     * Create a statistic from previously saved columns
+     *
+     * @param times sample times in milliseconds
+     * @param values sample values
+     */
+    LongStat(long[] times, long[] values)
+    {
+        this.times = times;
+        this.values = values;
+        this.count = times.length;
     }
 
-    public TimeSeriesCollection plot(TimeSeriesCollection coll, SectionKey key,
-                                     String name, PlotArguments pargs)
-        throws StatPlotException
+    @Override
+    boolean accepts(BaseData datum)
+    {
+        return datum instanceof LongData;
+    }
+
+    @Override
+    void add(LongData data)
     {
-        TimeSeries series[] = generateSeries(key, name, pargs);
-        for (TimeSeries entry : series) {
-            coll.addSeries(entry);
+        add(data.getTime().getTime(), data.getValue());
+    }
+
+    /**
+     * Add a sample
+     *
+     * @param time sample time in milliseconds
+     * @param val sample value
+     */
+    void add(long time, long val)
+    {
+        if (times == null) {
+            times = new long[INITIAL_SIZE];
+            values = new long[INITIAL_SIZE];
+        } else if (count == times.length) {
+            final int newLen = times.length * 2;
+            times = Arrays.copyOf(times, newLen);
+            values = Arrays.copyOf(values, newLen);
         }
 
-        for (BaseData bd : iterator()) {
-            LongData data = (LongData) bd;
+        times[count] = time;
+        values[count] = val;
+        count++;
+    }
 
-            Second seconds;
-            try {
-                seconds = data.getTime().getSecond();
-            } catch (Exception exc) {
-                LOG.error("Cannot extract seconds from " + data);
-                continue;
-            }
+    @Override
+    boolean addAll(StatParent<?> other)
+    {
+        if (!(other instanceof LongStat)) {
+            return false;
+        }
 
-            final long val = data.getValue();
-            try {
-                series[0].add(seconds, val);
-            } catch (Exception exc) {
-                long oldVal;
-                try {
-                    oldVal = (long) series[0].getDataItem(seconds).getValue();
-                } catch (Exception ex2) {
-                    LOG.error("Cannot get previous value from series \"" +
-                              pargs.getSeriesName(key, name) + "\"");
-                    continue;
-                }
-
-                if (Math.abs(val - oldVal) > 2) {
-                    LOG.error("Series \"" + pargs.getSeriesName(key, name) +
-                              "\" already contains " + oldVal + " at " +
-                              seconds + ", cannot add value " + val);
-                    continue;
-                }
-            }
+        LongStat stat = (LongStat) other;
+        if (stat.count == 0) {
+            return true;
         }
 
-        return coll;
+        final int newCount = count + stat.count;
+        if (times == null) {
+            times = new long[Math.max(INITIAL_SIZE, newCount)];
+            values = new long[times.length];
+        } else if (newCount > times.length) {
+            final int newLen = Math.max(times.length * 2, newCount);
+            times = Arrays.copyOf(times, newLen);
+            values = Arrays.copyOf(values, newLen);
+        }
+
+        System.arraycopy(stat.times, 0, times, count, stat.count);
+        System.arraycopy(stat.values, 0, values, count, stat.count);
+        count = newCount;
+
+        return true;
     }
 
-    public TimeSeriesCollection plotDelta(TimeSeriesCollection coll,
-                                          SectionKey key, String name,
-                                          PlotArguments pargs)
-        throws StatPlotException
+    public double getPlotDelta(int idx, int prevIdx)
     {
-        TimeSeries series[] = generateSeries(key, name, pargs);
-        for (TimeSeries entry : series) {
-            coll.addSeries(entry);
-        }
+        return (double) (values[idx] - values[prevIdx]);
+    }
 
-        long prevVal = 0;
-        boolean firstVal = true;
-
-        for (BaseData bd : iterator()) {
-            LongData data = (LongData) bd;
-
-            if (firstVal) {
-                firstVal = false;
-            } else {
-                Second seconds;
-                try {
-                    seconds = data.getTime().getSecond();
-                } catch (Exception exc) {
-                    LOG.error("Cannot extract seconds from " + data);
-                    continue;
-                }
-
-                long deltaVal;
-                try {
-                    deltaVal = data.getValue() - prevVal;
-                } catch (Exception exc) {
-                    LOG.error("Cannot compute delta for " + data);
-                    continue;
-                }
-
-                try {
-                    series[0].add(seconds, deltaVal);
-                } catch (Exception exc) {
-                    long oldVal;
-                    try {
-                        oldVal =
-                            (long) series[0].getDataItem(seconds).getValue();
-                    } catch (Exception ex2) {
-                        LOG.error("Cannot get previous value from series \"" +
-                                  pargs.getSeriesName(key, name) + "\"");
-                        continue;
+    public double getPlotValue(int idx)
+    {
+        return (double) values[idx];
+    }
+
+    public long getTime(int idx)
+    {
+        return times[idx];
+    }
+
+    public SampleColumns getView()
+    {
+        // stored samples are never overwritten and the arrays are
+        // replaced when they grow, so the view can share them
+        return new LongColumns(times, values, count);
+    }
+
+    /**
+     * Get the value of a sample
+     *
+     * @param idx sample index
+     *
+     * @return value
+     */
+    long getValue(int idx)
+    {
+        return values[idx];
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return count < 2;
+    }
+
+    /**
+     * Build sample objects on demand, since they are not stored
+     *
+     * @return iterable sample objects
+     */
+    @Override
+    public Iterable<LongData> iterator()
+    {
+        return new Iterable<LongData>() {
+            public Iterator<LongData> iterator()
+            {
+                return new Iterator<LongData>() {
+                    private int next;
+
+                    public boolean hasNext()
+                    {
+                        return next < count;
                     }
 
-                    if (Math.abs(deltaVal - oldVal) > 2) {
-                        LOG.error("Series \"" +
-                                  pargs.getSeriesName(key, name) +
-                                  "\" already contains " + oldVal + " at " +
-                                  seconds + ", cannot add value " + deltaVal +
-                                  " (from " + data.getValue() + ")");
-                        continue;
+                    public LongData next()
+                    {
+                        if (next >= count) {
+                            throw new NoSuchElementException();
+                        }
+
+                        final int idx = next++;
+                        return new LongData(new ChartTime(times[idx]),
+                                            values[idx]);
                     }
-                }
-            }
 
-            prevVal = data.getValue();
-        }
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
 
+    public StatDataset plot(StatDataset coll, SectionKey key, String name,
+                            PlotArguments pargs)
+        throws StatPlotException
+    {
+        coll.addSeries(new ColumnSeries(pargs.getSeriesName(key, name), this,
+                                        ColumnSeries.Mode.PLAIN));
         return coll;
     }
 
-    public TimeSeriesCollection plotScaled(TimeSeriesCollection coll,
-                                           SectionKey key, String name,
-                                           PlotArguments pargs)
+    public StatDataset plotDelta(StatDataset coll, SectionKey key, String name,
+                                 PlotArguments pargs)
         throws StatPlotException
     {
-        TimeSeries series[] = generateSeries(key, name, pargs);
-        for (TimeSeries entry : series) {
-            coll.addSeries(entry);
-        }
+        coll.addSeries(new ColumnSeries(pargs.getSeriesName(key, name), this,
+                                        ColumnSeries.Mode.DELTA));
+        return coll;
+    }
 
+    public StatDataset plotScaled(StatDataset coll, SectionKey key,
+                                  String name, PlotArguments pargs)
+        throws StatPlotException
+    {
         long minVal = Long.MAX_VALUE;
         long maxVal = Long.MIN_VALUE;
 
-        for (BaseData bd : iterator()) {
-            LongData data = (LongData) bd;
-
-            if (data.getValue() < minVal) {
-                minVal = data.getValue();
+        for (int i = 0; i < count; i++) {
+            if (values[i] < minVal) {
+                minVal = values[i];
             }
-            if (data.getValue() > maxVal) {
-                maxVal = data.getValue();
+            if (values[i] > maxVal) {
+                maxVal = values[i];
             }
         }
 
@@ -242,44 +325,63 @@ class LongStat
         if (div == 0.0) {
             LOG.error("Series \"" + pargs.getSeriesName(key, name) +
                       "\" min/max values are identical; skipping");
-            return null;
+            return coll;
         }
 
-        for (BaseData bd : iterator()) {
-            LongData data = (LongData) bd;
+        coll.addSeries(new ColumnSeries(pargs.getSeriesName(key, name), this,
+                                        (double) minVal, div));
+        return coll;
+    }
 
-            Second seconds;
-            try {
-                seconds = data.getTime().getSecond();
-            } catch (Exception exc) {
-                LOG.error("Cannot extract seconds from " + data);
-                continue;
-            }
+    @Override
+    public int size()
+    {
+        return count;
+    }
 
-            double val = ((double) (data.getValue() - minVal)) / div;
-
-            try {
-                series[0].add(seconds, val);
-            } catch (Exception exc) {
-                double oldVal;
-                try {
-                    oldVal = (long) series[0].getDataItem(seconds).getValue();
-                } catch (Exception ex2) {
-                    LOG.error("Cannot get previous value from series \"" +
-                              pargs.getSeriesName(key, name) + "\"");
-                    continue;
-                }
-
-                if (Math.abs(val - oldVal) > 0.2) {
-                    LOG.error("Series \"" + pargs.getSeriesName(key, name) +
-                              "\" already contains " + oldVal + " at " +
-                              seconds + ", cannot add value " + val +
-                              " (from " + data + ")");
-                    continue;
-                }
+    /**
+     * Convert this statistic's samples to floating-point values, for
+     * statistics which mix integer and floating-point samples
+     *
+     * @return new statistic
+     */
+    DoubleStat toDoubleStat()
+    {
+        final long[] newTimes = new long[count];
+        final double[] newValues = new double[count];
+        for (int i = 0; i < count; i++) {
+            newTimes[i] = times[i];
+            newValues[i] = (double) values[i];
+        }
+
+        return new DoubleStat(newTimes, newValues);
+    }
+
+    @Override
+    void trimToSize()
+    {
+        if (times != null && count < times.length) {
+            times = Arrays.copyOf(times, count);
+            values = Arrays.copyOf(values, count);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        if (times == null) {
+            return "null";
+        }
+
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buf.append(", ");
             }
+            buf.append(times[i]).append('=').append(values[i]);
         }
+        buf.append(']');
 
-        return coll;
+        return buf.toString();
     }
 }
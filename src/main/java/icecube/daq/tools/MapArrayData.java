@@ -0,0 +1,82 @@
+package icecube.daq.tools;
+
+import org.jfree.data.time.Second;
+import org.jfree.data.time.TimeSeries;
+
+abstract class MapArrayData
+    extends BaseData
+{
+    MapArrayData(ChartTime time) {
+        super(time);
+    }
+
+    void addDouble(int index, double val)
+        throws StatParseException
+    {
+        throw new Error("Unimplemented");
+    }
+
+    void addLong(int index, long val)
+        throws StatParseException
+    {
+        throw new Error("Unimplemented");
+    }
+
+    abstract void addToSeries(TimeSeries series, Second seconds, int index);
+
+    @Override
+    public String getDataString()
+    {
+        return toString();
+    }
+
+    double getTotalDouble(int index) {
+        throw new Error("Unimplemented");
+    }
+
+    long getTotalLong(int index) {
+        throw new Error("Unimplemented");
+    }
+
+    double getValueDouble(int index) {
+        throw new Error("Unimplemented");
+    }
+
+    long getValueLong(int index) {
+        throw new Error("Unimplemented");
+    }
+
+    abstract String getValueString(int index);
+
+    boolean isDouble()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return false;
+    }
+
+    boolean isLong()
+    {
+        return false;
+    }
+
+    abstract int length();
+
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder("[");
+        for (int idx = 0; idx < length(); idx++) {
+            if (idx > 0) {
+                buf.append(", ");
+            }
+            buf.append(getValueString(idx));
+        }
+        buf.append("]");
+        return buf.toString();
+    }
+}
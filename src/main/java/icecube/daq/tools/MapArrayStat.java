@@ -1,5 +1,6 @@
 package icecube.daq.tools;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -9,249 +10,75 @@ import org.apache.log4j.Logger;
 
 import org.jfree.data.time.Second;
 import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
 
-abstract class MapArrayData
-    extends BaseData
-{
-    MapArrayData(ChartTime time) {
-        super(time);
-    }
-
-    void addDouble(int index, double val)
-        throws StatParseException
-    {
-        throw new Error("Unimplemented");
-    }
-
-    void addLong(int index, long val)
-        throws StatParseException
-    {
-        throw new Error("Unimplemented");
-    }
-
-    abstract void addToSeries(TimeSeries series, Second seconds, int index);
-
-    @Override
-    String getDataString()
-    {
-        return toString();
-    }
-
-    double getTotalDouble(int index) {
-        throw new Error("Unimplemented");
-    }
-
-    long getTotalLong(int index) {
-        throw new Error("Unimplemented");
-    }
-
-    double getValueDouble(int index) {
-        throw new Error("Unimplemented");
-    }
-
-    long getValueLong(int index) {
-        throw new Error("Unimplemented");
-    }
-
-    abstract String getValueString(int index);
-
-    boolean isDouble()
-    {
-        return false;
-    }
-
-    @Override
-    boolean isEmpty()
-    {
-        return false;
-    }
-
-    boolean isLong()
-    {
-        return false;
-    }
-
-    abstract int length();
-
-    @Override
-    public String toString()
-    {
-        StringBuilder buf = new StringBuilder("[");
-        for (int idx = 0; idx < length(); idx++) {
-            if (idx > 0) {
-                buf.append(", ");
-            }
-            buf.append(getValueString(idx));
-        }
-        buf.append("]");
-        return buf.toString();
-    }
-}
-
-class DoubleArrayData
-    extends MapArrayData
+class MapArrayParser
+    extends BaseStatParser
 {
-    private double[] array;
-
-    DoubleArrayData(ChartTime time, int length)
-    {
-        super(time);
-
-        this.array = new double[length];
-    }
-
-    void addDouble(int index, double val)
-        throws StatParseException
-    {
-        if (index < 0) {
-            throw new StatParseException("Bad index #" + index + " (subzero)");
-        } else if (index >= array.length) {
-            throw new StatParseException("Bad index #" + index + " (max is " +
-                                         (array.length - 1) + ")");
-        }
-
-        array[index] = val;
-    }
-
-    void addToSeries(TimeSeries series, Second seconds, int index)
-    {
-        series.add(seconds, array[index]);
-    }
+    private static final Logger LOG = Logger.getLogger(MapArrayParser.class);
 
-    @Override
-    StatParent createParent()
-    {
-        return new MapArrayStat();
-    }
+    private static final Pattern STAT_PAT =
+        Pattern.compile("^\\s*(\\S+):\\s*\\{(.*)\\}\\s*$");
+    private static final Pattern ENTRY_PAT =
+        Pattern.compile("^\\s*['\"](\\S+)['\"]:?\\s+\\[([^\\]]*)\\]\\s*,?");
 
-    double getTotalDouble() {
-        double total = 0.0;
-        for (int idx = 0; idx < array.length; idx++) {
-            total += array[idx];
-        }
-        return total;
-    }
+    private static final Pattern COMMA_PAT =
+        Pattern.compile("\\s*,\\s*");
 
-    @Override
-    double getValueDouble(int index) {
-        return array[index];
-    }
+    /** Names of the entries parsed from the current line */
+    private ArrayList<String> entryNames = new ArrayList<String>();
+    /** Values of the entries parsed from the current line */
+    private ArrayList<MapArrayData> entryData = new ArrayList<MapArrayData>();
 
     @Override
-    String getValueString(int index)
+    boolean canParse(LineShape shape, boolean hasTiming)
     {
-        return Double.toString(array[index]);
+        return shape == LineShape.MAP;
     }
 
     @Override
-    boolean isDouble()
+    public boolean mayMatch(String line)
     {
-        return true;
+        return LineShape.endsWith(line, "}");
     }
 
     @Override
-    int length()
+    public int getTier()
     {
-        return array.length;
+        return 100;
     }
-}
 
-class LongArrayData
-    extends MapArrayData
-{
-    private long[] array;
-
-    LongArrayData(ChartTime time, int length)
+    /**
+     * Remember a parsed entry, replacing any earlier entry with the same
+     * name
+     *
+     * @param name statistic name
+     * @param data entry values
+     */
+    private void addEntry(String name, MapArrayData data)
     {
-        super(time);
-
-        array = new long[length];
-    }
-
-    void addLong(int index, long val)
-        throws StatParseException
-    {
-        if (index < 0) {
-            throw new StatParseException("Bad index #" + index + " (subzero)");
-        } else if (index >= array.length) {
-            throw new StatParseException("Bad index #" + index + " (max is " +
-                                         (array.length - 1) + ")");
-        }
-
-        array[index] = val;
-    }
-
-    void addToSeries(TimeSeries series, Second seconds, int index)
-    {
-        series.add(seconds, array[index]);
-    }
-
-    @Override
-    StatParent createParent()
-    {
-        return new MapArrayStat();
-    }
-
-    long getTotalLong() {
-        long total = 0;
-        for (int idx = 0; idx < array.length; idx++) {
-            total += array[idx];
+        final int idx = entryNames.indexOf(name);
+        if (idx >= 0) {
+            entryData.set(idx, data);
+        } else {
+            entryNames.add(name);
+            entryData.add(data);
         }
-        return total;
-    }
-
-    @Override
-    long getValueLong(int index) {
-        return array[index];
     }
 
-    @Override
-    String getValueString(int index)
-    {
-        return Long.toString(array[index]);
-    }
-
-    @Override
-    boolean isLong()
-    {
-        return true;
-    }
-
-    @Override
-    int length()
-    {
-        return array.length;
-    }
-}
-
-class MapArrayParser
-    extends BaseStatParser
-{
-    private static final Logger LOG = Logger.getLogger(MapArrayParser.class);
-
-    private static final Pattern STAT_PAT =
-        Pattern.compile("^\\s*(\\S+):\\s*\\{(.*)\\}\\s*$");
-    private static final Pattern ENTRY_PAT =
-        Pattern.compile("^\\s*['\"](\\S+)['\"]:?\\s+\\[([^\\]]*)\\]\\s*,?");
-
-    private static final Pattern COMMA_PAT =
-        Pattern.compile("\\s*,\\s*");
-
-
-    Map<String, BaseData> parseLine(ChartTime time, String line,
-                                    boolean verbose)
+    public boolean parseLine(ChartTime time, String line,
+                             SampleSink sink, boolean verbose)
     {
         Matcher matcher = STAT_PAT.matcher(line);
         if (!matcher.find()) {
-            return null;
+            return false;
         }
 
         String name = matcher.group(1);
         String dataStr = matcher.group(2);
 
-        Map<String, BaseData> dataMap =
-            new HashMap<String, BaseData>();
+        // entries are only saved if every entry can be parsed
+        entryNames.clear();
+        entryData.clear();
 
 boolean debug = false;
 if(debug)System.err.printf("--- PARSE %s // %s\n", name, dataStr);
@@ -268,19 +95,23 @@ if(debug)System.err.println("--- PARSE done");
 if(debug)System.err.printf("\tPFOUND %s // %s\n", fldName, fldList);
             try {
                 MapArrayData data = parseList(time, fldName, fldList, verbose);
-                dataMap.put(name + "_" + fldName, data);
+                addEntry(name + "_" + fldName, data);
             } catch (StatParseException spe) {
                 if (verbose) {
                     LOG.error("Cannot parse \"" + line.trim() + "\"", spe);
                 }
 if(debug)System.err.println("--- PARSE failed");
-                return null;
+                return false;
             }
 
             dataStr = dataStr.substring(matcher.end());
         }
 
-        return dataMap;
+        for (int i = 0; i < entryNames.size(); i++) {
+            sink.add(entryNames.get(i), entryData.get(i));
+        }
+
+        return true;
     }
 
     private static MapArrayData parseList(ChartTime time, String name,
@@ -394,9 +225,8 @@ class MapArrayStat
         return first.length();
     }
 
-    public TimeSeriesCollection plot(TimeSeriesCollection coll,
-                                     SectionKey key, String name,
-                                     PlotArguments pargs)
+    public StatDataset plot(StatDataset coll, SectionKey key, String name,
+                            PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -444,16 +274,14 @@ class MapArrayStat
         return coll;
     }
 
-    public TimeSeriesCollection plotDelta(TimeSeriesCollection coll,
-                                          SectionKey key, String name,
-                                          PlotArguments pargs)
+    public StatDataset plotDelta(StatDataset coll, SectionKey key, String name,
+                                 PlotArguments pargs)
     {
         throw new Error("Unimplemented");
     }
 
-    public TimeSeriesCollection plotScaled(TimeSeriesCollection coll,
-                                           SectionKey key, String name,
-                                           PlotArguments pargs)
+    public StatDataset plotScaled(StatDataset coll, SectionKey key,
+                                  String name, PlotArguments pargs)
     {
         throw new Error("Unimplemented");
     }
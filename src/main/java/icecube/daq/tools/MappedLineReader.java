@@ -0,0 +1,289 @@
+package icecube.daq.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read lines from an uncompressed file by mapping it into memory.  Each
+ * line is returned as a view of the mapped bytes, so lines which are
+ * parsed without ever being converted to a <tt>String</tt> cost no
+ * decoding or allocation.  Line terminators are the same as
+ * <tt>BufferedReader.readLine()</tt> (<tt>\n</tt>, <tt>\r</tt> or
+ * <tt>\r\n</tt>).
+ *
+ * This class is not thread-safe, and the returned line is overwritten by
+ * the next call to <tt>readLine()</tt>.
+ */
+class MappedLineReader
+{
+    /** Number of bytes mapped at a time */
+    private static final long WINDOW_SIZE = 64L * 1024L * 1024L;
+    /** Consumed bytes are passed to the progress monitor in batches */
+    private static final int PROGRESS_BATCH = 65536;
+
+    /** Charset used by <tt>FileReader</tt> for non-ASCII lines */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private RandomAccessFile raf;
+    private FileChannel channel;
+
+    /** File offset after the last byte to read */
+    private long end;
+
+    /** Currently mapped bytes */
+    private MappedByteBuffer buf;
+    /** File offset of the first mapped byte */
+    private long bufStart;
+    /** Index of the next unread byte in 'buf' */
+    private int pos;
+
+    /** If non-null, count the bytes read */
+    private FileProgress progress;
+    /** Bytes consumed but not yet passed to 'progress' */
+    private int unreported;
+
+    private ByteLine line = new ByteLine();
+
+    /**
+     * Read an entire file
+     *
+     * @param file uncompressed file
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    MappedLineReader(File file)
+        throws IOException
+    {
+        this(file, 0L, file.length());
+    }
+
+    /**
+     * Read part of a file
+     *
+     * @param file uncompressed file
+     * @param start offset of the first byte to read
+     * @param end offset after the last byte to read
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    MappedLineReader(File file, long start, long end)
+        throws IOException
+    {
+        raf = new RandomAccessFile(file, "r");
+        channel = raf.getChannel();
+
+        this.end = Math.min(end, channel.size());
+
+        bufStart = start;
+        pos = 0;
+    }
+
+    /**
+     * Release the file.  The mapping itself is released when it is
+     * garbage-collected.
+     */
+    void close()
+    {
+        flushProgress();
+
+        buf = null;
+        try {
+            raf.close();
+        } catch (IOException ioe) {
+            // ignore errors on close
+        }
+    }
+
+    private void flushProgress()
+    {
+        if (progress != null && unreported > 0) {
+            progress.addBytes(unreported);
+        }
+        unreported = 0;
+    }
+
+    /**
+     * Map the bytes starting at the first unread byte
+     *
+     * @param minSize map at least this many bytes (if the file is long
+     *                enough)
+     *
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map(long minSize)
+        throws IOException
+    {
+        final long offset = bufStart + pos;
+        final long size = Math.min(Math.max(WINDOW_SIZE, minSize),
+                                   end - offset);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Line at offset " + offset +
+                                  " is too long to map");
+        }
+
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        bufStart = offset;
+        pos = 0;
+    }
+
+    /**
+     * Read the next line
+     *
+     * @return reusable view of the line, without the terminator, or
+     *         <tt>null</tt> at the end of the file
+     *
+     * @throws IOException if the file cannot be read
+     */
+    ByteLine readLine()
+        throws IOException
+    {
+        if (buf == null || pos >= buf.limit()) {
+            if (bufStart + (buf == null ? 0 : buf.limit()) >= end) {
+                flushProgress();
+                return null;
+            }
+
+            if (buf != null) {
+                bufStart += buf.limit();
+                pos = 0;
+            }
+            map(0L);
+        }
+
+        while (true) {
+            final int limit = buf.limit();
+            final boolean atEnd = bufStart + limit >= end;
+
+            boolean ascii = true;
+            int idx = pos;
+            while (idx < limit) {
+                final byte b = buf.get(idx);
+                if (b == '\n' || b == '\r') {
+                    break;
+                } else if (b < 0) {
+                    ascii = false;
+                }
+                idx++;
+            }
+
+            if (idx == limit && !atEnd) {
+                // the line continues past the mapped bytes
+                map((long) (limit - pos) * 2L);
+                continue;
+            }
+
+            int next = idx;
+            if (idx < limit) {
+                next++;
+                if (buf.get(idx) == '\r') {
+                    if (next < limit) {
+                        if (buf.get(next) == '\n') {
+                            next++;
+                        }
+                    } else if (!atEnd) {
+                        // make sure a following '\n' is seen
+                        map((long) (limit - pos) * 2L + 1L);
+                        continue;
+                    }
+                }
+            }
+
+            line.set(pos, idx - pos, ascii);
+
+            unreported += next - pos;
+            if (unreported >= PROGRESS_BATCH) {
+                flushProgress();
+            }
+
+            pos = next;
+            return line;
+        }
+    }
+
+    void setProgress(FileProgress progress)
+    {
+        this.progress = progress;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MappedLineReader[" + (bufStart + pos) + "/" + end + "]";
+    }
+
+    /**
+     * A line of mapped bytes.  Bytes are returned as ISO-8859-1
+     * characters, which matches the decoded line when every byte is ASCII.
+     */
+    class ByteLine
+        implements CharSequence
+    {
+        private int start;
+        private int length;
+        private boolean ascii;
+
+        /** Buffer used to copy bytes out of the mapping */
+        private byte[] copy = new byte[256];
+
+        public char charAt(int index)
+        {
+            return (char) (buf.get(start + index) & 0xff);
+        }
+
+        /**
+         * Is every byte in the line an ASCII character?
+         *
+         * @return <tt>false</tt> if the line must be decoded
+         */
+        boolean isAscii()
+        {
+            return ascii;
+        }
+
+        public int length()
+        {
+            return length;
+        }
+
+        void set(int start, int length, boolean ascii)
+        {
+            this.start = start;
+            this.length = length;
+            this.ascii = ascii;
+        }
+
+        public CharSequence subSequence(int from, int to)
+        {
+            return toString().substring(from, to);
+        }
+
+        /**
+         * Decode the line exactly as <tt>FileReader</tt> would
+         *
+         * @return line
+         */
+        @Override
+        public String toString()
+        {
+            if (copy.length < length) {
+                copy = new byte[Math.max(length, copy.length * 2)];
+            }
+
+            for (int i = 0; i < length; i++) {
+                copy[i] = buf.get(start + i);
+            }
+
+            if (ascii) {
+                return new String(copy, 0, length,
+                                  StandardCharsets.ISO_8859_1);
+            }
+
+            return new String(copy, 0, length, CHARSET);
+        }
+    }
+}
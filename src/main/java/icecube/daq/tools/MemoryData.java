@@ -0,0 +1,49 @@
+package icecube.daq.tools;
+
+class MemoryData
+    extends BaseData
+{
+    private long usedMem;
+    private long freeMem;
+
+    MemoryData(ChartTime time, long[] vals)
+    {
+        this(time, vals[0], vals[1]);
+    }
+
+    MemoryData(ChartTime time, long usedMem, long freeMem)
+    {
+        super(time);
+
+        this.usedMem = usedMem;
+        this.freeMem = freeMem;
+    }
+
+    @Override
+    public StatParent createParent()
+    {
+        return new MemoryStat();
+    }
+
+    @Override
+    public String getDataString()
+    {
+        return Long.toString(usedMem) + " used, " + freeMem + " free";
+    }
+
+    long getFreeMemory()
+    {
+        return freeMem;
+    }
+
+    long getUsedMemory()
+    {
+        return usedMem;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return usedMem == 0L && freeMem == 0L;
+    }
+}
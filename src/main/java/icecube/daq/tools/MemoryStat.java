@@ -1,7 +1,5 @@
 package icecube.daq.tools;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -9,86 +7,54 @@ import org.apache.log4j.Logger;
 
 import org.jfree.data.time.Second;
 import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
 
-class MemoryData
-    extends BaseData
+class MemoryParser
+    extends BaseStatParser
 {
-    private long usedMem;
-    private long freeMem;
-
-    MemoryData(ChartTime time, long[] vals)
-    {
-        this(time, vals[0], vals[1]);
-    }
-
-    MemoryData(ChartTime time, long usedMem, long freeMem)
-    {
-        super(time);
-
-        this.usedMem = usedMem;
-        this.freeMem = freeMem;
-    }
+    private static final Pattern STAT_PAT =
+        Pattern.compile("^(\\s+([^\\s:]+):?|\\s*(.+)\\s*:)" +
+                        "\\s+(\\d+)([KMG]?)\\s+used," +
+                        "\\s+(\\d+)([KMG]?)\\s+of" +
+                        "\\s+(\\d+)([KMG]?)\\s+free\\.$");
 
     @Override
-    StatParent createParent()
+    boolean canParse(LineShape shape, boolean hasTiming)
     {
-        return new MemoryStat();
+        return shape == LineShape.PERIOD;
     }
 
     @Override
-    String getDataString()
+    public boolean mayMatch(String line)
     {
-        return Long.toString(usedMem) + " used, " + freeMem + " free";
-    }
-
-    long getFreeMemory()
-    {
-        return freeMem;
-    }
-
-    long getUsedMemory()
-    {
-        return usedMem;
+        return LineShape.endsWith(line, "free.");
     }
 
     @Override
-    boolean isEmpty()
+    public int getTier()
     {
-        return usedMem == 0L && freeMem == 0L;
+        return 100;
     }
-}
 
-class MemoryParser
-    extends BaseStatParser
-{
-    private static final Pattern STAT_PAT =
-        Pattern.compile("^(\\s+([^\\s:]+):?|\\s*(.+)\\s*:)" +
-                        "\\s+(\\d+)([KMG]?)\\s+used," +
-                        "\\s+(\\d+)([KMG]?)\\s+of" +
-                        "\\s+(\\d+)([KMG]?)\\s+free\\.$");
-
-    Map<String, BaseData> parseLine(ChartTime time, String line,
-                                    boolean verbose)
-        throws StatParseException
+    public boolean parseLine(ChartTime time, String line,
+                             SampleSink sink, boolean verbose)
     {
         Matcher matcher = STAT_PAT.matcher(line);
         if (!matcher.find()) {
-            return null;
+            return false;
         }
 
         String name = matcher.group(2);
         if (name == null) {
             name = matcher.group(3);
             if (name == null) {
-                throw new StatParseException("No name found in \"" + line +
-                                             "\"");
+                sink.reject("No name found");
+                return true;
             }
         }
 
         if (time == null) {
-            throw new StatParseException("Found " + name +
-                                         " stat before time was set");
+            sink.reject("Found " + name + " stat before time was set");
+            return true;
         }
 
         long[] memVals = new long[3];
@@ -98,9 +64,9 @@ class MemoryParser
             try {
                 memVals[i] = Long.parseLong(matcher.group(offset));
             } catch (NumberFormatException nfe) {
-                throw new StatParseException("Bad memory statistic \"" +
-                                             matcher.group(offset) +
-                                             "\" in \"" + line + "\"");
+                sink.reject("Bad memory statistic \"" +
+                            matcher.group(offset) + "\"");
+                return true;
             }
 
             final String suffix = matcher.group(offset + 1);
@@ -123,9 +89,8 @@ class MemoryParser
 
         MemoryData data = new MemoryData(time, memVals);
 
-        Map<String, BaseData> map = new HashMap<String, BaseData>();
-        map.put(name, data);
-        return map;
+        sink.add(name, data);
+        return true;
     }
 }
 
@@ -149,8 +114,8 @@ class MemoryStat
         };
     }
 
-    public TimeSeriesCollection plot(TimeSeriesCollection coll, SectionKey key,
-                                     String name, PlotArguments pargs)
+    public StatDataset plot(StatDataset coll, SectionKey key, String name,
+                            PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -196,9 +161,8 @@ class MemoryStat
         return coll;
     }
 
-    public TimeSeriesCollection plotDelta(TimeSeriesCollection coll,
-                                          SectionKey key, String name,
-                                          PlotArguments pargs)
+    public StatDataset plotDelta(StatDataset coll, SectionKey key, String name,
+                                 PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -259,9 +223,8 @@ class MemoryStat
         return coll;
     }
 
-    public TimeSeriesCollection plotScaled(TimeSeriesCollection coll,
-                                           SectionKey key, String name,
-                                           PlotArguments pargs)
+    public StatDataset plotScaled(StatDataset coll, SectionKey key,
+                                  String name, PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -0,0 +1,205 @@
+package icecube.daq.tools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assign a dense integer ID to every statistic, identified by host,
+ * section and statistic name.  Section keys are interned, so each key is
+ * only built (and its host name split into component and instance) once.
+ * IDs are never reused.
+ */
+class MetricRegistry
+{
+    /** Interned section keys, indexed by host and then by section */
+    private HashMap<String, HashMap<String, SectionKey>> keys =
+        new HashMap<String, HashMap<String, SectionKey>>();
+    /** Metric IDs for each section, indexed by statistic name */
+    private HashMap<SectionKey, HashMap<String, Integer>> sections =
+        new HashMap<SectionKey, HashMap<String, Integer>>();
+
+    /** Section key for each metric ID */
+    private ArrayList<SectionKey> idKeys = new ArrayList<SectionKey>();
+    /** Statistic name for each metric ID */
+    private ArrayList<String> idNames = new ArrayList<String>();
+
+    MetricRegistry()
+    {
+    }
+
+    boolean contains(SectionKey key)
+    {
+        return sections.containsKey(key);
+    }
+
+    /**
+     * Get the ID for a statistic
+     *
+     * @param key section key
+     * @param name statistic name
+     *
+     * @return metric ID, or <tt>-1</tt> if the statistic is unknown
+     */
+    int findId(SectionKey key, String name)
+    {
+        HashMap<String, Integer> ids = sections.get(key);
+        if (ids == null) {
+            return -1;
+        }
+
+        Integer id = ids.get(name);
+        if (id == null) {
+            return -1;
+        }
+
+        return id;
+    }
+
+    /**
+     * Get the IDs of all statistics in a section
+     *
+     * @param key section key
+     *
+     * @return map of statistic names to IDs, or <tt>null</tt> if the
+     *         section is unknown
+     */
+    Map<String, Integer> findIds(SectionKey key)
+    {
+        return sections.get(key);
+    }
+
+    /**
+     * Get the ID for a statistic, assigning a new ID if needed
+     *
+     * @param key section key
+     * @param name statistic name
+     *
+     * @return metric ID
+     */
+    int getId(SectionKey key, String name)
+    {
+        final SectionKey interned = intern(key);
+
+        HashMap<String, Integer> ids = getSection(interned);
+
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = idNames.size();
+            idKeys.add(interned);
+            idNames.add(name);
+            ids.put(name, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Get the IDs of all statistics in a section, adding the section if
+     * needed.  The map is updated as new statistics are added to the
+     * section, so callers may keep it to avoid looking up the section
+     * again, but they must not modify it.
+     *
+     * @param key section key
+     *
+     * @return map of statistic names to IDs
+     */
+    Map<String, Integer> getIds(SectionKey key)
+    {
+        return getSection(intern(key));
+    }
+
+    /**
+     * Get the interned key for a section
+     *
+     * @param host host name
+     * @param section section name
+     *
+     * @return section key
+     */
+    SectionKey getKey(String host, String section)
+    {
+        HashMap<String, SectionKey> hostKeys = keys.get(host);
+        if (hostKeys == null) {
+            hostKeys = new HashMap<String, SectionKey>();
+            keys.put(host, hostKeys);
+        }
+
+        SectionKey key = hostKeys.get(section);
+        if (key == null) {
+            key = new SectionKey(host, section);
+            hostKeys.put(section, key);
+        }
+
+        return key;
+    }
+
+    SectionKey getKey(int id)
+    {
+        return idKeys.get(id);
+    }
+
+    String getName(int id)
+    {
+        return idNames.get(id);
+    }
+
+    private HashMap<String, Integer> getSection(SectionKey key)
+    {
+        HashMap<String, Integer> ids = sections.get(key);
+        if (ids == null) {
+            ids = new HashMap<String, Integer>();
+            sections.put(key, ids);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Get the interned copy of a section key, adding this key if the
+     * section is unknown
+     *
+     * @param key section key
+     *
+     * @return interned key
+     */
+    private SectionKey intern(SectionKey key)
+    {
+        HashMap<String, SectionKey> hostKeys = keys.get(key.getHost());
+        if (hostKeys == null) {
+            hostKeys = new HashMap<String, SectionKey>();
+            keys.put(key.getHost(), hostKeys);
+        }
+
+        SectionKey interned = hostKeys.get(key.getSection());
+        if (interned == null) {
+            hostKeys.put(key.getSection(), key);
+            interned = key;
+        }
+
+        return interned;
+    }
+
+    Set<SectionKey> keySet()
+    {
+        return sections.keySet();
+    }
+
+    /**
+     * Number of IDs assigned so far
+     *
+     * @return number of IDs
+     */
+    int size()
+    {
+        return idNames.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MetricRegistry[" + sections.size() + " sections, " +
+            idNames.size() + " metrics]";
+    }
+}
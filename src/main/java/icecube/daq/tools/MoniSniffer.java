@@ -0,0 +1,109 @@
+package icecube.daq.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decide whether a file holds pDAQ monitoring data by looking at the
+ * first few kilobytes, so log files and binaries found in a run directory
+ * can be skipped without being parsed line by line.
+ */
+final class MoniSniffer
+{
+    /** Number of bytes examined */
+    private static final int SNIFF_SIZE = 4096;
+
+    private MoniSniffer()
+    {
+    }
+
+    /**
+     * Does the start of this file contain a dated section header?
+     * Files which cannot be read are accepted, so the error is reported
+     * when the file is loaded.
+     *
+     * @param file file to examine
+     *
+     * @return <tt>false</tt> if the file does not hold monitoring data
+     */
+    static boolean isMonitoringFile(File file)
+    {
+        byte[] buf = new byte[SNIFF_SIZE];
+        int len = 0;
+
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                if (file.getName().endsWith(".gz")) {
+                    in = new GZIPInputStream(in, SNIFF_SIZE);
+                }
+
+                while (len < buf.length) {
+                    final int num = in.read(buf, len, buf.length - len);
+                    if (num < 0) {
+                        break;
+                    }
+                    len += num;
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException ioe) {
+            return true;
+        }
+
+        return hasHeader(buf, len, len < buf.length);
+    }
+
+    /**
+     * Look for a section header in a block of bytes
+     *
+     * @param buf bytes from the start of a file
+     * @param len number of valid bytes
+     * @param atEnd <tt>true</tt> if the block holds the entire file, so
+     *              the last line is complete even without a newline
+     *
+     * @return <tt>true</tt> if a dated section header was found
+     */
+    private static boolean hasHeader(byte[] buf, int len, boolean atEnd)
+    {
+        int start = 0;
+        for (int i = 0; i <= len; i++) {
+            final boolean lineEnd;
+            if (i == len) {
+                lineEnd = atEnd;
+            } else if (buf[i] == 0) {
+                // monitoring files never contain NUL bytes
+                return false;
+            } else {
+                lineEnd = buf[i] == '\n' || buf[i] == '\r';
+            }
+
+            if (!lineEnd) {
+                continue;
+            }
+
+            // skip the leading dots the parser also strips
+            int first = start;
+            while (first < i && buf[first] == '.') {
+                first++;
+            }
+
+            if (i > first) {
+                final String line = new String(buf, first, i - first,
+                                               StandardCharsets.ISO_8859_1);
+                if (PDAQParser.hasSectionTime(line)) {
+                    return true;
+                }
+            }
+
+            start = i + 1;
+        }
+
+        return false;
+    }
+}
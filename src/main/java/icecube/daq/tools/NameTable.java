@@ -0,0 +1,93 @@
+package icecube.daq.tools;
+
+/**
+ * Cache of statistic names which returns the same String object for
+ * every occurrence of a name without creating a new String each time
+ * the name is seen.  This class is not thread-safe; each parser should
+ * have its own table.
+ */
+class NameTable
+{
+    private static final int INITIAL_SIZE = 64;
+
+    private String[] table = new String[INITIAL_SIZE];
+    private int count;
+
+    private static int hash(CharSequence src, int start, int end)
+    {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + src.charAt(i);
+        }
+        return h;
+    }
+
+    private static boolean matches(String name, CharSequence src, int start,
+                                   int end)
+    {
+        final int len = end - start;
+        if (name.length() != len) {
+            return false;
+        }
+
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != src.charAt(start + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Return the cached name for the characters in src[start..end)
+     *
+     * @param src source characters
+     * @param start index of first character
+     * @param end index after last character
+     *
+     * @return cached name
+     */
+    String get(CharSequence src, int start, int end)
+    {
+        final int h = hash(src, start, end);
+
+        final int mask = table.length - 1;
+        int idx = h & mask;
+        while (table[idx] != null) {
+            if (table[idx].hashCode() == h &&
+                matches(table[idx], src, start, end))
+            {
+                return table[idx];
+            }
+
+            idx = (idx + 1) & mask;
+        }
+
+        final String name = src.subSequence(start, end).toString();
+        table[idx] = name;
+        if (++count * 2 > table.length) {
+            grow();
+        }
+
+        return name;
+    }
+
+    private void grow()
+    {
+        String[] oldTable = table;
+
+        table = new String[oldTable.length * 2];
+
+        final int mask = table.length - 1;
+        for (String name : oldTable) {
+            if (name != null) {
+                int idx = name.hashCode() & mask;
+                while (table[idx] != null) {
+                    idx = (idx + 1) & mask;
+                }
+                table[idx] = name;
+            }
+        }
+    }
+}
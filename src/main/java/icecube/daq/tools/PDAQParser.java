@@ -0,0 +1,285 @@
+package icecube.daq.tools;
+
+import org.apache.log4j.Logger;
+
+final class PDAQParser
+    extends BaseParser
+{
+    private static final Logger LOG = Logger.getLogger(PDAQParser.class);
+
+    /** Start of section headers which do not include a time */
+    private static final String BEAN_PREFIX = "Bean";
+
+    private boolean omitDataCollector;
+
+    /** Convert section header timestamps */
+    private TimestampParser timeParser = new TimestampParser();
+
+    private PDAQParser(String sectionHost, String sectionName,
+                       boolean omitDataCollector)
+    {
+        super(sectionHost, sectionName);
+
+        this.omitDataCollector = omitDataCollector;
+    }
+
+    @Override
+    public boolean match(StatData statData, String line, boolean verbose)
+    {
+        if (isSectionIgnored()) {
+            // only look for the next section header
+            if (line.length() > 0 && !TimestampParser.isSpace(line.charAt(0)))
+            {
+                matchStart(this, null, line, omitDataCollector);
+            }
+
+            return true;
+        }
+
+        if (super.match(statData, line, verbose)) {
+            return true;
+        }
+
+        if (matchStart(this, null, line, omitDataCollector) != null) {
+if (verbose) System.err.println("??Stat <= " + line.trim());
+            return true;
+        }
+
+        statData.getErrors().add(getHost(), getName(),
+                                 ParseErrors.Category.UNKNOWN_LINE, line,
+                                 null);
+        return false;
+    }
+
+    @Override
+    boolean matchScalar(StatData statData, CharSequence line)
+    {
+        if (isSectionIgnored()) {
+            // indented lines never start a section
+            return true;
+        }
+
+        return super.matchScalar(statData, line);
+    }
+
+    /**
+     * Get the host name used for all sections in a monitoring file
+     *
+     * @param inputSrc monitoring file
+     *
+     * @return host name
+     */
+    static String getHostName(GraphSource inputSrc)
+    {
+        String sectionHost = inputSrc.toString();
+        if (sectionHost.endsWith(".moni")) {
+            sectionHost = sectionHost.substring(0, sectionHost.length() - 5);
+        } else if (sectionHost.endsWith(".moni.gz")) {
+            sectionHost = sectionHost.substring(0, sectionHost.length() - 8);
+        }
+
+        return sectionHost;
+    }
+
+    /**
+     * Find the end of a word
+     *
+     * @param line line of text
+     * @param start index of the first character in the word
+     *
+     * @return index of the next whitespace character (or the line length)
+     */
+    private static int findWordEnd(String line, int start)
+    {
+        int idx = start;
+        while (idx < line.length() &&
+               !TimestampParser.isSpace(line.charAt(idx)))
+        {
+            idx++;
+        }
+        return idx;
+    }
+
+    /**
+     * Find the timestamp in a dated section header
+     * (<tt>name: yyyy-MM-dd HH:mm:ss.ffffff:</tt>)
+     *
+     * @param line line of text
+     *
+     * @return index of the timestamp, or <tt>-1</tt> if this is not a
+     *         dated header
+     */
+    private static int findSectionTime(String line)
+    {
+        final int len = line.length();
+
+        // the section name ends with a colon and is followed by whitespace
+        final int colon = findWordEnd(line, 0) - 1;
+        if (colon < 1 || colon + 1 == len || line.charAt(colon) != ':') {
+            return -1;
+        }
+
+        int start = colon + 1;
+        while (start < len && TimestampParser.isSpace(line.charAt(start))) {
+            start++;
+        }
+
+        final int end = TimestampParser.findEnd(line, start);
+        if (end < 0 || end == len || line.charAt(end) != ':' ||
+            !isBlank(line, end + 1))
+        {
+            return -1;
+        }
+
+        return start;
+    }
+
+    /**
+     * If this is a section header, return the section name
+     *
+     * @param line line of text
+     *
+     * @return section name or <tt>null</tt> if this is not a header line
+     */
+    static String getSectionName(String line)
+    {
+        if (findSectionTime(line) >= 0) {
+            return line.substring(0, findWordEnd(line, 0) - 1);
+        }
+
+        return getUndatedName(line);
+    }
+
+    /**
+     * Get the time from a dated section header
+     *
+     * @param line line of text
+     * @param timeParser timestamp converter
+     *
+     * @return milliseconds since the epoch, or <tt>Long.MIN_VALUE</tt>
+     *         if this is not a dated header
+     */
+    static long getSectionTime(String line, TimestampParser timeParser)
+    {
+        final int timeIdx = findSectionTime(line);
+        if (timeIdx < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        final int end = TimestampParser.findEnd(line, timeIdx);
+        return timeParser.parse(line, timeIdx, end);
+    }
+
+    /**
+     * Get the section name from a header which does not include a time
+     * (<tt>Bean name</tt>)
+     *
+     * @param line line of text
+     *
+     * @return section name or <tt>null</tt> if this is not an undated
+     *         header
+     */
+    private static String getUndatedName(String line)
+    {
+        if (!line.startsWith(BEAN_PREFIX)) {
+            return null;
+        }
+
+        final int len = line.length();
+
+        int start = BEAN_PREFIX.length();
+        if (start == len || !TimestampParser.isSpace(line.charAt(start))) {
+            return null;
+        }
+
+        while (start < len && TimestampParser.isSpace(line.charAt(start))) {
+            start++;
+        }
+
+        final int end = findWordEnd(line, start);
+        if (end == start || !isBlank(line, end)) {
+            return null;
+        }
+
+        return line.substring(start, end);
+    }
+
+    /**
+     * Does this line start a section and set the section time?
+     *
+     * @param line line of text
+     *
+     * @return <tt>true</tt> if this is a dated section header
+     */
+    static boolean hasSectionTime(String line)
+    {
+        return findSectionTime(line) >= 0;
+    }
+
+    private static boolean isBlank(String line, int start)
+    {
+        for (int i = start; i < line.length(); i++) {
+            if (!TimestampParser.isSpace(line.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static PDAQParser matchStart(GraphSource inputSrc, String line,
+                                 boolean omitDataCollector)
+    {
+        return matchStart(null, inputSrc, line, omitDataCollector);
+    }
+
+    static PDAQParser matchStart(PDAQParser parser, GraphSource inputSrc,
+                                 String line, boolean omitDataCollector)
+    {
+        final int timeIdx = findSectionTime(line);
+
+        String sectionName;
+        if (timeIdx >= 0) {
+            sectionName = line.substring(0, findWordEnd(line, 0) - 1);
+        } else {
+            sectionName = getUndatedName(line);
+            if (sectionName == null) {
+                return null;
+            }
+        }
+
+        String sectionHost;
+        if (inputSrc == null) {
+            sectionHost = parser.getHost();
+        } else {
+            sectionHost = getHostName(inputSrc);
+        }
+
+        if (parser == null) {
+            parser =
+                new PDAQParser(sectionHost, sectionName, omitDataCollector);
+            parser.setFilter(inputSrc.getFilter());
+        } else {
+            parser.setHostAndName(sectionHost, sectionName);
+        }
+
+        if (timeIdx >= 0) {
+            final int end = TimestampParser.findEnd(line, timeIdx);
+            parser.setTime(parser.timeParser.parse(line, timeIdx, end));
+        }
+
+        boolean ignore = omitDataCollector &&
+            sectionName.startsWith("DataCollectorMonitor");
+
+        final ParseFilter filter = parser.getFilter();
+        if (!ignore && filter != null) {
+            final ChartTime time = parser.getTime();
+            ignore = !filter.acceptSection(sectionHost, sectionName) ||
+                (time != null && !filter.acceptTime(time.getTime()));
+        }
+
+        parser.setIgnoreSection(ignore);
+
+        return parser;
+    }
+}
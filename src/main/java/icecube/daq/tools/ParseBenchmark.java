@@ -0,0 +1,295 @@
+package icecube.daq.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Measure how quickly monitoring files can be parsed.
+ */
+public class ParseBenchmark
+{
+    private ArrayList<File> fileList = new ArrayList<File>();
+    private int numRounds = 3;
+
+    /** Number of lines read through pipelined readers in the last round */
+    private long stageLines;
+    /** Time spent reading and decompressing pipelined files */
+    private long readNanos;
+    /** Time the reading threads spent waiting for the parser */
+    private long fullNanos;
+    /** Time spent parsing pipelined files, excluding waits for input */
+    private long parseNanos;
+    /** Time the parser spent waiting for the reading threads */
+    private long emptyNanos;
+    /** How often learned parsers matched in the last round */
+    private SchemaStats schemaStats;
+
+    ParseBenchmark(String[] args)
+    {
+        processArgs(args);
+
+        long numLines = 0;
+        long numBytes = 0;
+        boolean hasGzip = false;
+        boolean hasPlain = false;
+        for (File f : fileList) {
+            numBytes += f.length();
+            if (f.getName().endsWith(".gz")) {
+                hasGzip = true;
+            } else {
+                hasPlain = true;
+            }
+            try {
+                numLines += countLines(f);
+            } catch (IOException ioe) {
+                System.err.println("Cannot read " + f + ": " + ioe);
+                System.exit(1);
+            }
+        }
+
+        System.out.format("%d files, %d lines, %d bytes\n", fileList.size(),
+                          numLines, numBytes);
+
+        // warm up the JIT before timing anything
+        parseAll(true, false, false, false);
+        parseAll(true, true, false, false);
+        parseAll(false, false, false, false);
+        if (hasGzip) {
+            parseAll(true, true, true, false);
+        }
+        if (hasPlain) {
+            parseAll(true, true, false, true);
+        }
+
+        for (int i = 0; i < numRounds; i++) {
+            report("cascade", numLines, numBytes,
+                   parseAll(false, false, false, false));
+            report("classified", numLines, numBytes,
+                   parseAll(true, false, false, false));
+            report("learned", numLines, numBytes,
+                   parseAll(true, true, false, false));
+            System.out.println("  " + schemaStats);
+            if (hasGzip) {
+                report("pipelined", numLines, numBytes,
+                       parseAll(true, true, true, false));
+                reportStages();
+            }
+            if (hasPlain) {
+                report("mapped", numLines, numBytes,
+                       parseAll(true, true, false, true));
+            }
+        }
+
+        reportParsers();
+        reportMemory();
+    }
+
+    private static long countLines(File f)
+        throws IOException
+    {
+        LineReader rdr = new GraphSource(f).getReader();
+        try {
+            long num = 0;
+            while (rdr.readLine() != null) {
+                num++;
+            }
+            return num;
+        } finally {
+            rdr.close();
+        }
+    }
+
+    /**
+     * Parse all files
+     *
+     * @param classify if <tt>false</tt>, try every parser on every line
+     * @param learn if <tt>true</tt>, try the parser learned for each
+     *              statistic first
+     * @param pipeline if <tt>true</tt>, decompress files on a separate
+     *                 thread
+     * @param map if <tt>true</tt>, read uncompressed files through a
+     *            memory map instead of a <tt>BufferedReader</tt>
+     *
+     * @return elapsed nanoseconds
+     */
+    private long parseAll(boolean classify, boolean learn, boolean pipeline,
+                          boolean map)
+    {
+        BaseParser.setClassifyLines(classify);
+        BaseParser.setLearnSchema(learn);
+        GraphSource.setPipelineGzip(pipeline);
+        GraphSource.setMapFiles(map);
+
+        stageLines = 0;
+        readNanos = 0;
+        fullNanos = 0;
+        parseNanos = 0;
+        emptyNanos = 0;
+        schemaStats = new SchemaStats();
+
+        final long start = System.nanoTime();
+        for (File f : fileList) {
+            final long fileStart = System.nanoTime();
+
+            StatData statData = new StatData();
+            GraphSource src = new GraphSource(f);
+            try {
+                MappedLineReader mapped = src.getMappedReader();
+                if (mapped != null) {
+                    statData.readData(src, mapped, false, false);
+                    schemaStats.merge(statData.getSchemaStats());
+                    continue;
+                }
+
+                LineReader rdr = src.getReader();
+                statData.readData(src, rdr, false, false);
+                schemaStats.merge(statData.getSchemaStats());
+
+                if (rdr instanceof PipelinedReader) {
+                    PipelinedReader pipe = (PipelinedReader) rdr;
+                    stageLines += pipe.getLines();
+                    readNanos += pipe.getReadNanos();
+                    fullNanos += pipe.getFullNanos();
+                    parseNanos += System.nanoTime() - fileStart -
+                        pipe.getEmptyNanos();
+                    emptyNanos += pipe.getEmptyNanos();
+                }
+            } catch (IOException ioe) {
+                System.err.println("Cannot parse " + f + ": " + ioe);
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        GraphSource.setPipelineGzip(true);
+        GraphSource.setMapFiles(true);
+        BaseParser.setLearnSchema(true);
+        return elapsed;
+    }
+
+    private void processArgs(String[] args)
+    {
+        boolean usage = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-r") && i + 1 < args.length) {
+                try {
+                    numRounds = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException nfe) {
+                    numRounds = 0;
+                }
+
+                if (numRounds < 1) {
+                    System.err.println("Bad number of rounds '" + args[i] +
+                                       "'");
+                    usage = true;
+                }
+            } else if (args[i].length() > 1 && args[i].charAt(0) == '-') {
+                System.err.println("Unknown option '" + args[i] + "'");
+                usage = true;
+            } else {
+                File f = new File(args[i]);
+                if (!f.isFile()) {
+                    System.err.println("Bad file '" + args[i] + "'");
+                    usage = true;
+                } else {
+                    fileList.add(f);
+                }
+            }
+        }
+
+        if (fileList.size() == 0) {
+            System.err.println("No files specified!");
+            usage = true;
+        }
+
+        if (usage) {
+            System.err.println("java " + getClass().getName() +
+                               " [-r numRounds]" +
+                               " file [file ...]");
+            System.exit(1);
+        }
+    }
+
+    private static void report(String name, long numLines, long numBytes,
+                               long nanos)
+    {
+        final double secs = (double) nanos / 1000000000.0;
+        System.out.format("%-12s %8.3f secs %12.0f lines/sec %8.1f MB/sec\n",
+                          name, secs, (double) numLines / secs,
+                          (double) numBytes / (secs * 1024.0 * 1024.0));
+    }
+
+    /**
+     * Report the throughput of each stage of the last pipelined round,
+     * along with the time each stage spent waiting for the other
+     */
+    private void reportStages()
+    {
+        reportStage("inflate", readNanos, fullNanos);
+        reportStage("parse", parseNanos, emptyNanos);
+    }
+
+    private void reportStage(String name, long nanos, long waitNanos)
+    {
+        final double secs = (double) nanos / 1000000000.0;
+        System.out.format("  %-10s %8.3f secs %12.0f lines/sec" +
+                          " %8.3f secs waiting\n", name, secs,
+                          (double) stageLines / secs,
+                          (double) waitNanos / 1000000000.0);
+    }
+
+    /**
+     * Parse all files once more, timing every parser, and report how
+     * often each parser was tried and matched
+     */
+    private void reportParsers()
+    {
+        ParserRegistry.resetStatistics();
+        ParserRegistry.setTiming(true);
+        parseAll(true, true, false, false);
+        ParserRegistry.setTiming(false);
+
+        System.out.print(ParserRegistry.getReport());
+    }
+
+    /**
+     * Load all files and report the heap used per sample
+     */
+    private void reportMemory()
+    {
+        final long before = usedMemory();
+
+        LoadOptions opts = new LoadOptions();
+        opts.setUseCache(false);
+
+        StatData statData = new StatData();
+        statData.loadFiles(fileList, opts);
+
+        final long after = usedMemory();
+
+        long numSamples = 0;
+        for (SectionKey key : statData.getSectionKeys()) {
+            for (String name : statData.getSectionNames(key)) {
+                numSamples += statData.getStatistics(key, name).size();
+            }
+        }
+
+        System.out.format("%d samples, %d bytes, %.1f bytes/sample\n",
+                          numSamples, after - before,
+                          (double) (after - before) / (double) numSamples);
+    }
+
+    private static long usedMemory()
+    {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    public static final void main(String[] args)
+    {
+        new ParseBenchmark(args);
+    }
+}
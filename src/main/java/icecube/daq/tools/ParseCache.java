@@ -0,0 +1,526 @@
+package icecube.daq.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Binary cache of the statistics parsed from a single monitoring file.
+ * The cache lives next to the original file and is only used if the
+ * original file's path, size and modification time are unchanged.
+ */
+class ParseCache
+{
+    private static final Logger LOG = Logger.getLogger(ParseCache.class);
+
+    /** Suffix added to the original file name */
+    static final String SUFFIX = ".mcache";
+
+    private static final int MAGIC = 0x4d434143;
+    /**
+     * Version 2 keeps the milliseconds from section timestamps.
+     * Version 3 omits DataCollectorMonitor sections when asked to.
+     * Version 4 keeps every sample of statistics which mix integer and
+     * floating-point values.
+     * Version 5 saves the lines which could not be parsed.
+     */
+    private static final int VERSION = 5;
+
+    /** Statistic stored as a column of times and a column of longs */
+    private static final byte STAT_LONG = 1;
+    /** Statistic stored as a column of times and a column of doubles */
+    private static final byte STAT_DOUBLE = 2;
+    /** Statistic stored as a list of individual samples */
+    private static final byte STAT_DATA = 3;
+
+    private static final byte DATA_LONG_LIST = 1;
+    private static final byte DATA_DOUBLE_LIST = 2;
+    private static final byte DATA_STRING_LIST = 3;
+    private static final byte DATA_MEMORY = 4;
+    private static final byte DATA_LONG_ARRAY = 5;
+    private static final byte DATA_DOUBLE_ARRAY = 6;
+    private static final byte DATA_TIMING = 7;
+    private static final byte DATA_STRAND = 8;
+    private static final byte DATA_STRING = 9;
+
+    private File source;
+    private File cacheFile;
+    private String path;
+    private long length;
+    private long modified;
+    private boolean omitDataCollector;
+
+    /** Share time objects between all statistics read from the cache */
+    private HashMap<Long, ChartTime> timeMap;
+
+    /**
+     * Create a cache for a monitoring file.  The file's size and
+     * modification time are recorded here, so this should be created
+     * <em>before</em> the file is parsed.
+     *
+     * @param source monitoring file
+     * @param omitDataCollector if <tt>true</tt>, DataCollectorMonitor
+     *                          sections were not parsed
+     */
+    ParseCache(File source, boolean omitDataCollector)
+    {
+        this.source = source;
+        this.omitDataCollector = omitDataCollector;
+
+        cacheFile = new File(source.getParentFile(),
+                             source.getName() + SUFFIX);
+        path = source.getAbsolutePath();
+        length = source.length();
+        modified = source.lastModified();
+    }
+
+    /**
+     * Is this one of our cache files?
+     *
+     * @param file file to check
+     *
+     * @return <tt>true</tt> if this is a cache file
+     */
+    static boolean isCacheFile(File file)
+    {
+        return file.getName().endsWith(SUFFIX);
+    }
+
+    /**
+     * Load statistics from the cache
+     *
+     * @return cached statistics or <tt>null</tt> if the cache is missing,
+     *         out of date or unreadable
+     */
+    StatData load()
+    {
+        if (!cacheFile.isFile() || !source.isFile()) {
+            return null;
+        }
+
+        ByteBuffer buf;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(cacheFile, "r");
+            try {
+                final long size = raf.length();
+                if (size > Integer.MAX_VALUE) {
+                    return null;
+                }
+
+                buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                                           size);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException ioe) {
+            return null;
+        }
+
+        timeMap = new HashMap<Long, ChartTime>();
+        try {
+            return read(buf);
+        } catch (BufferUnderflowException bue) {
+            LOG.error("Truncated cache file \"" + cacheFile + "\"");
+        } catch (IOException ioe) {
+            LOG.error("Bad cache file \"" + cacheFile + "\": " +
+                      ioe.getMessage());
+        } finally {
+            timeMap = null;
+        }
+
+        return null;
+    }
+
+    private StatData read(ByteBuffer buf)
+        throws IOException
+    {
+        if (buf.getInt() != MAGIC || buf.getInt() != VERSION ||
+            !path.equals(readString(buf)) || buf.getLong() != length ||
+            buf.getLong() != modified ||
+            (buf.get() != 0) != omitDataCollector)
+        {
+            return null;
+        }
+
+        StatData statData = new StatData();
+
+        final int numSections = buf.getInt();
+        for (int s = 0; s < numSections; s++) {
+            final String host = readString(buf);
+            final String section = readString(buf);
+            final SectionKey key = statData.getSectionKey(host, section);
+
+            final int numStats = buf.getInt();
+            for (int n = 0; n < numStats; n++) {
+                final String name = readString(buf);
+
+                StatParent<?> stat = readStat(buf);
+                if (stat != null) {
+                    statData.putStatistics(key, name, stat);
+                }
+            }
+        }
+
+        statData.getErrors().read(buf);
+
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("Missing end marker");
+        }
+
+        return statData;
+    }
+
+    private BaseData readData(ByteBuffer buf)
+        throws IOException
+    {
+        final byte type = buf.get();
+        final ChartTime time = getTime(buf.getLong());
+
+        switch (type) {
+        case DATA_LONG_LIST:
+            return new LongListData(time, readLongs(buf, buf.getInt()));
+        case DATA_DOUBLE_LIST:
+            return new DoubleListData(time, readDoubles(buf, buf.getInt()));
+        case DATA_STRING_LIST:
+            String[] strs = new String[buf.getInt()];
+            for (int i = 0; i < strs.length; i++) {
+                strs[i] = readString(buf);
+            }
+            return new StringListData(time, strs);
+        case DATA_MEMORY:
+            return new MemoryData(time, buf.getLong(), buf.getLong());
+        case DATA_LONG_ARRAY:
+        case DATA_DOUBLE_ARRAY:
+            return readArray(buf, time, type == DATA_LONG_ARRAY);
+        case DATA_TIMING:
+            ArrayList<TimingPiece> pieces = new ArrayList<TimingPiece>();
+            final int numPieces = buf.getInt();
+            for (int i = 0; i < numPieces; i++) {
+                pieces.add(new TimingPiece(readString(buf), buf.getLong(),
+                                           buf.getLong()));
+            }
+            return new TimingData(time, pieces);
+        case DATA_STRAND:
+            return new StrandData(time, readLongs(buf, buf.getInt()));
+        case DATA_STRING:
+            return new StringData(time, readString(buf));
+        default:
+            throw new IOException("Unknown data type #" + type);
+        }
+    }
+
+    private static MapArrayData readArray(ByteBuffer buf, ChartTime time,
+                                          boolean isLong)
+        throws IOException
+    {
+        final int len = buf.getInt();
+
+        MapArrayData data;
+        if (isLong) {
+            data = new LongArrayData(time, len);
+        } else {
+            data = new DoubleArrayData(time, len);
+        }
+
+        try {
+            for (int i = 0; i < len; i++) {
+                if (isLong) {
+                    data.addLong(i, buf.getLong());
+                } else {
+                    data.addDouble(i, buf.getDouble());
+                }
+            }
+        } catch (StatParseException spe) {
+            throw new IOException(spe.getMessage());
+        }
+
+        return data;
+    }
+
+    private static double[] readDoubles(ByteBuffer buf, int len)
+    {
+        double[] array = new double[len];
+        buf.asDoubleBuffer().get(array);
+        buf.position(buf.position() + len * 8);
+        return array;
+    }
+
+    private static long[] readLongs(ByteBuffer buf, int len)
+    {
+        long[] array = new long[len];
+        buf.asLongBuffer().get(array);
+        buf.position(buf.position() + len * 8);
+        return array;
+    }
+
+    private StatParent<?> readStat(ByteBuffer buf)
+        throws IOException
+    {
+        final byte type = buf.get();
+        final int count = buf.getInt();
+
+        switch (type) {
+        case STAT_LONG:
+            return new LongStat(readLongs(buf, count),
+                                readLongs(buf, count));
+        case STAT_DOUBLE:
+            return new DoubleStat(readLongs(buf, count),
+                                  readDoubles(buf, count));
+        case STAT_DATA:
+            StatParent<?> stat = null;
+            for (int i = 0; i < count; i++) {
+                BaseData datum = readData(buf);
+                if (stat == null) {
+                    stat = datum.createParent();
+                }
+                stat.addSample(datum);
+            }
+            return stat;
+        default:
+            throw new IOException("Unknown statistic type #" + type);
+        }
+    }
+
+    static String readString(ByteBuffer buf)
+    {
+        final int len = buf.getInt();
+        if (len < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ChartTime getTime(long millis)
+    {
+        ChartTime time = timeMap.get(millis);
+        if (time == null) {
+            time = new ChartTime(millis);
+            timeMap.put(millis, time);
+        }
+
+        return time;
+    }
+
+    /**
+     * Write statistics to the cache.  Any problems (for example, a
+     * read-only directory) are ignored since the cache is only an
+     * optimization.
+     *
+     * @param statData statistics parsed from the original file
+     */
+    void save(StatData statData)
+    {
+        if (source.length() != length || source.lastModified() != modified) {
+            // file changed while it was being parsed
+            return;
+        }
+
+        File tmpFile;
+        try {
+            tmpFile = File.createTempFile(source.getName(), SUFFIX,
+                                          cacheFile.getParentFile());
+        } catch (IOException ioe) {
+            return;
+        } catch (SecurityException se) {
+            return;
+        }
+
+        boolean success = false;
+        try {
+            FileOutputStream fout = new FileOutputStream(tmpFile);
+            DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(fout, 65536));
+            try {
+                write(out, statData);
+            } finally {
+                out.close();
+            }
+
+            success = tmpFile.length() <= Integer.MAX_VALUE &&
+                tmpFile.renameTo(cacheFile);
+        } catch (IOException ioe) {
+            // ignore failures
+        } finally {
+            if (!success) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private void write(DataOutputStream out, StatData statData)
+        throws IOException
+    {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, path);
+        out.writeLong(length);
+        out.writeLong(modified);
+        out.writeByte(omitDataCollector ? 1 : 0);
+
+        List<SectionKey> keys = statData.getSectionKeys();
+        out.writeInt(keys.size());
+        for (SectionKey key : keys) {
+            writeString(out, key.getHost());
+            writeString(out, key.getSection());
+
+            ArrayList<String> names = new ArrayList<String>();
+            for (String name : statData.getSectionNames(key)) {
+                // empty statistics cannot be recreated
+                if (statData.getStatistics(key, name).size() > 0) {
+                    names.add(name);
+                }
+            }
+
+            out.writeInt(names.size());
+            for (String name : names) {
+                writeString(out, name);
+                writeStat(out, statData.getStatistics(key, name));
+            }
+        }
+
+        statData.getErrors().write(out);
+
+        out.writeInt(MAGIC);
+    }
+
+    private static void writeData(DataOutputStream out, BaseData datum)
+        throws IOException
+    {
+        final long time = datum.getTime().getTime();
+
+        if (datum instanceof LongListData) {
+            LongListData data = (LongListData) datum;
+            writeHeader(out, DATA_LONG_LIST, time, data.getNumEntries());
+            for (int i = 0; i < data.getNumEntries(); i++) {
+                out.writeLong(data.getEntry(i));
+            }
+        } else if (datum instanceof DoubleListData) {
+            DoubleListData data = (DoubleListData) datum;
+            writeHeader(out, DATA_DOUBLE_LIST, time, data.getNumEntries());
+            for (int i = 0; i < data.getNumEntries(); i++) {
+                out.writeDouble(data.getEntry(i));
+            }
+        } else if (datum instanceof StringListData) {
+            StringListData data = (StringListData) datum;
+            writeHeader(out, DATA_STRING_LIST, time, data.getNumEntries());
+            for (int i = 0; i < data.getNumEntries(); i++) {
+                writeString(out, data.getEntry(i));
+            }
+        } else if (datum instanceof MemoryData) {
+            MemoryData data = (MemoryData) datum;
+            out.writeByte(DATA_MEMORY);
+            out.writeLong(time);
+            out.writeLong(data.getUsedMemory());
+            out.writeLong(data.getFreeMemory());
+        } else if (datum instanceof MapArrayData) {
+            MapArrayData data = (MapArrayData) datum;
+            writeHeader(out, data.isLong() ? DATA_LONG_ARRAY :
+                        DATA_DOUBLE_ARRAY, time, data.length());
+            for (int i = 0; i < data.length(); i++) {
+                if (data.isLong()) {
+                    out.writeLong(data.getValueLong(i));
+                } else {
+                    out.writeDouble(data.getValueDouble(i));
+                }
+            }
+        } else if (datum instanceof TimingData) {
+            ArrayList<TimingPiece> pieces = new ArrayList<TimingPiece>();
+            for (TimingPiece piece : ((TimingData) datum).iterator()) {
+                pieces.add(piece);
+            }
+
+            writeHeader(out, DATA_TIMING, time, pieces.size());
+            for (TimingPiece piece : pieces) {
+                writeString(out, piece.getTitle());
+                out.writeLong(piece.getProfileTime());
+                out.writeLong(piece.getProfileCalls());
+            }
+        } else if (datum instanceof StrandData) {
+            StrandData data = (StrandData) datum;
+            writeHeader(out, DATA_STRAND, time, data.getNumStrands());
+            for (int i = 0; i < data.getNumStrands(); i++) {
+                out.writeLong(data.getStrand(i));
+            }
+        } else if (datum instanceof StringData) {
+            out.writeByte(DATA_STRING);
+            out.writeLong(time);
+            writeString(out, ((StringData) datum).getValue());
+        } else {
+            throw new IOException("Cannot cache " +
+                                  datum.getClass().getName());
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, byte type,
+                                    long time, int len)
+        throws IOException
+    {
+        out.writeByte(type);
+        out.writeLong(time);
+        out.writeInt(len);
+    }
+
+    private static void writeStat(DataOutputStream out,
+                                  StatParent<?> stat)
+        throws IOException
+    {
+        final int count = stat.size();
+
+        if (stat instanceof LongStat) {
+            LongStat lstat = (LongStat) stat;
+
+            out.writeByte(STAT_LONG);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(lstat.getTime(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(lstat.getValue(i));
+            }
+        } else if (stat instanceof DoubleStat) {
+            DoubleStat dstat = (DoubleStat) stat;
+
+            out.writeByte(STAT_DOUBLE);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(dstat.getTime(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeDouble(dstat.getValue(i));
+            }
+        } else {
+            out.writeByte(STAT_DATA);
+            out.writeInt(count);
+            for (Object datum : stat.iterator()) {
+                writeData(out, (BaseData) datum);
+            }
+        }
+    }
+
+    static void writeString(DataOutputStream out, String str)
+        throws IOException
+    {
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package icecube.daq.tools;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count the lines which could not be parsed, grouped by host (which
+ * identifies the file), section and kind of problem.  A few of the
+ * offending lines are kept for each group so the summary can show what
+ * went wrong without flooding the terminal.
+ */
+public class ParseErrors
+{
+    /** Kinds of problems */
+    enum Category
+    {
+        /** A parser recognized the line but found an invalid value */
+        BAD_VALUE("bad value"),
+        /** No parser recognized the line */
+        UNKNOWN_LINE("unknown line"),
+        /** The line appeared before the first section header */
+        NO_SECTION("outside any section"),
+        /** The line appeared in a section without a time */
+        NO_TIME("no section time"),
+        /** The value does not match the statistic's earlier values */
+        MISMATCH("mismatched value"),
+        /** Parsing the line failed unexpectedly */
+        INTERNAL("internal error");
+
+        private String desc;
+
+        Category(String desc)
+        {
+            this.desc = desc;
+        }
+
+        @Override
+        public String toString()
+        {
+            return desc;
+        }
+    }
+
+    /** Number of offending lines kept for each group */
+    private static final int MAX_SAMPLES = 3;
+    /** Longest sample line shown in the summary */
+    private static final int MAX_SAMPLE_LEN = 100;
+    /** Number of groups shown in the summary */
+    private static final int MAX_SUMMARY_GROUPS = 20;
+
+    /** Counts and samples, indexed by host, section and category */
+    private HashMap<String, Group> groups = new HashMap<String, Group>();
+    /** Total number of bad lines */
+    private long total;
+
+    ParseErrors()
+    {
+    }
+
+    /**
+     * Record a line which could not be parsed
+     *
+     * @param host host name
+     * @param section section name (<tt>null</tt> if outside any section)
+     * @param category kind of problem
+     * @param line offending line
+     * @param reason description of the problem (may be <tt>null</tt>)
+     */
+    void add(String host, String section, Category category, String line,
+             String reason)
+    {
+        final String key = getKey(host, section, category);
+
+        Group group = groups.get(key);
+        if (group == null) {
+            group = new Group(host, section, category);
+            groups.put(key, group);
+        }
+
+        group.count++;
+        if (group.samples.size() < MAX_SAMPLES) {
+            group.samples.add(new Sample(line, reason));
+        }
+
+        total++;
+    }
+
+    private static String getKey(String host, String section,
+                                 Category category)
+    {
+        return host + '\0' + section + '\0' + category.ordinal();
+    }
+
+    /**
+     * Get a short multi-line report listing the groups with the most
+     * errors, along with an example of each
+     *
+     * @return summary text, or an empty string if there were no errors
+     */
+    public String getSummary()
+    {
+        if (total == 0) {
+            return "";
+        }
+
+        ArrayList<Group> list = new ArrayList<Group>(groups.values());
+        Collections.sort(list, new Comparator<Group>() {
+                public int compare(Group g1, Group g2)
+                {
+                    if (g1.count != g2.count) {
+                        return g1.count > g2.count ? -1 : 1;
+                    }
+
+                    return g1.getName().compareTo(g2.getName());
+                }
+            });
+
+        StringBuilder buf = new StringBuilder();
+        buf.append(total).append(" bad line").append(total == 1 ? "" : "s");
+        buf.append(" in ").append(list.size()).append(" group");
+        buf.append(list.size() == 1 ? "" : "s").append('\n');
+
+        final int num = Math.min(list.size(), MAX_SUMMARY_GROUPS);
+        for (int i = 0; i < num; i++) {
+            final Group group = list.get(i);
+
+            buf.append(String.format("%8d  %s: %s\n", group.count,
+                                     group.getName(), group.category));
+
+            final Sample sample = group.samples.get(0);
+            buf.append("          ").append(sample).append('\n');
+        }
+
+        if (list.size() > num) {
+            buf.append("          ... and ").append(list.size() - num);
+            buf.append(" more\n");
+        }
+
+        return buf.toString();
+    }
+
+    /**
+     * Get the offending lines kept for every group
+     *
+     * @return list of "<i>group</i>: <i>line</i>" strings
+     */
+    public List<String> getSamples()
+    {
+        ArrayList<String> list = new ArrayList<String>();
+        for (Group group : groups.values()) {
+            for (Sample sample : group.samples) {
+                list.add(group.getName() + ": " + sample);
+            }
+        }
+
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Get the total number of bad lines
+     *
+     * @return number of lines
+     */
+    public long getTotal()
+    {
+        return total;
+    }
+
+    public boolean isEmpty()
+    {
+        return total == 0;
+    }
+
+    /**
+     * Add the errors from another collection to this one
+     *
+     * @param other errors to add
+     */
+    void merge(ParseErrors other)
+    {
+        for (Map.Entry<String, Group> entry : other.groups.entrySet()) {
+            mergeGroup(entry.getKey(), entry.getValue());
+        }
+
+        total += other.total;
+    }
+
+    /**
+     * Add the errors from another collection's group.  The total is not
+     * updated.
+     *
+     * @param key group key
+     * @param theirs group to add
+     */
+    private void mergeGroup(String key, Group theirs)
+    {
+        Group mine = groups.get(key);
+        if (mine == null) {
+            groups.put(key, theirs);
+            return;
+        }
+
+        mine.count += theirs.count;
+        for (Sample sample : theirs.samples) {
+            if (mine.samples.size() >= MAX_SAMPLES) {
+                break;
+            }
+            mine.samples.add(sample);
+        }
+    }
+
+    /**
+     * Add errors saved by <tt>write()</tt>
+     *
+     * @param buf buffer positioned at the saved errors
+     *
+     * @throws IOException if the saved errors are not valid
+     */
+    void read(ByteBuffer buf)
+        throws IOException
+    {
+        final Category[] categories = Category.values();
+
+        final int numGroups = buf.getInt();
+        for (int g = 0; g < numGroups; g++) {
+            final String host = ParseCache.readString(buf);
+            final String section = ParseCache.readString(buf);
+            final int catIdx = buf.get();
+            if (catIdx < 0 || catIdx >= categories.length) {
+                throw new IOException("Unknown error category #" + catIdx);
+            }
+
+            Group theirs = new Group(host, section, categories[catIdx]);
+            theirs.count = buf.getLong();
+
+            final int numSamples = buf.getInt();
+            for (int i = 0; i < numSamples; i++) {
+                final String line = ParseCache.readString(buf);
+                theirs.samples.add(new Sample(line,
+                                              ParseCache.readString(buf)));
+            }
+
+            mergeGroup(theirs.getKey(), theirs);
+            total += theirs.count;
+        }
+    }
+
+    /**
+     * Save all errors in the format read by <tt>read()</tt>
+     *
+     * @param out cache file
+     *
+     * @throws IOException if the errors cannot be written
+     */
+    void write(DataOutputStream out)
+        throws IOException
+    {
+        out.writeInt(groups.size());
+        for (Group group : groups.values()) {
+            ParseCache.writeString(out, group.host);
+            ParseCache.writeString(out, group.section);
+            out.writeByte(group.category.ordinal());
+            out.writeLong(group.count);
+
+            out.writeInt(group.samples.size());
+            for (Sample sample : group.samples) {
+                ParseCache.writeString(out, sample.line);
+                ParseCache.writeString(out, sample.reason);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ParseErrors[" + total + " lines in " + groups.size() +
+            " groups]";
+    }
+
+    /**
+     * Errors from a single host, section and category
+     */
+    private static class Group
+    {
+        private String host;
+        private String section;
+        private Category category;
+
+        private long count;
+        private ArrayList<Sample> samples = new ArrayList<Sample>();
+
+        Group(String host, String section, Category category)
+        {
+            this.host = host;
+            this.section = section;
+            this.category = category;
+        }
+
+        String getKey()
+        {
+            return ParseErrors.getKey(host, section, category);
+        }
+
+        String getName()
+        {
+            if (section == null) {
+                return host;
+            }
+
+            return host + ":" + section;
+        }
+    }
+
+    /**
+     * An offending line and the reason it was rejected
+     */
+    private static class Sample
+    {
+        private String line;
+        private String reason;
+
+        Sample(String line, String reason)
+        {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString()
+        {
+            String str = line.trim();
+            if (str.length() > MAX_SAMPLE_LEN) {
+                str = str.substring(0, MAX_SAMPLE_LEN) + "...";
+            }
+
+            if (reason == null) {
+                return "\"" + str + "\"";
+            }
+
+            return "\"" + str + "\" (" + reason + ")";
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package icecube.daq.tools;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Choose which statistics are kept while files are parsed.  Files are
+ * skipped by host before they are opened, sections are skipped by name or
+ * time as soon as their header is seen, and indented statistic lines are
+ * skipped by name before any values are parsed.
+ *
+ * Host, section and statistic names are matched against glob patterns
+ * (<tt>*</tt> matches any string, <tt>?</tt> matches any character).
+ * Statistic names are the names found in the file, before statistics are
+ * split or renamed for charting.  Each category may have several
+ * patterns; a name is accepted if it matches any of them.  Times are UTC.
+ */
+public class ParseFilter
+{
+    private ArrayList<Pattern> hosts;
+    private ArrayList<Pattern> sections;
+    private ArrayList<Pattern> names;
+
+    /** Sections before this time are skipped */
+    private long since = Long.MIN_VALUE;
+    /** Sections at or after this time are skipped */
+    private long until = Long.MAX_VALUE;
+
+    public ParseFilter()
+    {
+    }
+
+    boolean acceptHost(String host)
+    {
+        return matches(hosts, host);
+    }
+
+    boolean acceptName(String name)
+    {
+        return matches(names, name);
+    }
+
+    boolean acceptSection(String host, String section)
+    {
+        return matches(hosts, host) && matches(sections, section);
+    }
+
+    boolean acceptTime(long millis)
+    {
+        return millis >= since && millis < until;
+    }
+
+    /**
+     * Add one or more comma-separated glob patterns to a list
+     *
+     * @param list list of patterns (may be <tt>null</tt>)
+     * @param globs comma-separated patterns
+     *
+     * @return updated list
+     */
+    private static ArrayList<Pattern> addPatterns(ArrayList<Pattern> list,
+                                                  String globs)
+    {
+        if (list == null) {
+            list = new ArrayList<Pattern>();
+        }
+
+        for (String glob : globs.split(",")) {
+            if (glob.length() > 0) {
+                list.add(compileGlob(glob));
+            }
+        }
+
+        return list;
+    }
+
+    public void addHosts(String globs)
+    {
+        hosts = addPatterns(hosts, globs);
+    }
+
+    public void addNames(String globs)
+    {
+        names = addPatterns(names, globs);
+    }
+
+    public void addSections(String globs)
+    {
+        sections = addPatterns(sections, globs);
+    }
+
+    private static Pattern compileGlob(String glob)
+    {
+        StringBuilder buf = new StringBuilder();
+
+        int start = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            final char ch = glob.charAt(i);
+            if (ch == '*' || ch == '?') {
+                if (i > start) {
+                    buf.append(Pattern.quote(glob.substring(start, i)));
+                }
+                buf.append(ch == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+
+        if (start < glob.length()) {
+            buf.append(Pattern.quote(glob.substring(start)));
+        }
+
+        return Pattern.compile(buf.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * Is a statistic name filter in effect?
+     *
+     * @return <tt>true</tt> if some statistics may be rejected by name
+     */
+    boolean filtersNames()
+    {
+        return names != null;
+    }
+
+    /**
+     * Usage string for the command-line options handled by
+     * <tt>setOption()</tt>
+     *
+     * @return usage string
+     */
+    static String getUsage()
+    {
+        return " [-H hostGlob]" +
+            " [-S sectionGlob]" +
+            " [-N nameGlob]" +
+            " [-s sinceTime]" +
+            " [-u untilTime]";
+    }
+
+    /**
+     * Is this one of the options handled by <tt>setOption()</tt>?
+     *
+     * @param opt option character
+     *
+     * @return <tt>true</tt> if this is a filter option
+     */
+    static boolean isOption(char opt)
+    {
+        return opt == 'H' || opt == 'S' || opt == 'N' || opt == 's' ||
+            opt == 'u';
+    }
+
+    private static boolean matches(ArrayList<Pattern> list, String str)
+    {
+        if (list == null) {
+            return true;
+        }
+
+        for (Pattern pat : list) {
+            if (pat.matcher(str).matches()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Convert a UTC time (<tt>yyyy-MM-dd</tt>, <tt>yyyy-MM-dd HH:mm</tt>
+     * or <tt>yyyy-MM-dd HH:mm:ss</tt>, optionally with fractional seconds
+     * or a 'T' between the date and time)
+     *
+     * @param str time string
+     *
+     * @return milliseconds since the epoch
+     *
+     * @throws DateTimeParseException if the time is not valid
+     */
+    static long parseTime(String str)
+    {
+        final String trimmed = str.trim();
+        if (trimmed.length() <= 10) {
+            return LocalDate.parse(trimmed).atStartOfDay().
+                toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+
+        LocalDateTime ldt = LocalDateTime.parse(trimmed.replace(' ', 'T'));
+        return ldt.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Handle a command-line option
+     *
+     * @param opt option character
+     * @param val option value
+     *
+     * @return <tt>false</tt> if the value is not valid
+     */
+    boolean setOption(char opt, String val)
+    {
+        switch (opt) {
+        case 'H':
+            addHosts(val);
+            break;
+        case 'S':
+            addSections(val);
+            break;
+        case 'N':
+            addNames(val);
+            break;
+        case 's':
+        case 'u':
+            final long millis;
+            try {
+                millis = parseTime(val);
+            } catch (DateTimeParseException dte) {
+                return false;
+            }
+
+            if (opt == 's') {
+                setSince(millis);
+            } else {
+                setUntil(millis);
+            }
+            break;
+        default:
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Skip sections which start before this time
+     *
+     * @param millis milliseconds since the epoch
+     */
+    public void setSince(long millis)
+    {
+        since = millis;
+    }
+
+    /**
+     * Skip sections which start at or after this time
+     *
+     * @param millis milliseconds since the epoch
+     */
+    public void setUntil(long millis)
+    {
+        until = millis;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder("ParseFilter[");
+        if (hosts != null) {
+            buf.append("hosts=").append(hosts).append(' ');
+        }
+        if (sections != null) {
+            buf.append("sections=").append(sections).append(' ');
+        }
+        if (names != null) {
+            buf.append("names=").append(names).append(' ');
+        }
+        if (since != Long.MIN_VALUE) {
+            buf.append("since=").append(since).append(' ');
+        }
+        if (until != Long.MAX_VALUE) {
+            buf.append("until=").append(until).append(' ');
+        }
+
+        return buf.toString().trim() + "]";
+    }
+}
@@ -0,0 +1,22 @@
+package icecube.daq.tools;
+
+import java.util.List;
+
+/**
+ * Supplies statistic parsers.  Providers are found with
+ * <tt>java.util.ServiceLoader</tt>, so a new type of statistic can be
+ * added by listing its provider in
+ * <tt>META-INF/services/icecube.daq.tools.ParserProvider</tt> instead of
+ * editing <tt>BaseParser</tt>.
+ */
+public interface ParserProvider
+{
+    /**
+     * Create this provider's parsers.  Called once for every monitoring
+     * file, so each file gets its own parser instances.
+     *
+     * @return new parsers, in the order they should be tried within
+     *         each tier
+     */
+    List<BaseStatParser> createParsers();
+}
@@ -0,0 +1,262 @@
+package icecube.daq.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Create the statistic parsers used for each monitoring file, and keep
+ * track of how often each parser matched lines from each type of
+ * component.  Parsers for a new file start in the order which worked
+ * best for earlier files from the same type of component.
+ */
+final class ParserRegistry
+{
+    private static final Logger LOG = Logger.getLogger(ParserRegistry.class);
+
+    /** Index of the attempt count in the arrays saved in 'stats' */
+    private static final int ATTEMPTS = 0;
+    /** Index of the match count */
+    private static final int MATCHES = 1;
+    /** Index of the elapsed time */
+    private static final int NANOS = 2;
+
+    /** Providers found by the service loader */
+    private static List<ParserProvider> providers;
+
+    /**
+     * Counts for each parser, indexed by component and then by parser
+     * class name
+     */
+    private static HashMap<String, LinkedHashMap<String, long[]>> stats =
+        new HashMap<String, LinkedHashMap<String, long[]>>();
+
+    /** If <tt>true</tt>, time every parser call */
+    private static volatile boolean timing;
+
+    private ParserRegistry()
+    {
+    }
+
+    /**
+     * Create a new set of parsers for a monitoring file
+     *
+     * @param component component name (without the instance number)
+     *
+     * @return parsers, ordered by tier and then by the number of lines
+     *         each matched in earlier files from this component
+     */
+    static BaseStatParser[] createParsers(String component)
+    {
+        ArrayList<BaseStatParser> list = new ArrayList<BaseStatParser>();
+        for (ParserProvider provider : getProviders()) {
+            list.addAll(provider.createParsers());
+        }
+
+        BaseStatParser[] parsers =
+            list.toArray(new BaseStatParser[list.size()]);
+
+        long[] counts = new long[parsers.length];
+        synchronized (ParserRegistry.class) {
+            Map<String, long[]> compStats = stats.get(component);
+            if (compStats != null) {
+                for (int i = 0; i < parsers.length; i++) {
+                    final long[] vals =
+                        compStats.get(parsers[i].getClass().getName());
+                    if (vals != null) {
+                        counts[i] = vals[MATCHES];
+                    }
+                }
+            }
+        }
+
+        return sort(parsers, counts);
+    }
+
+    /**
+     * Get the providers listed in the service configuration files.  The
+     * standard parsers are always included, even if their configuration
+     * file is missing.
+     *
+     * @return list of providers
+     */
+    private static synchronized List<ParserProvider> getProviders()
+    {
+        if (providers == null) {
+            ArrayList<ParserProvider> list = new ArrayList<ParserProvider>();
+
+            boolean foundStandard = false;
+            try {
+                for (ParserProvider provider :
+                         ServiceLoader.load(ParserProvider.class))
+                {
+                    list.add(provider);
+                    if (provider instanceof StandardParserProvider) {
+                        foundStandard = true;
+                    }
+                }
+            } catch (ServiceConfigurationError sce) {
+                LOG.error("Couldn't load statistic parsers", sce);
+            }
+
+            if (!foundStandard) {
+                list.add(0, new StandardParserProvider());
+            }
+
+            providers = list;
+        }
+
+        return providers;
+    }
+
+    /**
+     * Get a report of the lines tried and matched by every parser
+     *
+     * @return multi-line report, or an empty string if nothing has been
+     *         parsed
+     */
+    static synchronized String getReport()
+    {
+        StringBuilder buf = new StringBuilder();
+
+        TreeMap<String, LinkedHashMap<String, long[]>> sorted =
+            new TreeMap<String, LinkedHashMap<String, long[]>>(stats);
+        for (Map.Entry<String, LinkedHashMap<String, long[]>> entry :
+                 sorted.entrySet())
+        {
+            buf.append("Parsers for ").append(entry.getKey()).append(":\n");
+            for (Map.Entry<String, long[]> pe : entry.getValue().entrySet()) {
+                final String name = pe.getKey();
+                final String shortName =
+                    name.substring(name.lastIndexOf('.') + 1);
+                final long[] vals = pe.getValue();
+
+                buf.append(String.format("    %-16s %10d of %10d lines",
+                                         shortName, vals[MATCHES],
+                                         vals[ATTEMPTS]));
+                if (vals[NANOS] > 0) {
+                    buf.append(String.format(" %9.1f ms",
+                                             (double) vals[NANOS] /
+                                             1000000.0));
+                }
+                buf.append('\n');
+            }
+        }
+
+        return buf.toString();
+    }
+
+    /**
+     * Should every parser call be timed?
+     *
+     * @return <tt>true</tt> if parsers are being timed
+     */
+    static boolean isTiming()
+    {
+        return timing;
+    }
+
+    /**
+     * Add the counts from a set of parsers to the counts for their
+     * component
+     *
+     * @param component component name
+     * @param parsers parsers used for a monitoring file
+     */
+    static synchronized void record(String component,
+                                    BaseStatParser[] parsers)
+    {
+        LinkedHashMap<String, long[]> compStats = stats.get(component);
+        if (compStats == null) {
+            compStats = new LinkedHashMap<String, long[]>();
+            stats.put(component, compStats);
+        }
+
+        for (BaseStatParser parser : parsers) {
+            if (parser.getAttempts() == 0) {
+                continue;
+            }
+
+            final String name = parser.getClass().getName();
+
+            long[] vals = compStats.get(name);
+            if (vals == null) {
+                vals = new long[3];
+                compStats.put(name, vals);
+            }
+
+            vals[ATTEMPTS] += parser.getAttempts();
+            vals[MATCHES] += parser.getMatches();
+            vals[NANOS] += parser.getNanos();
+        }
+    }
+
+    /**
+     * Forget all counts (used for benchmarking)
+     */
+    static synchronized void resetStatistics()
+    {
+        stats.clear();
+    }
+
+    /**
+     * Enable or disable timing every parser call
+     *
+     * @param val if <tt>true</tt>, record the time spent in each parser
+     */
+    static void setTiming(boolean val)
+    {
+        timing = val;
+    }
+
+    /**
+     * Order parsers by tier, and within each tier by the number of lines
+     * each parser matched.  Parsers with equal counts keep their order.
+     *
+     * @param list parsers
+     * @param counts number of lines matched by each parser
+     *
+     * @return sorted copy of the list
+     */
+    static BaseStatParser[] sort(final BaseStatParser[] list,
+                                 final long[] counts)
+    {
+        Integer[] order = new Integer[list.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer i1, Integer i2)
+                {
+                    final int t1 = list[i1].getTier();
+                    final int t2 = list[i2].getTier();
+                    if (t1 != t2) {
+                        return t1 < t2 ? -1 : 1;
+                    }
+
+                    if (counts[i1] != counts[i2]) {
+                        return counts[i1] > counts[i2] ? -1 : 1;
+                    }
+
+                    return 0;
+                }
+            });
+
+        BaseStatParser[] sorted = new BaseStatParser[list.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = list[order[i]];
+        }
+
+        return sorted;
+    }
+}
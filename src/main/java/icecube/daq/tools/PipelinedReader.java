@@ -0,0 +1,261 @@
+package icecube.daq.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Read lines on a separate thread so that decompressing a file overlaps
+ * with parsing it.  The reading thread splits the input into lines and
+ * passes them to the parsing thread in batches through a bounded queue.
+ */
+class PipelinedReader
+    implements LineReader, Runnable
+{
+    private static final Logger LOG = Logger.getLogger(PipelinedReader.class);
+
+    /** Number of lines passed to the parsing thread at once */
+    private static final int BATCH_SIZE = 1024;
+    /** Maximum number of batches waiting to be parsed */
+    private static final int QUEUE_SIZE = 16;
+
+    /** Marks the end of the input */
+    private static final String[] END = new String[0];
+
+    private BufferedReader in;
+    private String name;
+
+    private ArrayBlockingQueue<String[]> queue =
+        new ArrayBlockingQueue<String[]>(QUEUE_SIZE);
+    private Thread thread;
+    private volatile boolean closed;
+    /** Error seen by the reading thread, reported after the last line */
+    private IOException error;
+
+    private String[] batch;
+    private int batchIdx;
+    private boolean finished;
+
+    /** Number of lines read */
+    private long numLines;
+    /** Time spent reading lines */
+    private long readNanos;
+    /** Time the reading thread spent waiting for the parsing thread */
+    private long fullNanos;
+    /** Time the parsing thread spent waiting for the reading thread */
+    private long emptyNanos;
+
+    /**
+     * Start reading lines
+     *
+     * @param in source of the lines
+     * @param name name used for the reading thread
+     */
+    PipelinedReader(BufferedReader in, String name)
+    {
+        this.in = in;
+        this.name = name;
+
+        thread = new Thread(this, "Reader-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the reading thread and close the input
+     *
+     * @throws IOException if the reading thread was interrupted
+     */
+    public void close()
+        throws IOException
+    {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        thread.interrupt();
+        queue.clear();
+
+        try {
+            thread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing " +
+                                             name);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(toString());
+        }
+    }
+
+    /**
+     * Pass a batch of lines to the parsing thread
+     *
+     * @param lines batch of lines
+     *
+     * @return <tt>false</tt> if this reader has been closed
+     */
+    private boolean enqueue(String[] lines)
+    {
+        final long start = System.nanoTime();
+        try {
+            queue.put(lines);
+        } catch (InterruptedException ie) {
+            return false;
+        } finally {
+            fullNanos += System.nanoTime() - start;
+        }
+
+        return !closed;
+    }
+
+    /**
+     * Time the parsing thread spent waiting for lines
+     *
+     * @return nanoseconds
+     */
+    long getEmptyNanos()
+    {
+        return emptyNanos;
+    }
+
+    /**
+     * Time the reading thread spent waiting for the parsing thread to
+     * catch up
+     *
+     * @return nanoseconds
+     */
+    long getFullNanos()
+    {
+        return fullNanos;
+    }
+
+    /**
+     * Number of lines read.  This is only valid after the reader is
+     * closed.
+     *
+     * @return number of lines
+     */
+    long getLines()
+    {
+        return numLines;
+    }
+
+    /**
+     * Time the reading thread spent reading and decompressing.  This is
+     * only valid after the reader is closed.
+     *
+     * @return nanoseconds
+     */
+    long getReadNanos()
+    {
+        return readNanos;
+    }
+
+    public String readLine()
+        throws IOException
+    {
+        while (batch == null || batchIdx >= batch.length) {
+            if (finished) {
+                return null;
+            }
+
+            String[] next = queue.poll();
+            if (next == null) {
+                final long start = System.nanoTime();
+                try {
+                    next = queue.take();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while" +
+                                                     " reading " + name);
+                } finally {
+                    emptyNanos += System.nanoTime() - start;
+                }
+            }
+
+            if (next == END) {
+                finished = true;
+                batch = null;
+                if (error != null) {
+                    throw error;
+                }
+                return null;
+            }
+
+            batch = next;
+            batchIdx = 0;
+        }
+
+        final String line = batch[batchIdx];
+        batch[batchIdx++] = null;
+        return line;
+    }
+
+    /**
+     * Read lines until the input is exhausted or this reader is closed
+     */
+    public void run()
+    {
+        try {
+            String[] lines = new String[BATCH_SIZE];
+            int num = 0;
+
+            long start = System.nanoTime();
+            while (!closed) {
+                final String line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+
+                lines[num++] = line;
+                if (num == lines.length) {
+                    readNanos += System.nanoTime() - start;
+                    numLines += num;
+
+                    if (!enqueue(lines)) {
+                        return;
+                    }
+
+                    lines = new String[BATCH_SIZE];
+                    num = 0;
+                    start = System.nanoTime();
+                }
+            }
+
+            readNanos += System.nanoTime() - start;
+            numLines += num;
+
+            if (num > 0 && !enqueue(Arrays.copyOf(lines, num))) {
+                return;
+            }
+        } catch (IOException ioe) {
+            error = ioe;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ioe) {
+                // ignore errors on close
+            }
+
+            if (!closed) {
+                enqueue(END);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("PipelinedReader[%s: %d lines, read %.3f" +
+                             " secs, full %.3f secs, empty %.3f secs]",
+                             name, numLines, readNanos / 1.0E9,
+                             fullNanos / 1.0E9, emptyNanos / 1.0E9);
+    }
+}
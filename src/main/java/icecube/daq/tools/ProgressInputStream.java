@@ -0,0 +1,54 @@
+package icecube.daq.tools;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Count the bytes read from a file
+ */
+class ProgressInputStream
+    extends FilterInputStream
+{
+    private FileProgress progress;
+
+    ProgressInputStream(InputStream in, FileProgress progress)
+    {
+        super(in);
+
+        this.progress = progress;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int val = super.read();
+        if (val >= 0) {
+            progress.addBytes(1);
+        }
+        return val;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+        throws IOException
+    {
+        final int num = super.read(b, off, len);
+        if (num > 0) {
+            progress.addBytes(num);
+        }
+        return num;
+    }
+
+    @Override
+    public long skip(long n)
+        throws IOException
+    {
+        final long num = super.skip(n);
+        if (num > 0) {
+            progress.addBytes(num);
+        }
+        return num;
+    }
+}
@@ -0,0 +1,69 @@
+package icecube.daq.tools;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Only read part of a stream
+ */
+class RangeInputStream
+    extends FilterInputStream
+{
+    private long remaining;
+
+    RangeInputStream(InputStream in, long length)
+    {
+        super(in);
+
+        remaining = length;
+    }
+
+    @Override
+    public int available()
+        throws IOException
+    {
+        return (int) Math.min(super.available(), remaining);
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        final int val = super.read();
+        if (val >= 0) {
+            remaining--;
+        }
+        return val;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+        throws IOException
+    {
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        final int num = super.read(b, off, (int) Math.min(len, remaining));
+        if (num > 0) {
+            remaining -= num;
+        }
+        return num;
+    }
+
+    @Override
+    public long skip(long n)
+        throws IOException
+    {
+        final long num = super.skip(Math.min(n, remaining));
+        if (num > 0) {
+            remaining -= num;
+        }
+        return num;
+    }
+}
@@ -0,0 +1,51 @@
+package icecube.daq.tools;
+
+/**
+ * Statistic which stores sample times and values in columns
+ */
+interface SampleColumns
+{
+    /**
+     * Get the time of a sample
+     *
+     * @param idx sample index
+     *
+     * @return time in milliseconds
+     */
+    long getTime(int idx);
+
+    /**
+     * Get the difference between two sample values
+     *
+     * @param idx sample index
+     * @param prevIdx index of earlier sample
+     *
+     * @return difference
+     */
+    double getPlotDelta(int idx, int prevIdx);
+
+    /**
+     * Get a sample value
+     *
+     * @param idx sample index
+     *
+     * @return value
+     */
+    double getPlotValue(int idx);
+
+    /**
+     * Get a read-only view of the samples added so far.  Samples which
+     * are already stored are never changed, so the view may be read
+     * without the statistics lock while more samples are added.
+     *
+     * @return current samples
+     */
+    SampleColumns getView();
+
+    /**
+     * Number of samples
+     *
+     * @return number of samples
+     */
+    int size();
+}
@@ -0,0 +1,43 @@
+package icecube.daq.tools;
+
+/**
+ * Receives the samples found by a statistic parser.  Parsers pass each
+ * value as soon as it is parsed, so no per-line collections are built.
+ */
+public interface SampleSink
+{
+    /**
+     * Add a sample which is not a single number (lists, arrays, memory
+     * usage, timing, strings)
+     *
+     * @param name statistic name
+     * @param datum sample
+     */
+    void add(String name, BaseData datum);
+
+    /**
+     * Add a floating-point sample
+     *
+     * @param name statistic name
+     * @param time sample time
+     * @param val sample value
+     */
+    void addDouble(String name, ChartTime time, double val);
+
+    /**
+     * Add an integer sample
+     *
+     * @param name statistic name
+     * @param time sample time
+     * @param val sample value
+     */
+    void addLong(String name, ChartTime time, long val);
+
+    /**
+     * Report that the current line was recognized but is not valid.  The
+     * parser should then return <tt>true</tt> without adding any samples.
+     *
+     * @param reason description of the problem
+     */
+    void reject(String reason);
+}
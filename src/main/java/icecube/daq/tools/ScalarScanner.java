@@ -0,0 +1,261 @@
+package icecube.daq.tools;
+
+/**
+ * Hand-written scanner for the common "<tab>name: number" statistic line,
+ * used to avoid regular expressions and temporary strings when parsing
+ * long and double values.
+ *
+ * The scanner only accepts lines with leading whitespace, a name made up
+ * of non-whitespace, non-colon characters, an optional colon, whitespace
+ * and a number followed by optional whitespace.  These lines are parsed
+ * exactly as the "\s+([^\s:]+):?\s+" branch of the LongParser and
+ * DoubleParser patterns would parse them.  Anything else is left to
+ * those patterns.
+ *
+ * This class is not thread-safe; each parser should have its own scanner.
+ */
+class ScalarScanner
+{
+    /** Largest long value which can be converted to a double exactly */
+    private static final long MAX_EXACT = 1L << 53;
+
+    /** Powers of ten which can be represented exactly by a double */
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    private NameTable names = new NameTable();
+
+    private String name;
+    private long longVal;
+    private double doubleVal;
+
+    /** Set when a long value was found but is too large */
+    private boolean overflow;
+
+    /**
+     * Characters which the parser patterns treat as whitespace.  Any
+     * non-ASCII character causes the scan to fail.
+     */
+    private static boolean isSpace(char ch)
+    {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' ||
+            ch == '\f' || ch == '\u000b';
+    }
+
+    private static boolean isDigit(char ch)
+    {
+        return ch >= '0' && ch <= '9';
+    }
+
+    double getDouble()
+    {
+        return doubleVal;
+    }
+
+    long getLong()
+    {
+        return longVal;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Was the number found by the last call to scanLong() too large for
+     * a long?
+     */
+    boolean isOverflow()
+    {
+        return overflow;
+    }
+
+    /**
+     * Scan the leading "<whitespace>name:<whitespace>" part of a line.
+     *
+     * @return index of the first character after the separator, or -1
+     */
+    private int scanName(CharSequence line)
+    {
+        final int len = line.length();
+
+        int i = 0;
+        if (len == 0 || !isSpace(line.charAt(0))) {
+            return -1;
+        }
+        while (i < len && isSpace(line.charAt(i))) {
+            i++;
+        }
+
+        final int nameStart = i;
+        while (i < len) {
+            final char ch = line.charAt(i);
+            if (ch >= 0x80) {
+                return -1;
+            } else if (ch == ':' || isSpace(ch)) {
+                break;
+            }
+            i++;
+        }
+        if (i == nameStart) {
+            return -1;
+        }
+
+        final int nameEnd = i;
+
+        if (i < len && line.charAt(i) == ':') {
+            i++;
+        }
+
+        if (i >= len || !isSpace(line.charAt(i))) {
+            return -1;
+        }
+        while (i < len && isSpace(line.charAt(i))) {
+            i++;
+        }
+
+        name = names.get(line, nameStart, nameEnd);
+        return i;
+    }
+
+    /**
+     * Is everything from 'i' to the end of the line whitespace?
+     */
+    private static boolean isTrailingSpace(CharSequence line, int i)
+    {
+        final int len = line.length();
+        for ( ; i < len; i++) {
+            if (!isSpace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scan a "name: [+-]digits[L]" line.  If the digits do not fit in a
+     * long, <tt>true</tt> is returned and isOverflow() is set.
+     *
+     * @param line line to scan
+     *
+     * @return <tt>false</tt> if the line is not a simple long statistic
+     */
+    boolean scanLong(CharSequence line)
+    {
+        int i = scanName(line);
+        if (i < 0) {
+            return false;
+        }
+
+        final int len = line.length();
+
+        boolean negative = false;
+        if (i < len && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+
+        final int digitStart = i;
+
+        // accumulate negatively so Long.MIN_VALUE can be parsed
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multMin = limit / 10;
+
+        long val = 0;
+        boolean tooBig = false;
+        while (i < len && isDigit(line.charAt(i))) {
+            final int digit = line.charAt(i) - '0';
+            if (val < multMin || val * 10 < limit + digit) {
+                tooBig = true;
+            } else {
+                val = val * 10 - digit;
+            }
+            i++;
+        }
+        if (i == digitStart) {
+            return false;
+        }
+
+        if (i < len && line.charAt(i) == 'L') {
+            i++;
+        }
+
+        if (!isTrailingSpace(line, i)) {
+            return false;
+        }
+
+        overflow = tooBig;
+        longVal = negative ? val : -val;
+        return true;
+    }
+
+    /**
+     * Scan a "name: [+-]digits[.digits]" line.
+     *
+     * @param line line to scan
+     *
+     * @return <tt>false</tt> if the line is not a simple double statistic
+     */
+    boolean scanDouble(CharSequence line)
+    {
+        int i = scanName(line);
+        if (i < 0) {
+            return false;
+        }
+
+        final int len = line.length();
+        final int valStart = i;
+
+        boolean negative = false;
+        if (i < len && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numDigits = 0;
+
+        final int intStart = i;
+        while (i < len && isDigit(line.charAt(i))) {
+            mantissa = mantissa * 10 + (line.charAt(i) - '0');
+            numDigits++;
+            i++;
+        }
+        if (i == intStart) {
+            return false;
+        }
+
+        int fracDigits = 0;
+        if (i < len && line.charAt(i) == '.') {
+            i++;
+            while (i < len && isDigit(line.charAt(i))) {
+                mantissa = mantissa * 10 + (line.charAt(i) - '0');
+                numDigits++;
+                fracDigits++;
+                i++;
+            }
+        }
+
+        final int valEnd = i;
+
+        if (!isTrailingSpace(line, i)) {
+            return false;
+        }
+
+        if (numDigits <= 18 && mantissa < MAX_EXACT &&
+            fracDigits < POW10.length)
+        {
+            // both values are exact, so the division is correctly rounded
+            double val = (double) mantissa / POW10[fracDigits];
+            doubleVal = negative ? -val : val;
+        } else {
+            String valStr = line.subSequence(valStart, valEnd).toString();
+            doubleVal = Double.parseDouble(valStr);
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,95 @@
+package icecube.daq.tools;
+
+/**
+ * Count how often the parser type learned for a statistic parsed the
+ * next line for that statistic without trying the other parsers.
+ */
+class SchemaStats
+{
+    /** Lines parsed by the learned parser */
+    private long hits;
+    /** Lines which needed the full cascade despite a learned parser */
+    private long misses;
+    /** Lines for statistics which had not been seen before */
+    private long unknown;
+
+    SchemaStats()
+    {
+    }
+
+    void addHit()
+    {
+        hits++;
+    }
+
+    void addMiss()
+    {
+        misses++;
+    }
+
+    void addUnknown()
+    {
+        unknown++;
+    }
+
+    long getHits()
+    {
+        return hits;
+    }
+
+    long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Get the fraction of lines parsed by a learned parser
+     *
+     * @return hit rate (between 0 and 1)
+     */
+    double getHitRate()
+    {
+        final long total = getTotal();
+        if (total == 0) {
+            return 0.0;
+        }
+
+        return (double) hits / (double) total;
+    }
+
+    /**
+     * Get the number of lines which were checked for a learned parser
+     *
+     * @return number of lines
+     */
+    long getTotal()
+    {
+        return hits + misses + unknown;
+    }
+
+    long getUnknown()
+    {
+        return unknown;
+    }
+
+    /**
+     * Add the counts from another collection
+     *
+     * @param other counts to add
+     */
+    void merge(SchemaStats other)
+    {
+        hits += other.hits;
+        misses += other.misses;
+        unknown += other.unknown;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d of %d lines (%.1f%%) parsed by the" +
+                             " learned parser, %d misses, %d new", hits,
+                             getTotal(), getHitRate() * 100.0, misses,
+                             unknown);
+    }
+}
@@ -0,0 +1,146 @@
+package icecube.daq.tools;
+
+import java.util.Arrays;
+
+/**
+ * Samples parsed from one section, held until the whole section has been
+ * parsed so they can be added to a <tt>StatData</tt> in a single call.
+ * Integer and floating-point samples are kept in primitive arrays, so
+ * buffering them creates no objects.  The arrays are reused for every
+ * section.
+ */
+class SectionBatch
+{
+    private static final int INITIAL_SIZE = 64;
+
+    /** Sample is in 'longVals' */
+    static final byte LONG = 0;
+    /** Sample is in 'doubleVals' */
+    static final byte DOUBLE = 1;
+    /** Sample is in 'data' */
+    static final byte DATUM = 2;
+
+    private int[] ids = new int[INITIAL_SIZE];
+    private byte[] kinds = new byte[INITIAL_SIZE];
+    private long[] times = new long[INITIAL_SIZE];
+    private long[] longVals = new long[INITIAL_SIZE];
+    private double[] doubleVals = new double[INITIAL_SIZE];
+    private BaseData[] data = new BaseData[INITIAL_SIZE];
+    /** Line which produced each entry in 'data', for error reports */
+    private String[] lines = new String[INITIAL_SIZE];
+
+    private int count;
+
+    SectionBatch()
+    {
+    }
+
+    void add(int id, BaseData datum, String line)
+    {
+        final int idx = next(id, DATUM);
+        data[idx] = datum;
+        lines[idx] = line;
+    }
+
+    void addDouble(int id, long time, double val)
+    {
+        final int idx = next(id, DOUBLE);
+        times[idx] = time;
+        doubleVals[idx] = val;
+    }
+
+    void addLong(int id, long time, long val)
+    {
+        final int idx = next(id, LONG);
+        times[idx] = time;
+        longVals[idx] = val;
+    }
+
+    /**
+     * Forget all samples, keeping the arrays for the next section
+     */
+    void clear()
+    {
+        // don't hold on to samples which have been saved
+        Arrays.fill(data, 0, count, null);
+        Arrays.fill(lines, 0, count, null);
+        count = 0;
+    }
+
+    BaseData getDatum(int idx)
+    {
+        return data[idx];
+    }
+
+    double getDouble(int idx)
+    {
+        return doubleVals[idx];
+    }
+
+    int getId(int idx)
+    {
+        return ids[idx];
+    }
+
+    byte getKind(int idx)
+    {
+        return kinds[idx];
+    }
+
+    String getLine(int idx)
+    {
+        return lines[idx];
+    }
+
+    long getLong(int idx)
+    {
+        return longVals[idx];
+    }
+
+    long getTime(int idx)
+    {
+        return times[idx];
+    }
+
+    boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    /**
+     * Reserve the next entry
+     *
+     * @param id metric ID
+     * @param kind where the sample value is stored
+     *
+     * @return index of the new entry
+     */
+    private int next(int id, byte kind)
+    {
+        if (count == ids.length) {
+            final int newLen = ids.length * 2;
+            ids = Arrays.copyOf(ids, newLen);
+            kinds = Arrays.copyOf(kinds, newLen);
+            times = Arrays.copyOf(times, newLen);
+            longVals = Arrays.copyOf(longVals, newLen);
+            doubleVals = Arrays.copyOf(doubleVals, newLen);
+            data = Arrays.copyOf(data, newLen);
+            lines = Arrays.copyOf(lines, newLen);
+        }
+
+        ids[count] = id;
+        kinds[count] = kind;
+        return count++;
+    }
+
+    int size()
+    {
+        return count;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SectionBatch[" + count + " samples]";
+    }
+}
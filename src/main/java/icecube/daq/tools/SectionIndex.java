@@ -0,0 +1,386 @@
+package icecube.daq.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Byte offsets of every section header in one or more uncompressed
+ * monitoring files.  Only the first occurrence of each section is parsed
+ * when the index is built (so the section's statistic names are known);
+ * the remaining occurrences are parsed when the section is needed.
+ */
+class SectionIndex
+{
+    private static final Logger LOG = Logger.getLogger(SectionIndex.class);
+
+    private static final int BUFFER_SIZE = 65536;
+    /** Maximum number of bytes to parse at once */
+    private static final int BATCH_SIZE = 4 * 1024 * 1024;
+
+    /** Segments for each section, in file order */
+    private HashMap<SectionKey, List<FileSegment>> segments =
+        new HashMap<SectionKey, List<FileSegment>>();
+    /** Statistics from the first segment of each section */
+    private StatData samples = new StatData();
+
+    private boolean omitDataCollector;
+    private boolean verbose;
+    private ParseFilter filter;
+
+    private SectionIndex(boolean omitDataCollector, boolean verbose,
+                         ParseFilter filter)
+    {
+        this.omitDataCollector = omitDataCollector;
+        this.verbose = verbose;
+        this.filter = filter;
+    }
+
+    /**
+     * Find all section headers in an uncompressed monitoring file
+     *
+     * @param file monitoring file
+     * @param omitDataCollector if <tt>true</tt>, ignore DataCollectorMonitor
+     *                          sections
+     * @param verbose if <tt>true</tt>, print details about each parsed line
+     * @param filter if non-null, sections rejected by this filter are not
+     *               indexed and statistics rejected by it are not parsed
+     *
+     * @return new index
+     *
+     * @throws IOException if the file cannot be read
+     */
+    static SectionIndex build(File file, boolean omitDataCollector,
+                              boolean verbose, ParseFilter filter)
+        throws IOException
+    {
+        final String host =
+            PDAQParser.getHostName(new GraphSource(file));
+        final Charset charset = Charset.defaultCharset();
+
+        SectionIndex index =
+            new SectionIndex(omitDataCollector, verbose, filter);
+
+        SectionKey prevKey = null;
+        long prevStart = 0;
+        long prevTime = Long.MIN_VALUE;
+
+        TimestampParser timeParser = new TimestampParser();
+        long sectionTime = Long.MIN_VALUE;
+
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buf = new byte[BUFFER_SIZE];
+            byte[] line = new byte[256];
+            int lineLen = 0;
+
+            long pos = 0;
+            long lineStart = 0;
+            boolean atStart = true;
+            boolean candidate = false;
+
+            long fileEnd = -1;
+            while (fileEnd < 0) {
+                int num = in.read(buf);
+                if (num < 0) {
+                    fileEnd = pos;
+                    if (atStart) {
+                        break;
+                    }
+
+                    // terminate the final line
+                    buf[0] = '\n';
+                    num = 1;
+                }
+
+                for (int i = 0; i < num; i++, pos++) {
+                    final byte b = buf[i];
+                    if (b == '\n' || b == '\r') {
+                        if (candidate) {
+                            String hdr =
+                                stripDots(new String(line, 0, lineLen,
+                                                     charset));
+                            String name = PDAQParser.getSectionName(hdr);
+                            if (name != null) {
+                                if (prevKey != null) {
+                                    index.add(prevKey, file, prevStart,
+                                              lineStart, prevTime);
+                                }
+
+                                // undated sections keep the last time
+                                final long time =
+                                    PDAQParser.getSectionTime(hdr,
+                                                              timeParser);
+                                if (time != Long.MIN_VALUE) {
+                                    sectionTime = time;
+                                    prevTime = Long.MIN_VALUE;
+                                } else {
+                                    prevTime = sectionTime;
+                                }
+
+                                if (filter == null) {
+                                    prevKey = new SectionKey(host, name);
+                                } else {
+                                    if (!filter.acceptSection(host, name) ||
+                                        (sectionTime != Long.MIN_VALUE &&
+                                         !filter.acceptTime(sectionTime)))
+                                    {
+                                        prevKey = null;
+                                    } else {
+                                        prevKey = new SectionKey(host, name);
+                                    }
+                                }
+                                prevStart = lineStart;
+                            }
+                        }
+
+                        lineStart = pos + 1;
+                        atStart = true;
+                        candidate = false;
+                        lineLen = 0;
+                        continue;
+                    }
+
+                    if (atStart) {
+                        // header lines never start with whitespace
+                        atStart = false;
+                        candidate = b != ' ' && b != '\t';
+                    }
+
+                    if (candidate) {
+                        if (lineLen == line.length) {
+                            line = Arrays.copyOf(line, line.length * 2);
+                        }
+                        line[lineLen++] = b;
+                    }
+                }
+            }
+
+            if (prevKey != null) {
+                index.add(prevKey, file, prevStart, fileEnd, prevTime);
+            }
+        } finally {
+            in.close();
+        }
+
+        for (Map.Entry<SectionKey, List<FileSegment>> entry :
+                 index.segments.entrySet())
+        {
+            index.parse(entry.getValue().subList(0, 1), index.samples);
+        }
+
+        return index;
+    }
+
+    private void add(SectionKey key, File file, long start, long end,
+                     long time)
+    {
+        List<FileSegment> list = segments.get(key);
+        if (list == null) {
+            list = new ArrayList<FileSegment>();
+            segments.put(key, list);
+        }
+
+        list.add(new FileSegment(file, start, end, time));
+    }
+
+    boolean contains(SectionKey key)
+    {
+        return segments.containsKey(key);
+    }
+
+    /**
+     * Get the names of all statistics found in the first occurrence of a
+     * section
+     *
+     * @param key section key
+     *
+     * @return list of names
+     */
+    List<String> getNames(SectionKey key)
+    {
+        return samples.getSectionNames(key);
+    }
+
+    private static String stripDots(String line)
+    {
+        int idx = 0;
+        while (idx < line.length() && line.charAt(idx) == '.') {
+            idx++;
+        }
+
+        return line.substring(idx);
+    }
+
+    boolean isEmpty()
+    {
+        return segments.isEmpty();
+    }
+
+    Set<SectionKey> keys()
+    {
+        return segments.keySet();
+    }
+
+    /**
+     * Parse all segments for a section and remove the section from the
+     * index
+     *
+     * @param key section key
+     * @param statData statistics collection
+     */
+    void load(SectionKey key, StatData statData)
+    {
+        List<FileSegment> list = segments.remove(key);
+        if (list == null) {
+            return;
+        }
+
+        parse(list, statData);
+    }
+
+    /**
+     * Add all sections from another index.  Sections which exist in both
+     * indexes will load this index's segments first.
+     *
+     * @param other index to add
+     */
+    void merge(SectionIndex other)
+    {
+        for (Map.Entry<SectionKey, List<FileSegment>> entry :
+                 other.segments.entrySet())
+        {
+            List<FileSegment> list = segments.get(entry.getKey());
+            if (list == null) {
+                segments.put(entry.getKey(), entry.getValue());
+            } else {
+                list.addAll(entry.getValue());
+            }
+        }
+
+        samples.merge(other.samples);
+    }
+
+    /**
+     * Parse a list of segments.  Consecutive segments from the same file
+     * are parsed as a single block to avoid the cost of starting a new
+     * parser for every segment.  A segment with an undated header always
+     * starts a new block, so it can be given the time it would have
+     * inherited from the previous dated header.
+     *
+     * @param list segments
+     * @param statData statistics collection
+     */
+    private void parse(List<FileSegment> list, StatData statData)
+    {
+        RandomAccessFile raf = null;
+        File curFile = null;
+
+        byte[] bytes = new byte[BUFFER_SIZE];
+        int numBytes = 0;
+        long batchTime = Long.MIN_VALUE;
+
+        try {
+            for (FileSegment seg : list) {
+                if (raf == null || !seg.getFile().equals(curFile) ||
+                    numBytes >= BATCH_SIZE || seg.getTime() != Long.MIN_VALUE)
+                {
+                    if (numBytes > 0) {
+                        parseBytes(curFile, bytes, numBytes, batchTime,
+                                   statData);
+                        numBytes = 0;
+                    }
+
+                    if (raf == null || !seg.getFile().equals(curFile)) {
+                        if (raf != null) {
+                            raf.close();
+                        }
+
+                        curFile = seg.getFile();
+                        raf = new RandomAccessFile(curFile, "r");
+                    }
+                }
+
+                if (numBytes == 0) {
+                    batchTime = seg.getTime();
+                }
+
+                final long len = seg.getEnd() - seg.getStart();
+                if (numBytes + len > Integer.MAX_VALUE) {
+                    throw new IOException("Segment " + seg + " is too large");
+                } else if (numBytes + len > bytes.length) {
+                    final int newLen =
+                        (int) Math.max(numBytes + len,
+                                       Math.min((long) bytes.length * 2,
+                                                Integer.MAX_VALUE));
+                    bytes = Arrays.copyOf(bytes, newLen);
+                }
+
+                raf.seek(seg.getStart());
+                raf.readFully(bytes, numBytes, (int) len);
+                numBytes += (int) len;
+            }
+
+            if (numBytes > 0) {
+                parseBytes(curFile, bytes, numBytes, batchTime, statData);
+            }
+        } catch (IOException ioe) {
+            LOG.error("Couldn't load \"" + curFile + "\"", ioe);
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ioe) {
+                    // ignore errors on close
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse a block of segments
+     *
+     * @param file monitoring file
+     * @param bytes segment contents
+     * @param len number of bytes
+     * @param time time for an undated first section, or
+     *             <tt>Long.MIN_VALUE</tt>
+     * @param statData statistics collection
+     *
+     * @throws IOException if there is a problem
+     */
+    private void parseBytes(File file, byte[] bytes, int len, long time,
+                            StatData statData)
+        throws IOException
+    {
+        String text = new String(bytes, 0, len, Charset.defaultCharset());
+
+        GraphSource src = new GraphSource(file);
+        src.setFilter(filter);
+
+        statData.readData(src,
+                          new BufferedLineReader(new StringReader(text)),
+                          time,
+                          omitDataCollector, verbose);
+    }
+
+    /**
+     * Reorganize the sample statistics
+     */
+    void transform()
+    {
+        samples.transform();
+    }
+}
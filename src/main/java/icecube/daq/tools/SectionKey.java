@@ -72,6 +72,23 @@ public class SectionKey
         return comp;
     }
 
+    /**
+     * Get the component name from a host name like <tt>stringHub-9</tt>
+     *
+     * @param host host name
+     *
+     * @return component name (<tt>stringHub</tt>)
+     */
+    static String getComponentName(String host)
+    {
+        final int minusIdx = host.lastIndexOf('-');
+        if (minusIdx < 0) {
+            return host;
+        }
+
+        return host.substring(0, minusIdx);
+    }
+
     public String getHost()
     {
         return host;
@@ -90,8 +107,7 @@ public class SectionKey
     @Override
     public int hashCode()
     {
-        return (host.hashCode() & 0xffff) << 16 +
-            (section.hashCode() & 0xffff);
+        return host.hashCode() * 31 + section.hashCode();
     }
 
     @Override
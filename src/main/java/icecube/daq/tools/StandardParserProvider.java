@@ -0,0 +1,28 @@
+package icecube.daq.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides the parsers for the statistic types written by pDAQ.
+ */
+public class StandardParserProvider
+    implements ParserProvider
+{
+    public StandardParserProvider()
+    {
+    }
+
+    public List<BaseStatParser> createParsers()
+    {
+        ArrayList<BaseStatParser> list = new ArrayList<BaseStatParser>();
+        list.add(new LongParser());
+        list.add(new ListParser());
+        list.add(new MemoryParser());
+        list.add(new DoubleParser());
+        list.add(new MapArrayParser());
+        list.add(new TimingParser());
+        list.add(new StringParser());
+        return list;
+    }
+}
@@ -1,21 +1,18 @@
 package icecube.daq.tools;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.File;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -23,367 +20,893 @@ import org.jfree.data.time.Second;
 import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 
-class MatchResult
+/**
+ * A collection of statistics objects
+ */
+interface StatCollection
 {
-    public static final MatchResult EMPTY = new MatchResult(null);
-
-    private Map<String, BaseData> dataMap;
-
-    MatchResult(Map<String, BaseData> dataMap)
-    {
-        this.dataMap = dataMap;
-    }
+    void add(String host, String section, String name, BaseData datum);
 }
 
-abstract class BaseParser
+public class StatData
+        implements StatCollection
 {
-    private static final Logger LOG = Logger.getLogger(BaseParser.class);
-
-    private boolean done;
-    private ChartTime time;
-
-    private String sectionHost;
-    private String sectionName;
-
-    private boolean grabStrandDepths;
-    private boolean ignoreSection;
-
-    // the strand parser is weird, can't be part or the 'parsers' array
-    private StrandParser strandParser = new StrandParser();
+    private static final Logger LOG = Logger.getLogger(StatData.class);
 
-    /** List of parsers */
-    private BaseStatParser[] parsers = new BaseStatParser[] {
-        new LongParser(),
-        new ListParser(),
-        new MemoryParser(),
-        new DoubleParser(),
-        new MapArrayParser(),
-        new TimingParser(),
-        new StringParser(),
-    };
+    /** Names and IDs of all statistics */
+    private MetricRegistry registry = new MetricRegistry();
+    /** Statistics indexed by metric ID (<tt>null</tt> if removed) */
+    private ArrayList<StatParent<?>> stats =
+        new ArrayList<StatParent<?>>();
+
+    /** Lines which could not be parsed */
+    private ParseErrors errors = new ParseErrors();
+    /** How often learned parsers matched */
+    private SchemaStats schemaStats = new SchemaStats();
+
+    /** Sections which have not been parsed yet */
+    private SectionIndex index;
+    /** If non-null, files which are still being written */
+    private ArrayList<FileFollower> followers;
+    /** Has <tt>transform()</tt> been called? */
+    private boolean transformed;
+    /** If <tt>true</tt>, print details about each rejected sample */
+    private boolean verbose;
 
-    BaseParser(String host, String name)
+    public StatData()
     {
-        sectionHost = host;
-        sectionName = name;
     }
 
-    public String getHost()
+    public void add(String host, String section, String name, BaseData datum)
     {
-        return sectionHost;
+        add(getMetricId(registry.getKey(host, section), name), datum);
     }
 
-    public String getName()
+    /**
+     * Add a datum to a statistic.  Integer and floating-point samples may
+     * be mixed in the same statistic, in which case the statistic holds
+     * all of its samples as floating-point values.
+     *
+     * @param id metric ID returned by <tt>getMetricId()</tt>
+     * @param datum new datum
+     */
+    void add(int id, BaseData datum)
     {
-        return sectionName;
+        if (datum instanceof LongData) {
+            final LongData data = (LongData) datum;
+            addLong(id, data.getTime().getTime(), data.getValue());
+        } else if (datum instanceof DoubleData) {
+            final DoubleData data = (DoubleData) datum;
+            addDouble(id, data.getTime().getTime(), data.getValue());
+        } else {
+            addDatum(id, datum);
+        }
     }
 
-    public ChartTime getTime()
+    /**
+     * Add a datum which is not a single number to a statistic
+     *
+     * @param id metric ID returned by <tt>getMetricId()</tt>
+     * @param datum new datum
+     */
+    private void addDatum(int id, BaseData datum)
     {
-        return time;
+        StatParent<?> parent = stats.get(id);
+        if (parent == null) {
+            parent = datum.createParent();
+            stats.set(id, parent);
+        } else if (!parent.accepts(datum)) {
+            final String reason = "cannot add " +
+                datum.getClass().getSimpleName() + " to " +
+                parent.getClass().getSimpleName();
+            if (!parent.isEmpty()) {
+                addMismatch(id, datum, reason);
+                return;
+            }
+
+            // a lone sample of another type is treated as the odd one out
+            addMismatch(id, datum, reason + ", discarded " + parent.size() +
+                        " earlier sample" + (parent.size() == 1 ? "" : "s"));
+            parent = datum.createParent();
+            stats.set(id, parent);
+        }
+
+        try {
+            parent.addSample(datum);
+        } catch (Error err) {
+            // lists and strand depths which changed size
+            addMismatch(id, datum, err.getMessage());
+        }
     }
 
-    public boolean isDone()
+    /**
+     * Count a sample which does not match the statistic's earlier samples
+     *
+     * @param id metric ID
+     * @param datum rejected sample
+     * @param reason description of the problem
+     */
+    private void addMismatch(int id, BaseData datum, String reason)
     {
-        return done;
+        final SectionKey key = getMetricKey(id);
+        final String line = getMetricName(id) + ": " + datum.getDataString();
+
+        errors.add(key.getHost(), key.getSection(),
+                   ParseErrors.Category.MISMATCH, line, reason);
+        if (verbose) {
+            System.err.println("!! " + key + ":" + line + " (" + reason +
+                               ")");
+        }
     }
 
-    public MatchResult match(StatData statData, String line, boolean verbose)
-        throws StatParseException
+    /**
+     * Add a floating-point sample to a statistic without building a
+     * <tt>DoubleData</tt> if the statistic already exists
+     *
+     * @param id metric ID returned by <tt>getMetricId()</tt>
+     * @param time sample time in milliseconds
+     * @param val sample value
+     */
+    private void addDouble(int id, long time, double val)
     {
-        if (time == null) {
-            throw new StatParseException("Time has not been set");
+        final StatParent<?> parent = stats.get(id);
+        if (parent instanceof DoubleStat) {
+            ((DoubleStat) parent).add(time, val);
+        } else if (parent instanceof LongStat) {
+            // keep the integer samples as floating-point values
+            DoubleStat stat = ((LongStat) parent).toDoubleStat();
+            stat.add(time, val);
+            stats.set(id, stat);
+        } else if (parent == null) {
+            DoubleStat stat = new DoubleStat();
+            stat.add(time, val);
+            stats.set(id, stat);
+        } else {
+            addDatum(id, new DoubleData(new ChartTime(time), val));
         }
+    }
 
-        if (grabStrandDepths) {
-            grabStrandDepths = false;
-
-            Map<String, BaseData> dataMap =
-                strandParser.parseLine(time, line, verbose);
-            if (dataMap == null) {
-                throw new StatParseException("Bad strand depths \"" + line +
-                                             "\"");
+    /**
+     * Add all samples parsed from a section.  The batch is cleared
+     * afterward.  A sample which cannot be added is counted as an
+     * internal error for the line which produced it.
+     *
+     * @param batch samples, with metric IDs from this collection
+     * @param host section host
+     * @param name section name
+     */
+    void addBatch(SectionBatch batch, String host, String name)
+    {
+        final int num = batch.size();
+        for (int i = 0; i < num; i++) {
+            final int id = batch.getId(i);
+            switch (batch.getKind(i)) {
+            case SectionBatch.LONG:
+                addLong(id, batch.getTime(i), batch.getLong(i));
+                break;
+            case SectionBatch.DOUBLE:
+                addDouble(id, batch.getTime(i), batch.getDouble(i));
+                break;
+            default:
+                try {
+                    add(id, batch.getDatum(i));
+                } catch (RuntimeException re) {
+                    errors.add(host, name, ParseErrors.Category.INTERNAL,
+                               batch.getLine(i), re.toString());
+                }
+                break;
             }
+        }
 
-            return new MatchResult(dataMap);
+        batch.clear();
+    }
+
+    /**
+     * Add an integer sample to a statistic without building a
+     * <tt>LongData</tt>.  Integer samples added to a floating-point
+     * statistic are converted.
+     *
+     * @param id metric ID returned by <tt>getMetricId()</tt>
+     * @param time sample time in milliseconds
+     * @param val sample value
+     */
+    private void addLong(int id, long time, long val)
+    {
+        final StatParent<?> parent = stats.get(id);
+        if (parent instanceof LongStat) {
+            ((LongStat) parent).add(time, val);
+        } else if (parent instanceof DoubleStat) {
+            ((DoubleStat) parent).add(time, (double) val);
+        } else if (parent == null) {
+            LongStat stat = new LongStat();
+            stat.add(time, val);
+            stats.set(id, stat);
+        } else {
+            addDatum(id, new LongData(new ChartTime(time), val));
         }
+    }
 
-        if (line.startsWith("Number of ")) {
-            line = "Num " + line.substring(10);
+    /**
+     * Find a statistic, parsing its section first if it has not been
+     * parsed yet.  The ID can be passed to <tt>getStatistics(int)</tt>
+     * to avoid looking up the statistic by name again.
+     *
+     * @param key section key
+     * @param name statistic name
+     *
+     * @return metric ID, or <tt>-1</tt> if the statistic is unknown
+     */
+    public int findMetric(SectionKey key, String name)
+    {
+        if (index != null && index.contains(key)) {
+            loadSection(key);
         }
 
-        if (line.startsWith("Healthy flag: ") ||
-            line.contains("BackEndState: ") ||
-            line.startsWith("Failed to fetch "))
-        {
-            return MatchResult.EMPTY;
-        } else if (line.startsWith("StrandDepths:")) {
-            grabStrandDepths = true;
-            return MatchResult.EMPTY;
+        final int id = registry.findId(key, name);
+        if (id < 0 || stats.get(id) == null) {
+            return -1;
         }
 
-        for (BaseStatParser parser : parsers) {
-            Map<String, BaseData> dataMap =
-                parser.parseLine(time, line, verbose);
-            if (dataMap != null) {
-                save(statData, sectionHost, sectionName, dataMap);
-                if (verbose) {
-                    System.err.println(parser.getClass().getName() + " <= " +
-                                       line.trim());
-                }
+        return id;
+    }
 
-                return new MatchResult(dataMap);
-            }
+    /**
+     * Get the ID for a statistic, assigning a new ID if needed
+     *
+     * @param key section key
+     * @param name statistic name
+     *
+     * @return metric ID
+     */
+    int getMetricId(SectionKey key, String name)
+    {
+        final int id = registry.getId(key, name);
+        while (stats.size() <= id) {
+            stats.add(null);
         }
 
-        return null;
+        return id;
     }
 
-    private void save(StatCollection collection, String sectionHost,
-                      String sectionName, Map<String, BaseData> dataMap)
+    /**
+     * Get the IDs of all statistics in a section, adding the section if
+     * needed.  The map grows as statistics are added to the section, so
+     * parsers can keep it and only call <tt>getMetricId()</tt> for names
+     * which are not in the map yet.
+     *
+     * @param key section key
+     *
+     * @return unmodifiable map of statistic names to metric IDs
+     */
+    Map<String, Integer> getMetricIds(SectionKey key)
     {
-        for (Map.Entry<String, BaseData> entry : dataMap.entrySet()) {
-            collection.add(sectionHost, sectionName, entry.getKey(),
-                           entry.getValue());
-        }
+        return Collections.unmodifiableMap(registry.getIds(key));
     }
 
-    void setDone()
+    /**
+     * Get the lines which could not be parsed
+     *
+     * @return parse errors
+     */
+    public ParseErrors getErrors()
     {
-        done = true;
+        return errors;
     }
 
-    void setHostAndName(String host, String name)
+    SchemaStats getSchemaStats()
     {
-        sectionHost = host;
-        sectionName = name;
+        return schemaStats;
     }
 
-    void setIgnoreSection(boolean val)
+    public SectionKey getMetricKey(int id)
     {
-        ignoreSection = val;
+        return registry.getKey(id);
     }
 
-    void setTime(long secs)
+    public String getMetricName(int id)
     {
-        time = new ChartTime(secs);
+        return registry.getName(id);
     }
-}
 
-final class PDAQParser
-    extends BaseParser
-{
-    private static final Logger LOG = Logger.getLogger(PDAQParser.class);
+    /**
+     * Get the shared key for a section
+     *
+     * @param host host name
+     * @param section section name
+     *
+     * @return section key
+     */
+    SectionKey getSectionKey(String host, String section)
+    {
+        return registry.getKey(host, section);
+    }
 
-    private static final Pattern BEAN_PAT =
-        Pattern.compile("^Bean\\s+(\\S+)\\s*$");
-    private static final Pattern BEANDATE_PAT =
-        Pattern.compile("^(\\S+):\\s+(\\d\\d\\d\\d-\\d\\d-\\d\\d\\s" +
-                        "\\d\\d:\\d\\d:\\d\\d.\\d+):\\s*$");
+    /**
+     * Add a complete statistic, replacing any existing statistic with
+     * the same name
+     *
+     * @param key section key
+     * @param name statistic name
+     * @param stat statistic
+     */
+    void putStatistics(SectionKey key, String name, StatParent<?> stat)
+    {
+        stats.set(getMetricId(key, name), stat);
+    }
 
-    private static SimpleDateFormat dateFmt;
+    /**
+     * Get the names of all statistics in a section.  If the section has
+     * not been parsed yet, this only includes the names found in the
+     * first occurrence of the section.
+     *
+     * @param key section key
+     *
+     * @return sorted list of names, or <tt>null</tt> if the section is
+     *         unknown
+     */
+    public List<String> getSectionNames(SectionKey key)
+    {
+        final boolean unparsed = index != null && index.contains(key);
+        final Map<String, Integer> ids = registry.findIds(key);
+        if (ids == null && !unparsed) {
+            return null;
+        }
 
-    static {
-        dateFmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        dateFmt.setTimeZone(TimeZone.getTimeZone("UTC"));
-    };
+        ArrayList<String> names = new ArrayList<String>();
+        if (ids != null) {
+            for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                if (stats.get(entry.getValue()) != null) {
+                    names.add(entry.getKey());
+                }
+            }
+        }
+        if (unparsed) {
+            List<String> sampleNames = index.getNames(key);
+            if (sampleNames != null) {
+                for (String name : sampleNames) {
+                    if (!names.contains(name)) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
 
-    private boolean omitDataCollector;
+        Collections.sort(names);
+        return names;
+    }
 
-    private PDAQParser(String sectionHost, String sectionName,
-                       boolean omitDataCollector)
+    public List<SectionKey> getSectionKeys()
     {
-        super(sectionHost, sectionName);
+        ArrayList<SectionKey> sections =
+            new ArrayList<SectionKey>(registry.keySet());
+        if (index != null) {
+            for (SectionKey key : index.keys()) {
+                if (!registry.contains(key)) {
+                    sections.add(key);
+                }
+            }
+        }
+        Collections.sort(sections);
+        return sections;
+    }
+
+    /**
+     * Get a statistic by ID
+     *
+     * @param id metric ID returned by <tt>findMetric()</tt>
+     *
+     * @return statistic, or <tt>null</tt> if the statistic was removed
+     */
+    public StatParent<?> getStatistics(int id)
+    {
+        if (id < 0 || id >= stats.size()) {
+            return null;
+        }
 
-        this.omitDataCollector = omitDataCollector;
+        return stats.get(id);
     }
 
-    public MatchResult match(StatData statData, String line, boolean verbose)
-        throws StatParseException
+    public StatParent<?> getStatistics(SectionKey section, String name)
     {
-        MatchResult result = super.match(statData, line, verbose);
-        if (result != null) {
-            return result;
+        return getStatistics(findMetric(section, name));
+    }
+
+    /**
+     * Add all files found in <tt>file</tt> to <tt>list</tt>, descending
+     * into subdirectories.  Parse cache files are skipped, as are files
+     * found in directories which do not start with a section header.
+     *
+     * @param file file or directory
+     * @param list list of files
+     * @param skipped files found in directories which were skipped
+     */
+    private static void listFiles(File file, List<File> list,
+                                  List<File> skipped)
+    {
+        if (file.isDirectory()) {
+            for (File entry : file.listFiles()) {
+                if (ParseCache.isCacheFile(entry)) {
+                    continue;
+                }
+
+                if (entry.isDirectory() ||
+                    TarReader.isArchive(entry.getName()) ||
+                    MoniSniffer.isMonitoringFile(entry))
+                {
+                    listFiles(entry, list, skipped);
+                } else {
+                    skipped.add(entry);
+                }
+            }
+        } else {
+            list.add(file);
+        }
+    }
+
+    /**
+     * Parse a single file into a new statistics collection.  If this
+     * collection has already been transformed, the new statistics are
+     * also transformed.
+     *
+     * @param file monitoring file
+     * @param opts load options
+     * @param progress if non-null, used to report progress
+     * @param chunkPool if non-null, used to parse large files in pieces
+     *
+     * @return statistics found in the file
+     */
+    private StatData loadPartial(File file, LoadOptions opts,
+                                 FileProgress progress,
+                                 ExecutorService chunkPool)
+    {
+        if (progress != null) {
+            progress.setStarted();
+        }
+
+        StatData partial = readPartial(file, opts, progress, chunkPool);
+        if (transformed) {
+            partial.transform();
         }
 
-        if (matchStart(this, null, line, omitDataCollector) != null) {
-if (verbose) System.err.println("??Stat <= " + line.trim());
-            return MatchResult.EMPTY;
+        if (progress != null) {
+            progress.setDone();
         }
 
-        throw new StatParseException("Unknown line \"" + line + "\"");
+        return partial;
     }
 
-    static PDAQParser matchStart(GraphSource inputSrc, String line,
-                                 boolean omitDataCollector)
+    public void loadFile(File file, boolean omitDataCollector, boolean verbose)
     {
-        return matchStart(null, inputSrc, line, omitDataCollector);
+        LoadOptions opts = new LoadOptions();
+        opts.setOmitDataCollector(omitDataCollector);
+        opts.setVerbose(verbose);
+
+        loadFiles(Collections.singletonList(file), opts);
     }
 
-    static PDAQParser matchStart(PDAQParser parser, GraphSource inputSrc,
-                                 String line, boolean omitDataCollector)
+    /**
+     * Load statistics from all files (and all files found in any
+     * directories).  If more than one thread is requested, files are
+     * parsed in parallel into separate collections which are then merged
+     * in the original file order, so the end result is identical to a
+     * serial load.  Large uncompressed files are also split at section
+     * headers and the pieces are parsed in parallel.
+     *
+     * @param files list of files and/or directories
+     * @param opts load options
+     */
+    public void loadFiles(List<File> files, LoadOptions opts)
     {
-        Matcher matcher = BEANDATE_PAT.matcher(line);
-        if (!matcher.find()) {
-            matcher = BEAN_PAT.matcher(line);
-            if (!matcher.find()) {
-                return null;
+        loadFiles(files, opts, null);
+    }
+
+    /**
+     * Load statistics from all files, reporting progress to
+     * <tt>monitor</tt>.  Each file is merged into this collection while
+     * holding this collection's lock, so other threads may examine the
+     * statistics loaded so far by synchronizing on this object.
+     * If the load is cancelled, files which have not been merged are
+     * discarded.
+     *
+     * @param files list of files and/or directories
+     * @param opts load options
+     * @param monitor if non-null, tracks progress and cancellation
+     */
+    void loadFiles(List<File> files, LoadOptions opts, LoadMonitor monitor)
+    {
+        if (opts.verbose()) {
+            // report the time spent in each parser
+            ParserRegistry.setTiming(true);
+        }
+
+        ArrayList<File> list = new ArrayList<File>();
+        ArrayList<File> skipped = new ArrayList<File>();
+        for (File f : files) {
+            listFiles(f, list, skipped);
+        }
+
+        if (skipped.size() > 0) {
+            if (opts.verbose()) {
+                for (File f : skipped) {
+                    System.err.println("Skipping " + f);
+                }
             }
+            System.err.println("Skipped " + skipped.size() + " file" +
+                               (skipped.size() == 1 ? "" : "s") +
+                               " without monitoring data");
         }
 
-        String sectionHost;
-        if (inputSrc == null) {
-            sectionHost = parser.getHost();
-        } else {
-            sectionHost = inputSrc.toString();
-            if (sectionHost.endsWith(".moni")) {
-                sectionHost =
-                    sectionHost.substring(0, sectionHost.length() - 5);
-            } else if (sectionHost.endsWith(".moni.gz")) {
-                sectionHost =
-                    sectionHost.substring(0, sectionHost.length() - 8);
+        FileProgress[] progress = new FileProgress[list.size()];
+        if (monitor != null) {
+            for (int i = 0; i < progress.length; i++) {
+                progress[i] = monitor.add(list.get(i));
             }
         }
 
-        String sectionName = matcher.group(1);
+        // pieces of large files are parsed by a separate set of threads
+        // so a file thread never waits for a piece stuck behind it
+        ExecutorService chunkPool = null;
+        if (opts.getNumThreads() > 1) {
+            chunkPool = Executors.newFixedThreadPool(opts.getNumThreads());
+        }
 
-        if (parser == null) {
-            parser =
-                new PDAQParser(sectionHost, sectionName, omitDataCollector);
-        } else {
-            parser.setHostAndName(sectionHost, sectionName);
+        try {
+            if (opts.getNumThreads() <= 1 || list.size() <= 1) {
+                for (int i = 0; i < list.size(); i++) {
+                    if (monitor != null && monitor.isCancelled()) {
+                        break;
+                    }
+
+                    System.out.println(list.get(i) + ":");
+                    mergePartial(loadPartial(list.get(i), opts, progress[i],
+                                             chunkPool), monitor);
+                }
+            } else {
+                loadParallel(list, opts, progress, monitor, chunkPool);
+            }
+        } finally {
+            if (chunkPool != null) {
+                chunkPool.shutdownNow();
+            }
         }
 
-        final boolean ignore = omitDataCollector &&
-            sectionName.startsWith("DataCollectorMonitor");
-        parser.setIgnoreSection(ignore);
+        synchronized (this) {
+            trimToSize();
 
-        if (matcher.groupCount() > 1) {
-            Date myDate;
-            try {
-                myDate = dateFmt.parse(matcher.group(2));
-            } catch (ParseException pe) {
-                LOG.error("Ignoring bad date " + matcher.group(2));
-                myDate = null;
+            if (!errors.isEmpty()) {
+                System.err.print("Parse errors: " + errors.getSummary());
             }
 
-            if (myDate != null) {
-                parser.setTime(myDate.getTime());
+            if (opts.verbose() && schemaStats.getTotal() > 0) {
+                System.out.println("Learned parsers: " + schemaStats);
             }
-        }
 
-        return parser;
+            if (opts.verbose()) {
+                System.out.print(ParserRegistry.getReport());
+            }
+        }
     }
-}
 
-/**
- * A collection of statistics objects
- */
-interface StatCollection
-{
-    void add(String host, String section, String name, BaseData datum);
-}
+    private void loadParallel(final List<File> list, final LoadOptions opts,
+                              final FileProgress[] progress,
+                              LoadMonitor monitor,
+                              final ExecutorService chunkPool)
+    {
+        final int numThreads = Math.min(opts.getNumThreads(), list.size());
 
-public class StatData
-        implements StatCollection
-{
-    private static final Logger LOG = Logger.getLogger(StatData.class);
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            ArrayList<Future<StatData>> futures =
+                new ArrayList<Future<StatData>>();
+            for (int i = 0; i < list.size(); i++) {
+                final File f = list.get(i);
+                final FileProgress fp = progress[i];
+                futures.add(pool.submit(new Callable<StatData>() {
+                        public StatData call()
+                        {
+                            return loadPartial(f, opts, fp, chunkPool);
+                        }
+                    }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                if (monitor != null && monitor.isCancelled()) {
+                    break;
+                }
 
-    private HashMap<SectionKey, HashMap<String, StatParent>> sectionMap =
-        new HashMap<SectionKey, HashMap<String, StatParent>>();
+                // report files in the original order, not as they finish
+                System.out.println(list.get(i) + ":");
 
-    public StatData()
+                try {
+                    mergePartial(futures.get(i).get(), monitor);
+                } catch (ExecutionException exe) {
+                    LOG.error("Couldn't load \"" + list.get(i) + "\"",
+                              exe.getCause());
+                } catch (InterruptedException ie) {
+                    LOG.error("Interrupted while loading files");
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Parse all remaining occurrences of a section
+     *
+     * @param key section key
+     */
+    private void loadSection(SectionKey key)
     {
+        StatData partial = new StatData();
+        index.load(key, partial);
+        if (transformed) {
+            partial.transform();
+        }
+        partial.trimToSize();
+
+        merge(partial);
     }
 
-    public void add(String host, String section, String name, BaseData datum)
+    /**
+     * Append all statistics from <tt>other</tt> to this collection.
+     * Statistics which only exist in <tt>other</tt> are moved (not copied)
+     * into this collection.
+     *
+     * @param other statistics to add
+     */
+    void merge(StatData other)
     {
-        SectionKey key = new SectionKey(host, section);
+        if (other.followers != null) {
+            if (followers == null) {
+                followers = other.followers;
+            } else {
+                followers.addAll(other.followers);
+            }
+        }
 
-        if (!sectionMap.containsKey(key)) {
-            sectionMap.put(key, new HashMap<String, StatParent>());
+        if (other.index != null) {
+            if (index == null) {
+                index = other.index;
+            } else {
+                index.merge(other.index);
+            }
         }
 
-        StatParent parent;
-        boolean isCreated;
+        errors.merge(other.errors);
+        schemaStats.merge(other.schemaStats);
 
-        HashMap<String, StatParent> statMap = sectionMap.get(key);
-        if (statMap.containsKey(name)) {
-            parent = (StatParent) statMap.get(name);
-            isCreated = false;
-        } else {
-            parent = datum.createParent();
-            statMap.put(name, parent);
-            isCreated = true;
+        // keep sections which have no statistics
+        for (SectionKey key : other.registry.keySet()) {
+            registry.getIds(key);
         }
 
-        try {
-            parent.add(datum);
-        } catch (ClassCastException cce) {
-            if (isCreated || !parent.isEmpty()) {
-                LOG.error("Cannot add " + key + ":" + name + " datum " +
-                          datum, cce);
-            } else {
-                parent = datum.createParent();
-                parent.add(datum);
+        // IDs in 'other' are unrelated to IDs in this collection
+        for (int otherId = 0; otherId < other.stats.size(); otherId++) {
+            final StatParent<?> stat = other.stats.get(otherId);
+            if (stat == null) {
+                continue;
+            }
+
+            final int id = getMetricId(other.registry.getKey(otherId),
+                                       other.registry.getName(otherId));
 
-                statMap.put(name, parent);
+            final StatParent<?> existing = stats.get(id);
+            if (existing == null) {
+                stats.set(id, stat);
+                continue;
+            }
+
+            if (existing.addAll(stat)) {
+                continue;
+            }
+
+            for (Object datum : stat.iterator()) {
+                add(id, (BaseData) datum);
             }
-        } catch (Error err) {
-            LOG.error("Cannot add " + key + ":" + name + " datum " + datum +
-                      ": " + err.getMessage());
         }
     }
 
-    public List<String> getSectionNames(SectionKey key)
+    /**
+     * Are any files being followed?
+     *
+     * @return <tt>true</tt> if <tt>readAppended()</tt> may find new data
+     */
+    public synchronized boolean isFollowing()
     {
-        if (!sectionMap.containsKey(key)) {
-            return null;
-        }
-
-        ArrayList<String> names =
-            new ArrayList<String>(sectionMap.get(key).keySet());
-        Collections.sort(names);
-        return names;
+        return followers != null && followers.size() > 0;
     }
 
-    public List<SectionKey> getSectionKeys()
+    /**
+     * Merge the statistics from a single file unless the load has been
+     * cancelled
+     *
+     * @param partial statistics from one file
+     * @param monitor if non-null, tracks progress and cancellation
+     */
+    private void mergePartial(StatData partial, LoadMonitor monitor)
     {
-        ArrayList<SectionKey> sections =
-            new ArrayList<SectionKey>(sectionMap.keySet());
-        Collections.sort(sections);
-        return sections;
+        if (monitor != null && monitor.isCancelled()) {
+            return;
+        }
+
+        synchronized (this) {
+            merge(partial);
+        }
+
+        if (monitor != null) {
+            monitor.fileMerged();
+        }
     }
 
-    public StatParent getStatistics(SectionKey section, String name)
+    /**
+     * Parse a single file into a new statistics collection, using the
+     * file's parse cache if possible
+     *
+     * @param file monitoring file
+     * @param opts load options
+     * @param progress if non-null, used to report progress
+     * @param chunkPool if non-null, used to parse large files in pieces
+     *
+     * @return statistics found in the file
+     */
+    private static StatData readPartial(File file, LoadOptions opts,
+                                        FileProgress progress,
+                                        ExecutorService chunkPool)
     {
-        if (!sectionMap.containsKey(section)) {
-            return null;
+        // archives hold files from many hosts, so check each entry instead
+        final boolean archive = TarReader.isArchive(file.getName());
+
+        final ParseFilter filter = opts.getFilter();
+        if (filter != null && !archive &&
+            !filter.acceptHost(PDAQParser.getHostName(new GraphSource(file))))
+        {
+            // nothing in this file is wanted
+            return new StatData();
         }
 
-        HashMap<String, StatParent> nameMap = sectionMap.get(section);
-        if (nameMap == null || !nameMap.containsKey(name)) {
-            return null;
+        if (opts.follow() && file.isFile() && !archive &&
+            !file.getName().endsWith(".gz"))
+        {
+            FileFollower follower = new FileFollower(file, opts);
+
+            StatData partial = new StatData();
+            try {
+                follower.read(partial, progress);
+            } catch (IOException ioe) {
+                LOG.error("Couldn't load \"" + file + "\"", ioe);
+            }
+
+            partial.followers = new ArrayList<FileFollower>();
+            partial.followers.add(follower);
+            return partial;
+        }
+
+        if (opts.loadLazily() && file.isFile() && !archive &&
+            !file.getName().endsWith(".gz"))
+        {
+            StatData partial = new StatData();
+            try {
+                partial.index = SectionIndex.build(file,
+                                                   opts.omitDataCollector(),
+                                                   opts.verbose(), filter);
+            } catch (IOException ioe) {
+                LOG.error("Couldn't index \"" + file + "\"", ioe);
+            }
+
+            return partial;
         }
 
-        return nameMap.get(name);
+        // a cache holds every statistic, so it can't be used with a filter
+        ParseCache cache = null;
+        if (opts.useCache() && file.isFile() && filter == null) {
+            cache = new ParseCache(file, opts.omitDataCollector());
+
+            StatData cached = cache.load();
+            if (cached != null) {
+                if (opts.verbose()) {
+                    System.out.println("Loaded " + file + " from cache");
+                }
+                return cached;
+            }
+        }
+
+        StatData partial = new StatData();
+        try {
+            List<FileSegment> chunks = null;
+            if (chunkPool != null && file.isFile() && !archive &&
+                !file.getName().endsWith(".gz"))
+            {
+                chunks = FileChunker.split(file, opts.getNumThreads());
+            }
+
+            if (archive) {
+                InputStream in = new FileInputStream(file);
+                if (progress != null) {
+                    in = new ProgressInputStream(in, progress);
+                }
+
+                try {
+                    GraphSource.readArchive(partial, file.getName(), in,
+                                            opts, progress);
+                } finally {
+                    in.close();
+                }
+            } else if (chunks != null) {
+                FileChunker.parse(partial, chunks, opts, progress,
+                                  chunkPool);
+            } else {
+                GraphSource src = new GraphSource(file);
+                src.setProgress(progress);
+                src.setFilter(filter);
+
+                partial.readData(src, opts.omitDataCollector(),
+                                 opts.verbose());
+            }
+        } catch (IOException ioe) {
+            LOG.error("Couldn't load \"" + file + "\"", ioe);
+            return partial;
+        }
+
+        if (progress != null && progress.isCancelled()) {
+            // don't cache a partially parsed file
+            return partial;
+        }
+
+        if (cache != null) {
+            cache.save(partial);
+        }
+
+        return partial;
     }
 
-    public void loadFile(File file, boolean omitDataCollector, boolean verbose)
+    /**
+     * Parse lines appended to followed files since they were last read,
+     * adding any new samples to the existing statistics.  Files are parsed
+     * without holding this collection's lock; the lock is only held while
+     * the new samples are merged.
+     *
+     * @return <tt>true</tt> if any statistics were added
+     */
+    public boolean readAppended()
     {
-        if (file.isDirectory()) {
-            for (File entry : file.listFiles()) {
-                loadFile(entry, omitDataCollector, verbose);
+        ArrayList<FileFollower> list;
+        synchronized (this) {
+            if (followers == null) {
+                return false;
             }
-        } else {
-            System.out.println(file + ":");
 
+            list = new ArrayList<FileFollower>(followers);
+        }
+
+        boolean added = false;
+        for (FileFollower follower : list) {
+            StatData partial = new StatData();
             try {
-                readData(new GraphSource(file), omitDataCollector, verbose);
+                if (!follower.read(partial, null)) {
+                    continue;
+                }
             } catch (IOException ioe) {
-                LOG.error("Couldn't load \"" + file + "\"", ioe);
+                LOG.error("Couldn't read \"" + follower.getFile() + "\"",
+                          ioe);
+                continue;
+            }
+
+            if (transformed) {
+                partial.transform();
             }
+            partial.trimToSize();
+
+            synchronized (this) {
+                merge(partial);
+            }
+
+            added = true;
         }
+
+        return added;
     }
 
     public void readData(GraphSource inputSrc, boolean omitDataCollector,
@@ -394,71 +917,292 @@ public class StatData
             throw new IOException("No input source specified");
         }
 
+        MappedLineReader mapped = inputSrc.getMappedReader();
+        if (mapped != null) {
+            readData(inputSrc, mapped, omitDataCollector, verbose);
+            return;
+        }
+
+        readData(inputSrc, inputSrc.getReader(), omitDataCollector, verbose);
+    }
+
+    /**
+     * Parse all lines from a reader, which is closed afterward
+     *
+     * @param inputSrc source of the lines
+     * @param rdr line reader
+     * @param omitDataCollector if <tt>true</tt>, ignore DataCollectorMonitor
+     *                          sections
+     * @param verbose if <tt>true</tt>, print details about each parsed line
+     *
+     * @throws IOException if there is a problem reading the data
+     */
+    void readData(GraphSource inputSrc, LineReader rdr,
+                  boolean omitDataCollector, boolean verbose)
+        throws IOException
+    {
+        readData(inputSrc, rdr, Long.MIN_VALUE, omitDataCollector, verbose);
+    }
+
+    /**
+     * Parse all lines from a reader, which is closed afterward.  If the
+     * first section header does not include a time, the section uses
+     * <tt>startTime</tt>, as it would have if the lines before it had
+     * been parsed.
+     *
+     * @param inputSrc source of the lines
+     * @param rdr line reader
+     * @param startTime time (in milliseconds) for an undated first
+     *                  section, or <tt>Long.MIN_VALUE</tt>
+     * @param omitDataCollector if <tt>true</tt>, ignore DataCollectorMonitor
+     *                          sections
+     * @param verbose if <tt>true</tt>, print details about each parsed line
+     *
+     * @throws IOException if there is a problem reading the data
+     */
+    void readData(GraphSource inputSrc, LineReader rdr, long startTime,
+                  boolean omitDataCollector, boolean verbose)
+        throws IOException
+    {
         BaseParser parser = null;
+        if (startTime != Long.MIN_VALUE) {
+            this.verbose = verbose;
+
+            final String line = rdr.readLine();
+            if (line != null) {
+                parser = parseLine(inputSrc, null, line, omitDataCollector,
+                                   verbose);
+                if (parser != null && parser.getTime() == null) {
+                    parser.setTime(startTime);
+                }
+            }
+        }
+
+        parser = readLines(inputSrc, rdr, parser, omitDataCollector,
+                           verbose);
+        if (parser != null) {
+            parser.recordStatistics();
+        }
+
+        try {
+            rdr.close();
+        } catch (IOException ioe) {
+            // ignore errors on close
+        }
+    }
+
+    /**
+     * Parse all lines from a memory-mapped file, which is closed
+     * afterward.  Simple numeric lines are parsed straight from the mapped
+     * bytes; every other line is decoded and parsed as usual.
+     *
+     * @param inputSrc source of the lines
+     * @param rdr mapped line reader
+     * @param omitDataCollector if <tt>true</tt>, ignore DataCollectorMonitor
+     *                          sections
+     * @param verbose if <tt>true</tt>, print details about each parsed line
+     *
+     * @throws IOException if there is a problem reading the data
+     */
+    void readData(GraphSource inputSrc, MappedLineReader rdr,
+                  boolean omitDataCollector, boolean verbose)
+        throws IOException
+    {
+        this.verbose = verbose;
+
+        final FileProgress progress = inputSrc.getProgress();
+
+        BaseParser parser = null;
+        try {
+            while (true) {
+                MappedLineReader.ByteLine line = rdr.readLine();
+                if (line == null) {
+                    break;
+                }
+
+                if (progress != null) {
+                    progress.addLine();
+                    if (progress.isCancelled()) {
+                        break;
+                    }
+                }
+
+                // verbose output names the parser used for each line
+                if (parser != null && !verbose && line.isAscii() &&
+                    line.length() > 0 &&
+                    TimestampParser.isSpace(line.charAt(0)))
+                {
+                    try {
+                        if (parser.matchScalar(this, line)) {
+                            continue;
+                        }
+                    } catch (RuntimeException re) {
+                        addInternalError(parser, line.toString(), re,
+                                         verbose);
+                        continue;
+                    }
+                }
+
+                parser = parseLine(inputSrc, parser, line.toString(),
+                                   omitDataCollector, verbose);
+                if (parser != null && parser.isDone()) {
+                    break;
+                }
+            }
+        } finally {
+            rdr.close();
+        }
+
+        if (parser != null) {
+            parser.flush();
+            parser.recordStatistics();
+        }
+    }
+
+    /**
+     * Parse all lines from a reader
+     *
+     * @param inputSrc source of the lines
+     * @param rdr line reader
+     * @param parser parser for the current section, or <tt>null</tt> if
+     *               the first line should be a section header
+     * @param omitDataCollector if <tt>true</tt>, ignore DataCollectorMonitor
+     *                          sections
+     * @param verbose if <tt>true</tt>, print details about each parsed line
+     *
+     * @return parser for the section being parsed when the lines ran out
+     *
+     * @throws IOException if there is a problem reading the data
+     */
+    BaseParser readLines(GraphSource inputSrc, LineReader rdr,
+                         BaseParser parser, boolean omitDataCollector,
+                         boolean verbose)
+        throws IOException
+    {
+        this.verbose = verbose;
+
+        final FileProgress progress = inputSrc.getProgress();
 
-        BufferedReader rdr = inputSrc.getReader();
         while (true) {
             String line = rdr.readLine();
             if (line == null) {
                 break;
             }
 
-            if (line.length() == 0) {
-                continue;
+            if (progress != null) {
+                progress.addLine();
+                if (progress.isCancelled()) {
+                    break;
+                }
             }
 
-            while (line.charAt(0) == '.') {
-                line = line.substring(1);
+            parser = parseLine(inputSrc, parser, line, omitDataCollector,
+                               verbose);
+            if (parser != null && parser.isDone()) {
+                break;
             }
+        }
 
-            if (parser == null) {
-                parser =
-                    PDAQParser.matchStart(inputSrc, line, omitDataCollector);
-                if (parser == null) {
-                    System.err.println("?? " + line);
-                }
-            } else {
-                MatchResult result;
-                try {
-                    result = parser.match(this, line, verbose);
-                } catch (StatParseException pe) {
-                    pe.printStackTrace();
-                    continue;
-                } catch (RuntimeException re) {
-                    re.printStackTrace();
-                    continue;
-                }
+        if (parser != null) {
+            parser.flush();
+        }
 
+        return parser;
+    }
 
-                if (parser.isDone()) {
-                    break;
+    private void addInternalError(BaseParser parser, String line,
+                                  RuntimeException re, boolean verbose)
+    {
+        errors.add(parser.getHost(), parser.getName(),
+                   ParseErrors.Category.INTERNAL, line, re.toString());
+        if (verbose) {
+            re.printStackTrace();
+        }
+    }
+
+    /**
+     * Parse a single line
+     *
+     * @param inputSrc source of the line
+     * @param parser parser for the current section, or <tt>null</tt> if
+     *               the line should be a section header
+     * @param line line of text
+     * @param omitDataCollector if <tt>true</tt>, ignore DataCollectorMonitor
+     *                          sections
+     * @param verbose if <tt>true</tt>, print details about the parsed line
+     *
+     * @return parser for the current section
+     */
+    private BaseParser parseLine(GraphSource inputSrc, BaseParser parser,
+                                 String line, boolean omitDataCollector,
+                                 boolean verbose)
+    {
+        if (line.length() == 0) {
+            return parser;
+        }
+
+        while (line.charAt(0) == '.') {
+            line = line.substring(1);
+        }
+
+        if (parser == null) {
+            parser = PDAQParser.matchStart(inputSrc, line, omitDataCollector);
+            if (parser == null) {
+                errors.add(PDAQParser.getHostName(inputSrc), null,
+                           ParseErrors.Category.NO_SECTION, line, null);
+                if (verbose) {
+                    System.err.println("?? " + line);
                 }
             }
+        } else {
+            try {
+                parser.match(this, line, verbose);
+            } catch (RuntimeException re) {
+                addInternalError(parser, line, re, verbose);
+            }
         }
 
-        try {
-            rdr.close();
-        } catch (IOException ioe) {
-            // ignore errors on close
+        return parser;
+    }
+
+    /**
+     * Release unused storage in all statistics
+     */
+    void trimToSize()
+    {
+        for (StatParent<?> stat : stats) {
+            if (stat != null) {
+                stat.trimToSize();
+            }
         }
     }
 
     public void transform()
     {
-        for (SectionKey key : sectionMap.keySet()) {
-            HashMap<String, StatParent> nameMap = sectionMap.get(key);
-            List<String> keys = new ArrayList<String>(nameMap.keySet());
-            for (String name : keys) {
-                StatParent stats = nameMap.get(name);
+        transformed = true;
+        if (index != null) {
+            index.transform();
+        }
 
-                Map<String, StatParent> newMap = stats.transform(name);
-                if (newMap == null) {
-                    continue;
-                }
+        // statistics added by this loop are not transformed again
+        final int numIds = stats.size();
+        for (int id = 0; id < numIds; id++) {
+            StatParent<?> stat = stats.get(id);
+            if (stat == null) {
+                continue;
+            }
+
+            Map<String, StatParent> newMap =
+                stat.transform(registry.getName(id));
+            if (newMap == null) {
+                continue;
+            }
 
-                // remove old data, add in new data
-                nameMap.remove(name);
-                nameMap.putAll(newMap);
+            // remove old data, add in new data
+            final SectionKey key = registry.getKey(id);
+            stats.set(id, null);
+            for (Map.Entry<String, StatParent> entry : newMap.entrySet()) {
+                stats.set(getMetricId(key, entry.getKey()), entry.getValue());
             }
         }
     }
@@ -469,7 +1213,7 @@ public class StatData
         StringBuilder buf = new StringBuilder("StatData[");
 
         boolean needComma = false;
-        for (SectionKey key : sectionMap.keySet()) {
+        for (SectionKey key : registry.keySet()) {
             if (needComma) {
                 buf.append(',');
             } else {
@@ -0,0 +1,158 @@
+package icecube.daq.tools;
+
+import java.util.ArrayList;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/**
+ * Series which reads values from a JFreeChart <tt>TimeSeries</tt>
+ */
+class TimeSeriesAdapter
+    extends StatSeries
+{
+    private TimeSeries series;
+
+    TimeSeriesAdapter(TimeSeries series)
+    {
+        super(series.getKey());
+
+        this.series = series;
+    }
+
+    @Override
+    int getItemCount()
+    {
+        return series.getItemCount();
+    }
+
+    @Override
+    long getX(int item)
+    {
+        return series.getTimePeriod(item).getFirstMillisecond();
+    }
+
+    @Override
+    double getY(int item)
+    {
+        Number val = series.getValue(item);
+        if (val == null) {
+            return Double.NaN;
+        }
+
+        return val.doubleValue();
+    }
+}
+
+/**
+ * Chart data which reads values from statistics without copying them.
+ */
+public class StatDataset
+    extends AbstractXYDataset
+{
+    private static final long serialVersionUID = 1L;
+
+    private ArrayList<StatSeries> seriesList = new ArrayList<StatSeries>();
+
+    public StatDataset()
+    {
+    }
+
+    void addSeries(StatSeries series)
+    {
+        seriesList.add(series);
+        fireDatasetChanged();
+    }
+
+    public void addSeries(TimeSeries series)
+    {
+        addSeries(new TimeSeriesAdapter(series));
+    }
+
+    @Override
+    public DomainOrder getDomainOrder()
+    {
+        return DomainOrder.ASCENDING;
+    }
+
+    @Override
+    public int getItemCount(int series)
+    {
+        return seriesList.get(series).getItemCount();
+    }
+
+    StatSeries getSeries(int series)
+    {
+        return seriesList.get(series);
+    }
+
+    @Override
+    public int getSeriesCount()
+    {
+        return seriesList.size();
+    }
+
+    @Override
+    public Comparable<?> getSeriesKey(int series)
+    {
+        return seriesList.get(series).getKey();
+    }
+
+    @Override
+    public Number getX(int series, int item)
+    {
+        return seriesList.get(series).getX(item);
+    }
+
+    @Override
+    public double getXValue(int series, int item)
+    {
+        return (double) seriesList.get(series).getX(item);
+    }
+
+    @Override
+    public Number getY(int series, int item)
+    {
+        return seriesList.get(series).getY(item);
+    }
+
+    @Override
+    public double getYValue(int series, int item)
+    {
+        return seriesList.get(series).getY(item);
+    }
+
+    /**
+     * Pick up any samples added to the underlying statistics
+     *
+     * @return <tt>true</tt> if any series changed
+     */
+    boolean refresh()
+    {
+        boolean changed = false;
+        for (StatSeries series : seriesList) {
+            if (series.update()) {
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            fireDatasetChanged();
+        }
+
+        return changed;
+    }
+
+    /**
+     * Replace a series
+     *
+     * @param index series index
+     * @param series new series
+     */
+    void setSeries(int index, StatSeries series)
+    {
+        seriesList.set(index, series);
+        fireDatasetChanged();
+    }
+}
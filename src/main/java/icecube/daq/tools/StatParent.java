@@ -4,8 +4,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import org.jfree.data.time.TimeSeriesCollection;
-
 public abstract class StatParent<T>
 {
     private List<T> dataList;
@@ -19,9 +17,47 @@ public abstract class StatParent<T>
         dataList.add(data);
     }
 
+    /**
+     * Append all samples from another statistic.  Statistics which store
+     * their samples in columns copy the other statistic's columns
+     * directly.
+     *
+     * @param other statistic to append
+     *
+     * @return <tt>false</tt> if the samples must be added one at a time
+     */
+    boolean addAll(StatParent<?> other)
+    {
+        return false;
+    }
+
+    /**
+     * Add a sample whose type was checked with <tt>accepts()</tt>
+     *
+     * @param datum sample
+     */
+    @SuppressWarnings("unchecked")
+    void addSample(BaseData datum)
+    {
+        add((T) datum);
+    }
+
+    /**
+     * Can this statistic hold the sample?  Statistics which only hold
+     * one kind of sample must override this.
+     *
+     * @param datum sample
+     *
+     * @return <tt>false</tt> if <tt>add()</tt> would reject the sample
+     */
+    boolean accepts(BaseData datum)
+    {
+        return true;
+    }
+
     public boolean isEmpty()
     {
-        return dataList.size() < 2;
+        return size() < 2;
     }
 
     public Iterable<T> iterator()
@@ -29,35 +65,29 @@ public abstract class StatParent<T>
         return dataList;
     }
 
-    public TimeSeriesCollection plot(SectionKey key, String name,
-                                     PlotArguments pargs)
+    public StatDataset plot(SectionKey key, String name, PlotArguments pargs)
         throws StatPlotException
     {
-        return plot(new TimeSeriesCollection(), key, name, pargs);
+        return plot(new StatDataset(), key, name, pargs);
     }
 
-    public abstract TimeSeriesCollection plot(TimeSeriesCollection coll,
-                                              SectionKey key, String name,
-                                              PlotArguments pargs)
+    public abstract StatDataset plot(StatDataset coll, SectionKey key,
+                                     String name, PlotArguments pargs)
         throws StatPlotException;
 
-    public TimeSeriesCollection plotDelta(SectionKey key, String name,
-                                          PlotArguments pargs)
+    public StatDataset plotDelta(SectionKey key, String name,
+                                 PlotArguments pargs)
         throws StatPlotException
     {
-        return plotDelta(new TimeSeriesCollection(), key, name, pargs);
+        return plotDelta(new StatDataset(), key, name, pargs);
     }
 
-    public abstract TimeSeriesCollection plotDelta(TimeSeriesCollection coll,
-                                                   SectionKey key,
-                                                   String name,
-                                                   PlotArguments pargs)
+    public abstract StatDataset plotDelta(StatDataset coll, SectionKey key,
+                                          String name, PlotArguments pargs)
         throws StatPlotException;
 
-    public abstract TimeSeriesCollection plotScaled(TimeSeriesCollection coll,
-                                                    SectionKey key,
-                                                    String name,
-                                                    PlotArguments pargs)
+    public abstract StatDataset plotScaled(StatDataset coll, SectionKey key,
+                                           String name, PlotArguments pargs)
         throws StatPlotException;
 
     public boolean showLegend()
@@ -65,11 +95,31 @@ public abstract class StatParent<T>
         return false;
     }
 
+    /**
+     * Number of samples
+     *
+     * @return number of samples
+     */
+    public int size()
+    {
+        return (dataList == null ? 0 : dataList.size());
+    }
+
     public Map<String, StatParent> transform(String name)
     {
         return null;
     }
 
+    /**
+     * Release any unused storage after all data has been added
+     */
+    void trimToSize()
+    {
+        if (dataList instanceof ArrayList) {
+            ((ArrayList<T>) dataList).trimToSize();
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,50 @@
+package icecube.daq.tools;
+
+/**
+ * A single series in a <tt>StatDataset</tt>.  X values are times in
+ * milliseconds and must be in increasing order.
+ */
+abstract class StatSeries
+{
+    private Comparable<?> key;
+
+    StatSeries(Comparable<?> key)
+    {
+        this.key = key;
+    }
+
+    abstract int getItemCount();
+
+    Comparable<?> getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Get the time for an item
+     *
+     * @param item item index
+     *
+     * @return time in milliseconds
+     */
+    abstract long getX(int item);
+
+    abstract double getY(int item);
+
+    /**
+     * Pick up any samples added to the underlying statistic since this
+     * series was created
+     *
+     * @return <tt>true</tt> if the series changed
+     */
+    boolean update()
+    {
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return key + "*" + getItemCount();
+    }
+}
@@ -0,0 +1,51 @@
+package icecube.daq.tools;
+
+class StrandData
+    extends BaseData
+{
+    private long[] depths;
+
+    StrandData(ChartTime time, long[] vals)
+    {
+        super(time);
+
+        this.depths = vals;
+    }
+
+    @Override
+    public StatParent createParent()
+    {
+        return new StrandStat(depths.length);
+    }
+
+    @Override
+    public String getDataString()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < depths.length; i++) {
+            if (i > 0) {
+                buf.append(' ');
+            }
+
+            buf.append(depths[i]);
+        }
+        return buf.toString();
+    }
+
+    int getNumStrands()
+    {
+        return depths.length;
+    }
+
+    long getStrand(int i)
+    {
+        return depths[i];
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return depths == null || depths.length == 0 ||
+            (depths.length == 1 && depths[0] == 0);
+    }
+}
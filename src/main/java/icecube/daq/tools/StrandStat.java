@@ -1,13 +1,9 @@
 package icecube.daq.tools;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.apache.log4j.Logger;
 
 import org.jfree.data.time.Second;
 import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
 
 class InternalStrandError
     extends Error
@@ -18,66 +14,15 @@ class InternalStrandError
     }
 }
 
-class StrandData
-    extends BaseData
-{
-    private long[] depths;
-
-    StrandData(ChartTime time, long[] vals)
-    {
-        super(time);
-
-        this.depths = vals;
-    }
-
-    @Override
-    StatParent createParent()
-    {
-        return new StrandStat(depths.length);
-    }
-
-    @Override
-    public String getDataString()
-    {
-        StringBuilder buf = new StringBuilder();
-        for (int i = 0; i < depths.length; i++) {
-            if (i > 0) {
-                buf.append(' ');
-            }
-
-            buf.append(depths[i]);
-        }
-        return buf.toString();
-    }
-
-    int getNumStrands()
-    {
-        return depths.length;
-    }
-
-    long getStrand(int i)
-    {
-        return depths[i];
-    }
-
-    @Override
-    boolean isEmpty()
-    {
-        return depths == null || depths.length == 0 ||
-            (depths.length == 1 && depths[0] == 0);
-    }
-}
-
 class StrandParser
     extends BaseStatParser
 {
-    Map<String, BaseData> parseLine(ChartTime time, String line,
-                                    boolean verbose)
-        throws StatParseException
+    public boolean parseLine(ChartTime time, String line,
+                             SampleSink sink, boolean verbose)
     {
         String[] flds = line.split("\\s+");
         if (flds == null || flds.length == 0) {
-            return null;
+            return false;
         }
 
         long[] vals = new long[flds.length];
@@ -85,24 +30,23 @@ class StrandParser
             try {
                 vals[i] = Long.parseLong(flds[i]);
             } catch (NumberFormatException nfe) {
-                throw new StatParseException("Bad strand statistic #" + i +
-                                             " \"" + flds[i] + "\" in \"" +
-                                             line + "\"");
+                sink.reject("Bad strand statistic #" + i + " \"" +
+                            flds[i] + "\"");
+                return true;
             }
         }
 
         final String name = "Strand Depths";
 
         if (time == null) {
-            throw new StatParseException("Found " + name +
-                                         " stat before time was set");
+            sink.reject("Found " + name + " stat before time was set");
+            return true;
         }
 
         StrandData data = new StrandData(time, vals);
 
-        Map<String, BaseData> map = new HashMap<String, BaseData>();
-        map.put(name, data);
-        return map;
+        sink.add(name, data);
+        return true;
     }
 }
 
@@ -118,6 +62,12 @@ class StrandStat
         this.numStrands = numStrands;
     }
 
+    @Override
+    boolean accepts(BaseData datum)
+    {
+        return datum instanceof StrandData;
+    }
+
     @Override
     void add(StrandData data)
     {
@@ -144,8 +94,8 @@ class StrandStat
         return series;
     }
 
-    public TimeSeriesCollection plot(TimeSeriesCollection coll, SectionKey key,
-                                     String name, PlotArguments pargs)
+    public StatDataset plot(StatDataset coll, SectionKey key, String name,
+                            PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -172,9 +122,8 @@ class StrandStat
         return coll;
     }
 
-    public TimeSeriesCollection plotDelta(TimeSeriesCollection coll,
-                                          SectionKey key, String name,
-                                          PlotArguments pargs)
+    public StatDataset plotDelta(StatDataset coll, SectionKey key, String name,
+                                 PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -212,9 +161,8 @@ class StrandStat
         return coll;
     }
 
-    public TimeSeriesCollection plotScaled(TimeSeriesCollection coll,
-                                           SectionKey key, String name,
-                                           PlotArguments pargs)
+    public StatDataset plotScaled(StatDataset coll, SectionKey key,
+                                  String name, PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -0,0 +1,37 @@
+package icecube.daq.tools;
+
+class StringData
+    extends BaseData
+{
+    private String val;
+
+    StringData(ChartTime time, String val)
+    {
+        super(time);
+
+        this.val = val;
+    }
+
+    @Override
+    public StatParent createParent()
+    {
+        return new StringStat();
+    }
+
+    @Override
+    public String getDataString()
+    {
+        return "\"" + val + "\"";
+    }
+
+    String getValue()
+    {
+        return val;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return val == null || val.length() == 0;
+    }
+}
@@ -0,0 +1,51 @@
+package icecube.daq.tools;
+
+class StringListData
+    extends ListData
+{
+    private String[] vals;
+
+    StringListData(ChartTime time, String[] vals)
+    {
+        super(time);
+
+        this.vals = vals;
+    }
+
+    @Override
+    public String getDataString()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < vals.length; i++) {
+            if (i > 0) {
+                buf.append(' ');
+            }
+
+            buf.append(vals[i]);
+        }
+        return buf.toString();
+    }
+
+    String getEntry(int i)
+    {
+        return vals[i];
+    }
+
+    @Override
+    int getNumEntries()
+    {
+        return vals.length;
+    }
+
+    @Override
+    double getRawValue(int i)
+    {
+        return 0.0;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return vals == null || (vals.length == 1 && vals[0] == null);
+    }
+}
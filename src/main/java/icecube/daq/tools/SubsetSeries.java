@@ -0,0 +1,78 @@
+package icecube.daq.tools;
+
+/**
+ * Series which only shows some of the items from another series
+ */
+class SubsetSeries
+    extends StatSeries
+{
+    private StatSeries series;
+    private int[] items;
+    /** If non-null, used to choose new items after an update */
+    private Decimator decimator;
+
+    /**
+     * Create a subset
+     *
+     * @param series original series
+     * @param items indices of the items to show, in increasing order
+     */
+    SubsetSeries(StatSeries series, int[] items)
+    {
+        this(series, items, null);
+    }
+
+    /**
+     * Create a subset
+     *
+     * @param series original series
+     * @param items indices of the items to show, in increasing order
+     * @param decimator if non-null, used to choose a new subset when the
+     *                  original series changes
+     */
+    SubsetSeries(StatSeries series, int[] items, Decimator decimator)
+    {
+        super(series.getKey());
+
+        this.series = series;
+        this.items = items;
+        this.decimator = decimator;
+    }
+
+    @Override
+    int getItemCount()
+    {
+        return items.length;
+    }
+
+    @Override
+    long getX(int item)
+    {
+        return series.getX(items[item]);
+    }
+
+    @Override
+    double getY(int item)
+    {
+        return series.getY(items[item]);
+    }
+
+    @Override
+    boolean update()
+    {
+        if (decimator == null || !series.update()) {
+            return false;
+        }
+
+        int[] keep = decimator.select(series);
+        if (keep == null) {
+            keep = new int[series.getItemCount()];
+            for (int i = 0; i < keep.length; i++) {
+                keep[i] = i;
+            }
+        }
+
+        items = keep;
+        return true;
+    }
+}
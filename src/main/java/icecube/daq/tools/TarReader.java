@@ -0,0 +1,516 @@
+package icecube.daq.tools;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read the regular files in a tar archive, one after another, from a
+ * stream.  Directories, links and other special entries are skipped.
+ * Handles POSIX ustar names, GNU long names and pax <tt>path</tt>
+ * records, which covers the archives written by GNU and BSD tar.
+ */
+class TarReader
+{
+    /** Size of a header or data block */
+    private static final int BLOCK_SIZE = 512;
+
+    /** Offset and length of the entry name */
+    private static final int NAME_OFF = 0;
+    private static final int NAME_LEN = 100;
+    /** Offset and length of the octal entry size */
+    private static final int SIZE_OFF = 124;
+    private static final int SIZE_LEN = 12;
+    /** Offset and length of the octal header checksum */
+    private static final int CHKSUM_OFF = 148;
+    private static final int CHKSUM_LEN = 8;
+    /** Offset of the entry type */
+    private static final int TYPE_OFF = 156;
+    /** Offset of the ustar magic string */
+    private static final int MAGIC_OFF = 257;
+    /** Offset and length of the ustar name prefix */
+    private static final int PREFIX_OFF = 345;
+    private static final int PREFIX_LEN = 155;
+
+    /** Longest GNU long name or pax header which will be read */
+    private static final int MAX_EXTENDED_SIZE = 1024 * 1024;
+
+    private InputStream in;
+    private byte[] header = new byte[BLOCK_SIZE];
+
+    private String name;
+    private long size;
+
+    /** Bytes of the current entry which have not been read */
+    private long remaining;
+    /** Padding after the current entry */
+    private int padding;
+
+    private EntryStream entryStream = new EntryStream();
+
+    /**
+     * Read entries from an uncompressed tar stream
+     *
+     * @param in tar stream
+     */
+    TarReader(InputStream in)
+    {
+        this.in = in;
+    }
+
+    /**
+     * Get a stream which returns the contents of the current entry.
+     * Closing the stream does not close the archive.
+     *
+     * @return entry stream
+     */
+    InputStream getInputStream()
+    {
+        return entryStream;
+    }
+
+    /**
+     * Get the full path of the current entry
+     *
+     * @return entry name
+     */
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Get the number of bytes in the current entry
+     *
+     * @return entry size
+     */
+    long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Is this the name of a tar archive this class can read, possibly
+     * after it is decompressed?
+     *
+     * @param name file name
+     *
+     * @return <tt>true</tt> if the name ends with <tt>.tar</tt>,
+     *         <tt>.tar.gz</tt> or <tt>.tgz</tt>
+     */
+    static boolean isArchive(String name)
+    {
+        return name.endsWith(".tar") || name.endsWith(".tar.gz") ||
+            name.endsWith(".tgz");
+    }
+
+    private static boolean isZeroBlock(byte[] block)
+    {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Advance to the next regular file, skipping anything left in the
+     * current entry
+     *
+     * @return <tt>false</tt> if there are no more entries
+     *
+     * @throws IOException if the archive cannot be read or is not valid
+     */
+    boolean next()
+        throws IOException
+    {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+
+        String longName = null;
+        while (true) {
+            if (!readBlock(header)) {
+                // some writers leave out the end-of-archive blocks
+                return false;
+            }
+
+            if (isZeroBlock(header)) {
+                return false;
+            }
+
+            verifyChecksum();
+
+            final long entrySize = parseSize();
+            final int entryPad =
+                (int) ((BLOCK_SIZE - entrySize % BLOCK_SIZE) % BLOCK_SIZE);
+
+            final byte type = header[TYPE_OFF];
+            if (type == 'L' || type == 'x') {
+                // GNU long name or pax extended header for the next entry
+                final String data = readExtended(entrySize);
+                skipFully(entryPad);
+
+                if (type == 'L') {
+                    longName = trimNul(data);
+                } else {
+                    final String path = parsePaxPath(data);
+                    if (path != null) {
+                        longName = path;
+                    }
+                }
+
+                continue;
+            }
+
+            if (type != '0' && type != 0 && type != '7') {
+                // skip directories, links, devices and global headers
+                skipFully(entrySize + entryPad);
+                longName = null;
+                continue;
+            }
+
+            if (longName != null) {
+                name = longName;
+            } else {
+                name = parseString(NAME_OFF, NAME_LEN);
+                if (isUstar()) {
+                    final String prefix =
+                        parseString(PREFIX_OFF, PREFIX_LEN);
+                    if (prefix.length() > 0) {
+                        name = prefix + "/" + name;
+                    }
+                }
+            }
+
+            size = entrySize;
+            remaining = entrySize;
+            padding = entryPad;
+            return true;
+        }
+    }
+
+    private boolean isUstar()
+    {
+        return header[MAGIC_OFF] == 'u' && header[MAGIC_OFF + 1] == 's' &&
+            header[MAGIC_OFF + 2] == 't' && header[MAGIC_OFF + 3] == 'a' &&
+            header[MAGIC_OFF + 4] == 'r';
+    }
+
+    /**
+     * Parse an octal header field
+     *
+     * @param off field offset
+     * @param len field length
+     *
+     * @return field value
+     *
+     * @throws IOException if the field contains an invalid character
+     */
+    private long parseOctal(int off, int len)
+        throws IOException
+    {
+        long val = 0;
+        boolean started = false;
+        for (int i = off; i < off + len; i++) {
+            final byte b = header[i];
+            if (b == 0 || (b == ' ' && started)) {
+                break;
+            } else if (b == ' ') {
+                continue;
+            } else if (b < '0' || b > '7') {
+                throw new IOException("Bad octal value in tar header for \"" +
+                                      parseString(NAME_OFF, NAME_LEN) + "\"");
+            }
+
+            val = (val << 3) + (b - '0');
+            started = true;
+        }
+
+        return val;
+    }
+
+    /**
+     * Find the <tt>path</tt> record in a pax extended header.  Each
+     * record is <tt>"<i>length</i> <i>key</i>=<i>value</i>\n"</tt>.
+     *
+     * @param data extended header contents
+     *
+     * @return path, or <tt>null</tt> if there is no path record
+     */
+    private static String parsePaxPath(String data)
+    {
+        String path = null;
+
+        int idx = 0;
+        while (idx < data.length()) {
+            final int space = data.indexOf(' ', idx);
+            if (space < 0) {
+                break;
+            }
+
+            final int len;
+            try {
+                len = Integer.parseInt(data.substring(idx, space));
+            } catch (NumberFormatException nfe) {
+                break;
+            }
+
+            final int end = idx + len;
+            if (len <= 0 || end > data.length()) {
+                break;
+            }
+
+            // drop the trailing newline
+            final String record = data.substring(space + 1, end - 1);
+            if (record.startsWith("path=")) {
+                path = record.substring(5);
+            }
+
+            idx = end;
+        }
+
+        return path;
+    }
+
+    /**
+     * Parse the entry size, which is either octal or (for huge entries)
+     * a big-endian binary number flagged by the high bit of the first byte
+     *
+     * @return entry size
+     *
+     * @throws IOException if the size is not valid
+     */
+    private long parseSize()
+        throws IOException
+    {
+        if ((header[SIZE_OFF] & 0x80) == 0) {
+            return parseOctal(SIZE_OFF, SIZE_LEN);
+        }
+
+        long val = header[SIZE_OFF] & 0x7f;
+        for (int i = SIZE_OFF + 1; i < SIZE_OFF + SIZE_LEN; i++) {
+            val = (val << 8) + (header[i] & 0xff);
+        }
+
+        if (val < 0) {
+            throw new IOException("Bad size in tar header");
+        }
+
+        return val;
+    }
+
+    private String parseString(int off, int len)
+    {
+        int end = off;
+        while (end < off + len && header[end] != 0) {
+            end++;
+        }
+
+        return new String(header, off, end - off, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fill a block from the archive
+     *
+     * @param block block to fill
+     *
+     * @return <tt>false</tt> if the archive ends before the block starts
+     *
+     * @throws IOException if the archive ends in the middle of the block
+     */
+    private boolean readBlock(byte[] block)
+        throws IOException
+    {
+        int off = 0;
+        while (off < block.length) {
+            final int num = in.read(block, off, block.length - off);
+            if (num < 0) {
+                if (off == 0) {
+                    return false;
+                }
+
+                throw new EOFException("Truncated tar header");
+            }
+
+            off += num;
+        }
+
+        return true;
+    }
+
+    /**
+     * Read the contents of a GNU long name or pax extended header
+     *
+     * @param len number of bytes
+     *
+     * @return contents
+     *
+     * @throws IOException if the contents cannot be read
+     */
+    private String readExtended(long len)
+        throws IOException
+    {
+        if (len > MAX_EXTENDED_SIZE) {
+            throw new IOException("Extended tar header is too long (" + len +
+                                  " bytes)");
+        }
+
+        byte[] data = new byte[(int) len];
+
+        int off = 0;
+        while (off < data.length) {
+            final int num = in.read(data, off, data.length - off);
+            if (num < 0) {
+                throw new EOFException("Truncated extended tar header");
+            }
+
+            off += num;
+        }
+
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skip bytes in the archive.  <tt>InputStream.skip()</tt> may skip
+     * fewer bytes than requested, so keep going until done.
+     *
+     * @param len number of bytes to skip
+     *
+     * @throws IOException if the archive ends early
+     */
+    private void skipFully(long len)
+        throws IOException
+    {
+        long left = len;
+        while (left > 0) {
+            long num = in.skip(left);
+            if (num <= 0) {
+                // skip() may return 0 before the end, so check with read()
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated tar archive");
+                }
+                num = 1;
+            }
+
+            left -= num;
+        }
+    }
+
+    private static String trimNul(String str)
+    {
+        final int idx = str.indexOf('\0');
+        if (idx < 0) {
+            return str;
+        }
+
+        return str.substring(0, idx);
+    }
+
+    /**
+     * Check the header checksum (the unsigned sum of all header bytes,
+     * counting the checksum field as spaces)
+     *
+     * @throws IOException if the checksum does not match
+     */
+    private void verifyChecksum()
+        throws IOException
+    {
+        final long expected = parseOctal(CHKSUM_OFF, CHKSUM_LEN);
+
+        long sum = 0;
+        for (int i = 0; i < header.length; i++) {
+            if (i >= CHKSUM_OFF && i < CHKSUM_OFF + CHKSUM_LEN) {
+                sum += ' ';
+            } else {
+                sum += header[i] & 0xff;
+            }
+        }
+
+        if (sum != expected) {
+            throw new IOException("Bad tar header checksum (not a tar" +
+                                  " archive?)");
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TarReader[" + name + ": " + remaining + " of " + size +
+            " bytes left]";
+    }
+
+    /**
+     * Contents of the current entry
+     */
+    class EntryStream
+        extends InputStream
+    {
+        @Override
+        public int available()
+            throws IOException
+        {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        /**
+         * Leave the archive open, since later entries are still needed
+         */
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            final int val = in.read();
+            if (val < 0) {
+                throw new EOFException("Truncated tar entry \"" + name +
+                                       "\"");
+            }
+
+            remaining--;
+            return val;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+            throws IOException
+        {
+            if (len == 0) {
+                return 0;
+            } else if (remaining <= 0) {
+                return -1;
+            }
+
+            final int num = in.read(b, off, (int) Math.min(len, remaining));
+            if (num < 0) {
+                throw new EOFException("Truncated tar entry \"" + name +
+                                       "\"");
+            }
+
+            remaining -= num;
+            return num;
+        }
+
+        @Override
+        public long skip(long n)
+            throws IOException
+        {
+            final long num = in.skip(Math.min(n, remaining));
+            if (num > 0) {
+                remaining -= num;
+            }
+            return num;
+        }
+    }
+}
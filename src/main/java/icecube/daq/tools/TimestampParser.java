@@ -0,0 +1,156 @@
+package icecube.daq.tools;
+
+import java.time.LocalDate;
+
+/**
+ * Convert the fixed-width <tt>yyyy-MM-dd HH:mm:ss.ffffff</tt> UTC
+ * timestamps found in section headers to milliseconds since the epoch.
+ * The start of the most recent day is cached, so consecutive headers
+ * from the same day only need the time of day converted.  Instances are
+ * not thread-safe, so every parser should use its own.
+ */
+class TimestampParser
+{
+    /** Number of characters in <tt>yyyy-MM-dd HH:mm:ss</tt> */
+    private static final int SECONDS_LEN = 19;
+
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+
+    /** Date of the cached day, encoded as <tt>yyyyMMdd</tt> */
+    private int cachedDate = -1;
+    /** Start of the cached day */
+    private long cachedMillis;
+
+    TimestampParser()
+    {
+    }
+
+    private static int digits(CharSequence str, int start, int len)
+    {
+        int val = 0;
+        for (int i = start; i < start + len; i++) {
+            val = val * 10 + (str.charAt(i) - '0');
+        }
+        return val;
+    }
+
+    /**
+     * Find the end of a timestamp
+     *
+     * @param str text
+     * @param start index of the first character of the timestamp
+     *
+     * @return index just past the last digit of the fractional seconds,
+     *         or <tt>-1</tt> if there is no valid timestamp at
+     *         <tt>start</tt>
+     */
+    static int findEnd(CharSequence str, int start)
+    {
+        final int len = str.length();
+        if (start + SECONDS_LEN + 2 > len) {
+            return -1;
+        }
+
+        for (int i = 0; i < SECONDS_LEN; i++) {
+            final char ch = str.charAt(start + i);
+            switch (i) {
+            case 4:
+            case 7:
+                if (ch != '-') {
+                    return -1;
+                }
+                break;
+            case 10:
+                if (!isSpace(ch)) {
+                    return -1;
+                }
+                break;
+            case 13:
+            case 16:
+                if (ch != ':') {
+                    return -1;
+                }
+                break;
+            default:
+                if (!isDigit(ch)) {
+                    return -1;
+                }
+                break;
+            }
+        }
+
+        // the character before the fractional seconds is not checked
+        int idx = start + SECONDS_LEN + 1;
+        if (!isDigit(str.charAt(idx))) {
+            return -1;
+        }
+
+        while (idx < len && isDigit(str.charAt(idx))) {
+            idx++;
+        }
+
+        return idx;
+    }
+
+    private static boolean isDigit(char ch)
+    {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * Is this a character matched by <tt>\s</tt> in a regular expression?
+     *
+     * @param ch character
+     *
+     * @return <tt>true</tt> if this is whitespace
+     */
+    static boolean isSpace(char ch)
+    {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000b' ||
+            ch == '\f' || ch == '\r';
+    }
+
+    /**
+     * Convert a timestamp which has already been found by
+     * <tt>findEnd()</tt>.  Like a lenient <tt>SimpleDateFormat</tt>,
+     * out-of-range fields roll over into the next larger field.
+     *
+     * @param str text
+     * @param start index of the first character of the timestamp
+     * @param end index returned by <tt>findEnd()</tt>
+     *
+     * @return milliseconds since the epoch
+     */
+    long parse(CharSequence str, int start, int end)
+    {
+        final int year = digits(str, start, 4);
+        final int month = digits(str, start + 5, 2);
+        final int day = digits(str, start + 8, 2);
+
+        final int date = (year * 100 + month) * 100 + day;
+        if (date != cachedDate) {
+            LocalDate ld = LocalDate.of(year, 1, 1).plusMonths(month - 1).
+                plusDays(day - 1);
+
+            cachedMillis = ld.toEpochDay() * MILLIS_PER_DAY;
+            cachedDate = date;
+        }
+
+        final int hour = digits(str, start + 11, 2);
+        final int minute = digits(str, start + 14, 2);
+        final int second = digits(str, start + 17, 2);
+
+        // only the first three digits of the fraction are significant
+        final int fracStart = start + SECONDS_LEN + 1;
+        int millis = 0;
+        for (int i = 0; i < 3; i++) {
+            millis *= 10;
+            if (fracStart + i < end) {
+                millis += str.charAt(fracStart + i) - '0';
+            }
+        }
+
+        return cachedMillis +
+            ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+    }
+}
@@ -0,0 +1,49 @@
+package icecube.daq.tools;
+
+import java.util.List;
+
+class TimingData
+    extends BaseData
+{
+    private List<TimingPiece> list;
+
+    TimingData(ChartTime time, List<TimingPiece> list)
+    {
+        super(time);
+
+        this.list = list;
+    }
+
+    @Override
+    public StatParent createParent()
+    {
+        return new TimingStat();
+    }
+
+    @Override
+    public String getDataString()
+    {
+        StringBuilder buf = new StringBuilder();
+
+        for (TimingPiece piece : list) {
+            if (buf.length() > 0) {
+                buf.append(' ');
+            }
+
+            buf.append(piece.toString());
+        }
+
+        return buf.toString();
+    }
+
+    Iterable<TimingPiece> iterator()
+    {
+        return list;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+package icecube.daq.tools;
+
+class TimingPiece
+{
+    private String title;
+    private long time;
+    private long calls;
+
+    TimingPiece(String title, String timeStr, String callsStr)
+        throws StatParseException
+    {
+        this.title = title;
+        this.time = parseLong(timeStr);
+        this.calls = parseLong(callsStr);
+    }
+
+    TimingPiece(String title, long time, long calls)
+    {
+        this.title = title;
+        this.time = time;
+        this.calls = calls;
+    }
+
+    double getAverageTime()
+    {
+        return (time == 0 ? 0.0 : (double) time / (double) calls);
+    }
+
+    long getProfileCalls()
+    {
+        return calls;
+    }
+
+    long getProfileTime()
+    {
+        return time;
+    }
+
+    String getTitle()
+    {
+        return title;
+    }
+
+    private static long parseLong(String str)
+        throws StatParseException
+    {
+        try {
+            return Long.parseLong(str);
+        } catch (NumberFormatException nfe) {
+            throw new StatParseException("Bad number \"" + str + "\"");
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return title + "=" + time + "/" + calls;
+    }
+}
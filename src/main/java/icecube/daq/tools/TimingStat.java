@@ -1,9 +1,6 @@
 package icecube.daq.tools;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,127 +8,47 @@ import org.apache.log4j.Logger;
 
 import org.jfree.data.time.Second;
 import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
 
-class TimingPiece
-{
-    private String title;
-    private long time;
-    private long calls;
-
-    TimingPiece(String title, String timeStr, String callsStr)
-        throws StatParseException
-    {
-        this.title = title;
-        this.time = parseLong(timeStr);
-        this.calls = parseLong(callsStr);
-    }
-
-    double getAverageTime()
-    {
-        return (time == 0 ? 0.0 : (double) time / (double) calls);
-    }
-
-    long getProfileCalls()
-    {
-        return calls;
-    }
-
-    long getProfileTime()
-    {
-        return time;
-    }
-
-    String getTitle()
-    {
-        return title;
-    }
-
-    private static long parseLong(String str)
-        throws StatParseException
-    {
-        try {
-            return Long.parseLong(str);
-        } catch (NumberFormatException nfe) {
-            throw new StatParseException("Bad number \"" + str + "\"");
-        }
-    }
-
-    @Override
-    public String toString()
-    {
-        return title + "=" + time + "/" + calls;
-    }
-}
-
-class TimingData
-    extends BaseData
+class TimingParser
+    extends BaseStatParser
 {
-    private List<TimingPiece> list;
-
-    TimingData(ChartTime time, List<TimingPiece> list)
-    {
-        super(time);
+    private static final Logger LOG = Logger.getLogger(TimingParser.class);
 
-        this.list = list;
-    }
+    private static final Pattern STAT_PAT =
+        Pattern.compile("^(\\S+.*\\s+Timing:|\\s+\\S+Timing):?\\s+(.*)\\s*$");
+    private static final Pattern PIECE_PAT =
+        Pattern.compile("\\s*([^:]+):\\s(\\d+)/(\\d+)=(\\d+)#(\\d+\\.?\\d*%)");
 
     @Override
-    StatParent createParent()
+    boolean canParse(LineShape shape, boolean hasTiming)
     {
-        return new TimingStat();
+        return hasTiming;
     }
 
     @Override
-    public String getDataString()
+    public boolean mayMatch(String line)
     {
-        StringBuilder buf = new StringBuilder();
-
-        for (TimingPiece piece : list) {
-            if (buf.length() > 0) {
-                buf.append(' ');
-            }
-
-            buf.append(piece.toString());
-        }
-
-        return buf.toString();
-    }
-
-    Iterable<TimingPiece> iterator()
-    {
-        return list;
+        return LineShape.hasTiming(line);
     }
 
     @Override
-    boolean isEmpty()
+    public int getTier()
     {
-        return false;
+        return 300;
     }
-}
 
-class TimingParser
-    extends BaseStatParser
-{
-    private static final Logger LOG = Logger.getLogger(TimingParser.class);
-
-    private static final Pattern STAT_PAT =
-        Pattern.compile("^(\\S+.*\\s+Timing:|\\s+\\S+Timing):?\\s+(.*)\\s*$");
-    private static final Pattern PIECE_PAT =
-        Pattern.compile("\\s*([^:]+):\\s(\\d+)/(\\d+)=(\\d+)#(\\d+\\.?\\d*%)");
-
-    Map<String, BaseData> parseLine(ChartTime time, String line,
-                                    boolean verbose)
-        throws StatParseException
+    public boolean parseLine(ChartTime time, String line,
+                             SampleSink sink, boolean verbose)
     {
         Matcher matcher = STAT_PAT.matcher(line);
         if (!matcher.find()) {
-            return null;
+            return false;
         }
 
         String dataStr = matcher.group(2);
         if (dataStr.equals("NOT RUNNING")) {
-            return new HashMap<String, BaseData>();
+            // recognized, but there is nothing to save
+            return true;
         }
 
         String name = matcher.group(1);
@@ -167,9 +84,8 @@ class TimingParser
 
         TimingData data = new TimingData(time, timing);
 
-        Map<String, BaseData> map = new HashMap<String, BaseData>();
-        map.put(name, data);
-        return map;
+        sink.add(name, data);
+        return true;
     }
 }
 
@@ -184,6 +100,12 @@ class TimingStat
     {
     }
 
+    @Override
+    boolean accepts(BaseData datum)
+    {
+        return datum instanceof TimingData;
+    }
+
     @Override
     void add(TimingData data)
     {
@@ -215,8 +137,8 @@ class TimingStat
         return piece.getProfileTime();
     }
 
-    public TimeSeriesCollection plot(TimeSeriesCollection coll, SectionKey key,
-                                     String name, PlotArguments pargs)
+    public StatDataset plot(StatDataset coll, SectionKey key, String name,
+                            PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);
@@ -256,17 +178,15 @@ class TimingStat
         return coll;
     }
 
-    public TimeSeriesCollection plotDelta(TimeSeriesCollection coll,
-                                          SectionKey key, String name,
-                                          PlotArguments pargs)
+    public StatDataset plotDelta(StatDataset coll, SectionKey key, String name,
+                                 PlotArguments pargs)
         throws StatPlotException
     {
         return plot(coll, key, name, pargs);
     }
 
-    public TimeSeriesCollection plotScaled(TimeSeriesCollection coll,
-                                           SectionKey key, String name,
-                                           PlotArguments pargs)
+    public StatDataset plotScaled(StatDataset coll, SectionKey key,
+                                  String name, PlotArguments pargs)
         throws StatPlotException
     {
         TimeSeries series[] = generateSeries(key, name, pargs);